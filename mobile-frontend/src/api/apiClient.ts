@@ -3,7 +3,14 @@
 import axios from "axios";
 import AsyncStorage from "@react-native-async-storage/async-storage";
 import { Platform } from "react-native";
-import { getToken, isAuthenticated, setToken } from "@/utils/tokenUtils";
+import {
+  clearUserData,
+  getRefreshToken,
+  getToken,
+  isAuthenticated,
+  setRefreshToken,
+  setToken,
+} from "@/utils/tokenUtils";
 import {
   getErrorMessage,
   ApiError,
@@ -48,6 +55,7 @@ console.log("  BASE_URL:", BASE_URL);
 // Interfaces remain the same...
 export interface TokenRefreshResponse {
   token: string;
+  refreshToken?: string;
 }
 
 export interface ApiClientOptions {
@@ -218,9 +226,54 @@ export const createApiClient = (options: ApiClientOptions = {}) => {
         error.response?.status === 401 &&
         originalRequest &&
         !originalRequest._retry &&
-        (await isAuthenticated())
+        (await isAuthenticated()) &&
+        config.autoRefreshToken
       ) {
-        // ... existing token refresh logic ...
+        // A refresh is already running: wait for it, then retry with the new token
+        if (isRefreshing) {
+          return new Promise((resolve, reject) => {
+            failedQueue.push({ resolve, reject });
+          }).then(() => {
+            originalRequest._retry = true;
+            return instance(originalRequest);
+          });
+        }
+
+        originalRequest._retry = true;
+        isRefreshing = true;
+
+        try {
+          // Plain axios, so a 401 from the refresh call doesn't come back through this interceptor
+          // Sessions from before refresh tokens have none; the server then falls back to the access token
+          const storedRefreshToken = await getRefreshToken();
+          const currentToken = await getToken();
+          const response = await axios.post<TokenRefreshResponse>(
+            `${config.baseURL}/auth/refresh`,
+            storedRefreshToken ? { refreshToken: storedRefreshToken } : {},
+            {
+              timeout: config.timeout,
+              headers: currentToken
+                ? { Authorization: `Bearer ${currentToken}` }
+                : undefined,
+            }
+          );
+
+          await setToken(response.data.token);
+          // The refresh token is rotated: the one just sent no longer works
+          if (response.data.refreshToken) {
+            await setRefreshToken(response.data.refreshToken);
+          }
+
+          processQueue(null, response.data.token);
+          return instance(originalRequest);
+        } catch (refreshError) {
+          console.error("❌ Token refresh failed, signing out");
+          processQueue(refreshError as Error);
+          await clearUserData();
+          return Promise.reject(refreshError);
+        } finally {
+          isRefreshing = false;
+        }
       }
 
       return Promise.reject(error);
@@ -13,6 +13,8 @@ import {
   getUserData,
   setAuthenticated,
   getUserId,
+  getRefreshToken,
+  setRefreshToken,
 } from "@/utils/tokenUtils";
 import { getToken } from "@/utils/tokenUtils";
 
@@ -43,6 +45,9 @@ export const login = async (
       // If we get a token from the server (normal login), store it
       if (response.data.token) {
         await setToken(response.data.token);
+        if (response.data.refreshToken) {
+          await setRefreshToken(response.data.refreshToken);
+        }
         await setAuthenticated(true);
 
         // Store user info in AsyncStorage
@@ -137,15 +142,21 @@ export const logout = async (): Promise<void> => {
  */
 export const refreshToken = async (): Promise<boolean> => {
   return safeApiCall(async () => {
-    const response = await apiClient.post<{ token?: string }>(
+    // Sessions from before refresh tokens have none; the server then falls back to the access token
+    const storedRefreshToken = await getRefreshToken();
+    const response = await apiClient.post<{ token?: string; refreshToken?: string }>(
       "/auth/refresh",
-      {}
+      storedRefreshToken ? { refreshToken: storedRefreshToken } : {}
     );
 
     // If we receive a token from the server, store it
     if (response.data && response.data.token) {
       await setToken(response.data.token);
     }
+    // The refresh token is rotated: the one just sent no longer works
+    if (response.data && response.data.refreshToken) {
+      await setRefreshToken(response.data.refreshToken);
+    }
 
     // Mark as authenticated since the token was refreshed
     await setAuthenticated(true);
@@ -317,6 +328,9 @@ export const verify2FA = async (
     // If verification successful, store token and user data
     if (response.data.token) {
       await setToken(response.data.token);
+      if (response.data.refreshToken) {
+        await setRefreshToken(response.data.refreshToken);
+      }
       await setAuthenticated(true);
 
       // Store user info in AsyncStorage
@@ -1,5 +1,6 @@
 // src/api/security.ts
 import { apiClient, safeApiCall } from "./apiClient";
+import { setRefreshToken, setToken } from "@/utils/tokenUtils";
 
 /**
  * Interface for the two-factor authentication setup response
@@ -85,10 +86,17 @@ export const changePassword = async (
   newPassword: string
 ): Promise<{ success: boolean; message?: string }> => {
   return safeApiCall(async () => {
-    const response = await apiClient.put<{ success: boolean; message?: string }>(
+    const response = await apiClient.put<{ success: boolean; message?: string; token?: string; refreshToken?: string }>(
       '/users/password',
       { currentPassword, newPassword }
     );
+    // Changing the password revokes every session; continue on the new one
+    if (response.data.token) {
+      await setToken(response.data.token);
+    }
+    if (response.data.refreshToken) {
+      await setRefreshToken(response.data.refreshToken);
+    }
     return response.data;
   }, "Failed to change password");
 };
@@ -189,6 +189,7 @@ export interface HashtagInfo {
 // src/api/types.ts
 export interface AuthResponse {
   token?: string;
+  refreshToken?: string;
   requires2FA?: boolean;
   tempToken?: string;
   user?: {
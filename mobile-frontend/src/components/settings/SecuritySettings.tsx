@@ -10,6 +10,7 @@ import { useToast } from "@/hooks/use-toast";
 import { useSelector } from "react-redux";
 import { RootState } from "@/redux/store";
 import { apiClient } from "@/api/apiClient";
+import { setRefreshToken, setToken } from "@/utils/tokenUtils";
 
 // Interface for TWO-FA setup response
 interface TwoFASetupResponse {
@@ -105,11 +106,19 @@ const SecuritySettings: React.FC = () => {
     setIsUpdatingPassword(true);
 
     try {
-      await apiClient.put("/users/password", {
+      const response = await apiClient.put("/users/password", {
         currentPassword,
         newPassword,
       });
 
+      // Changing the password revokes every session; continue on the new one
+      if (response.data?.token) {
+        await setToken(response.data.token);
+      }
+      if (response.data?.refreshToken) {
+        await setRefreshToken(response.data.refreshToken);
+      }
+
       setPasswordUpdateSuccess(true);
       setCurrentPassword("");
       setNewPassword("");
@@ -3,6 +3,7 @@ import AsyncStorage from '@react-native-async-storage/async-storage';
 
 // Storage keys
 const TOKEN_KEY = 'authToken';
+const REFRESH_TOKEN_KEY = 'refreshToken';
 const USER_ID_KEY = 'currentUserId';
 const IS_AUTHENTICATED_KEY = 'isAuthenticated';
 
@@ -51,6 +52,29 @@ export const removeToken = async (): Promise<void> => {
   }
 };
 
+/**
+ * Set the refresh token; the server rotates it on every refresh, so always keep the latest one
+ */
+export const setRefreshToken = async (refreshToken: string): Promise<void> => {
+  try {
+    await AsyncStorage.setItem(REFRESH_TOKEN_KEY, refreshToken);
+  } catch (error) {
+    console.error('Error storing refresh token:', error);
+  }
+};
+
+/**
+ * Get refresh token
+ */
+export const getRefreshToken = async (): Promise<string | null> => {
+  try {
+    return await AsyncStorage.getItem(REFRESH_TOKEN_KEY);
+  } catch (error) {
+    console.error('Error retrieving refresh token:', error);
+    return null;
+  }
+};
+
 /**
  * Set authentication status
  */
@@ -202,6 +226,7 @@ export const clearUserData = async (): Promise<void> => {
     const allKeys = await AsyncStorage.getAllKeys();
     const keysToRemove = [
       TOKEN_KEY,
+      REFRESH_TOKEN_KEY,
       USER_ID_KEY,
       IS_AUTHENTICATED_KEY,
       ...allKeys.filter(key => userId && key.startsWith(`user_${userId}_`))
@@ -0,0 +1,51 @@
+package com.jgy36.PoliticalApp.config;
+
+import com.jgy36.PoliticalApp.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal set by {@link JwtTokenFilter} for token-authenticated requests.
+ * Carries the user id so the current user can be loaded by primary key, and no password hash,
+ * since the token has already been verified.
+ */
+public class AuthenticatedUser implements UserDetails {
+
+    private final Long id;
+    private final String email;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String email, String role) {
+        this.id = id;
+        this.email = email;
+        this.authorities = List.of(new SimpleGrantedAuthority(role));
+    }
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole().name());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    // Authentication.getName() returns this, so existing auth.getName() lookups keep working
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
@@ -1,7 +1,9 @@
 package com.jgy36.PoliticalApp.config;
 
+import com.jgy36.PoliticalApp.service.ActivityTracker;
+import com.jgy36.PoliticalApp.service.PrincipalCache;
 import com.jgy36.PoliticalApp.service.TokenBlacklistService;
-import com.jgy36.PoliticalApp.service.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,7 +13,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -21,18 +22,24 @@ import java.io.IOException;
 public class JwtTokenFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenFilter.class);
 
+    // Request attribute holding the session (refresh token family) of the access token, if any
+    public static final String SESSION_ID_ATTRIBUTE = "com.jgy36.PoliticalApp.sessionId";
+
     private final JwtTokenUtil jwtTokenUtil;
     private final TokenBlacklistService tokenBlacklistService;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final PrincipalCache principalCache;
+    private final ActivityTracker activityTracker;
 
     // Using constructor injection instead of @Autowired field injection
     public JwtTokenFilter(
             JwtTokenUtil jwtTokenUtil,
             TokenBlacklistService tokenBlacklistService,
-            UserDetailsServiceImpl userDetailsService) {
+            PrincipalCache principalCache,
+            ActivityTracker activityTracker) {
         this.jwtTokenUtil = jwtTokenUtil;
         this.tokenBlacklistService = tokenBlacklistService;
-        this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
+        this.activityTracker = activityTracker;
     }
 
     @Override
@@ -42,7 +49,7 @@ public class JwtTokenFilter extends OncePerRequestFilter {
             FilterChain chain
     ) throws ServletException, IOException {
         // Log detailed request information
-        logger.info("🔍 Request Details: {} {}", request.getMethod(), request.getRequestURI());
+        logger.debug("🔍 Request Details: {} {}", request.getMethod(), request.getRequestURI());
 
         // Skip token validation for specific endpoints
         String requestURI = request.getRequestURI();
@@ -59,7 +66,7 @@ public class JwtTokenFilter extends OncePerRequestFilter {
 
         for (String path : skipPaths) {
             if (requestURI.startsWith(path)) {
-                logger.info("🔓 Skipping token validation for path: {}", requestURI);
+                logger.debug("🔓 Skipping token validation for path: {}", requestURI);
                 chain.doFilter(request, response);
                 return;
             }
@@ -67,20 +74,18 @@ public class JwtTokenFilter extends OncePerRequestFilter {
 
         // Rest of your existing code remains unchanged
         final String header = request.getHeader(HttpHeaders.AUTHORIZATION);
-        logger.debug("🔑 Authorization Header: {}", header);
 
         if (header == null || !header.startsWith("Bearer ")) {
-            logger.warn("❌ No valid Authorization header found");
+            logger.debug("❌ No valid Authorization header found");
             chain.doFilter(request, response);
             return;
         }
 
         final String token = header.substring(7);
-        logger.debug("✅ Extracted Token: {}", token);
 
         // Check if token is blacklisted
         if (tokenBlacklistService.isTokenBlacklisted(token)) {
-            logger.warn("🚫 Blacklisted token attempt: {}", token);
+            logger.warn("🚫 Blacklisted token attempt on {}", requestURI);
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("Token has been blacklisted");
             return;
@@ -89,20 +94,41 @@ public class JwtTokenFilter extends OncePerRequestFilter {
         try {
             // Extract and validate username from token
             String username = jwtTokenUtil.getUsernameFromToken(token);
-            logger.info("✅ Extracted Username: {}", username);
 
-            // Load user details
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // A 2FA temp token only proves the password step; it is accepted by /verify-2fa alone
+            if ("temp".equals(jwtTokenUtil.extractClaim(token, c -> c.get("type", String.class)))) {
+                logger.warn("🚫 2FA temp token used as access token on {}", requestURI);
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.getWriter().write("Invalid token");
+                return;
+            }
+
+            // "Log out everywhere" revokes every token issued before it
+            if (tokenBlacklistService.isRevokedByWatermark(username,
+                    jwtTokenUtil.extractClaim(token, Claims::getIssuedAt))) {
+                logger.warn("🚫 Revoked token attempt on {}", requestURI);
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.getWriter().write("Token has been revoked");
+                return;
+            }
+
+            // Cached principal carrying the user id, so services load the current user by primary key
+            AuthenticatedUser principal = principalCache.get(username);
 
             // Set authentication
             UsernamePasswordAuthenticationToken authToken =
                     new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            principal,
                             null,
-                            userDetails.getAuthorities()
+                            principal.getAuthorities()
                     );
             SecurityContextHolder.getContext().setAuthentication(authToken);
-            logger.info("🔐 User authenticated successfully: {}", username);
+            String sessionId = jwtTokenUtil.extractClaim(token, c -> c.get("sid", String.class));
+            if (sessionId != null) {
+                request.setAttribute(SESSION_ID_ATTRIBUTE, sessionId);
+            }
+            activityTracker.record(principal.getId(), sessionId);
+            logger.debug("🔐 User authenticated successfully: {}", username);
 
             chain.doFilter(request, response);
         } catch (Exception e) {
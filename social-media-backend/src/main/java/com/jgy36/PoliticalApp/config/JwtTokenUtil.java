@@ -1,25 +1,33 @@
 package com.jgy36.PoliticalApp.config;
 
-import io.jsonwebtoken.*;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.function.Function;
 
 @Component
 public class JwtTokenUtil {
-
-    @Value("${jwt.secret}") // ✅ Inject secret from properties
-    private String secret;
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenUtil.class);
 
     @Value("${jwt.expirationMs}") // ✅ Inject expiration time from properties
     private long expirationMs;
 
+    @Value("${jwt.access-token-ttl-ms:900000}") // ✅ 15 minutes unless configured
+    private long accessTokenTtlMs;
+
+    private final JwtVerifier jwtVerifier; // ✅ Keys and parser are built once there
+
+    public JwtTokenUtil(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+    }
+
     /**
      * ✅ Generates a JWT token for an authenticated user.
      *
@@ -27,16 +35,36 @@ public class JwtTokenUtil {
      * @return A JWT token as a String.
      */
     public String generateToken(String email) {
-        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
-
-        return Jwts.builder()
+        return jwtVerifier.builder()
                 .subject(email)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expirationMs))
-                .signWith(key, Jwts.SIG.HS256)
                 .compact();
     }
 
+    /**
+     * ✅ Generates a short-lived access token bound to a session (refresh token family).
+     * Clients renew it through /api/auth/refresh instead of holding a long-lived token.
+     *
+     * @param email     The user's email
+     * @param sessionId The session id, stored as the "sid" claim
+     * @return JWT token
+     */
+    public String generateAccessToken(String email, String sessionId) {
+        Date now = new Date();
+
+        return jwtVerifier.builder()
+                .subject(email)
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + accessTokenTtlMs))
+                .claim("sid", sessionId)
+                .compact();
+    }
+
+    public long getAccessTokenTtlMs() {
+        return accessTokenTtlMs;
+    }
+
     /**
      * ✅ Generates a JWT token with custom expiration time
      *
@@ -45,15 +73,13 @@ public class JwtTokenUtil {
      * @return JWT token
      */
     public String generateToken(String email, int expirationSeconds) {
-        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + (expirationSeconds * 1000L));
 
-        return Jwts.builder()
+        return jwtVerifier.builder()
                 .subject(email)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(key, Jwts.SIG.HS256)
                 .compact();
     }
 
@@ -61,16 +87,14 @@ public class JwtTokenUtil {
      * ✅ Generates a temporary token for 2FA verification
      */
     public String generateTempToken(String email) {
-        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + 300000); // 5 minutes
 
-        return Jwts.builder()
+        return jwtVerifier.builder()
                 .subject(email)
                 .issuedAt(now)
                 .expiration(expiryDate)
                 .claim("type", "temp")
-                .signWith(key, Jwts.SIG.HS256)
                 .compact();
     }
 
@@ -79,12 +103,7 @@ public class JwtTokenUtil {
      */
     public Claims validateTempToken(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
-            Claims claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = jwtVerifier.verify(token);
 
             if (!"temp".equals(claims.get("type"))) {
                 throw new RuntimeException("Invalid token type");
@@ -106,17 +125,9 @@ public class JwtTokenUtil {
      */
     public String getUsernameFromToken(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
-            Claims claims = Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-
-            System.out.println("✅ Extracted Username from Token: " + claims.getSubject());
-            return claims.getSubject();
+            return jwtVerifier.verify(token).getSubject();
         } catch (Exception e) {
-            System.out.println("❌ Error extracting username from JWT: " + e.getMessage());
+            logger.debug("Error extracting username from JWT: {}", e.getMessage());
             return null;
         }
     }
@@ -151,10 +162,7 @@ public class JwtTokenUtil {
      * @return The claims inside the token.
      */
     private Claims extractAllClaims(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
-        JwtParser parser = Jwts.parser().verifyWith(key).build();
-
-        return parser.parseSignedClaims(token).getPayload();
+        return jwtVerifier.verify(token);
     }
 
     /**
@@ -180,17 +188,16 @@ public class JwtTokenUtil {
             Date expiration = claims.getExpiration();
 
             if (expiration.before(new Date())) {
-                System.out.println("🚨 Token expired at: " + expiration);
+                logger.debug("Token expired at: {}", expiration);
                 return false;
             }
 
-            String email = getUsernameFromToken(token);
-            return (email.equals(userDetails.getUsername()));
+            return userDetails.getUsername().equals(claims.getSubject());
         } catch (ExpiredJwtException e) {
-            System.out.println("🚨 Token is expired!");
+            logger.debug("Token is expired");
             return false;
         } catch (JwtException e) {
-            System.out.println("🚨 Invalid token!");
+            logger.debug("Invalid token");
             return false;
         }
     }
@@ -202,14 +209,6 @@ public class JwtTokenUtil {
      * @return The expiration timestamp.
      */
     public long getExpirationFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
-
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return claims.getExpiration().getTime();
+        return extractAllClaims(token).getExpiration().getTime();
     }
 }
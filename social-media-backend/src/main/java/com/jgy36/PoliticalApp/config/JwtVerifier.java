@@ -0,0 +1,168 @@
+package com.jgy36.PoliticalApp.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.*;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signs and verifies JWTs with keys and a parser that are built once at startup.
+ * Every token carries a key id ({@code kid}) so the signing key can be rotated: the current key signs,
+ * the current and any previous keys verify. Tokens without a kid (issued before rotation support)
+ * are verified with the current key.
+ * Verified claims are cached until the token expires, so repeat requests with the same token skip
+ * the signature check and JSON parsing. The cache is keyed by the token's SHA-256 digest, so live
+ * bearer tokens are not kept in the heap.
+ */
+@Component
+public class JwtVerifier {
+
+    @Value("${jwt.secret}")
+    private String secret;
+
+    @Value("${jwt.key-id:default}")
+    private String currentKeyId;
+
+    // Retired keys still accepted for verification, as "kid:base64Secret" pairs separated by commas
+    @Value("${jwt.previous-secrets:}")
+    private String previousSecrets;
+
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+
+    private final Map<String, SecretKey> verificationKeys = new HashMap<>();
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    private Cache<TokenDigest, Claims> verifiedClaims;
+
+    // SHA-256 of a token as four longs: 32 bytes per key instead of the whole token
+    private record TokenDigest(long a, long b, long c, long d) {
+        static TokenDigest of(String token) {
+            try {
+                ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                        .digest(token.getBytes(StandardCharsets.UTF_8)));
+                return new TokenDigest(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        verificationKeys.put(currentKeyId, signingKey);
+
+        if (!previousSecrets.isBlank()) {
+            for (String entry : previousSecrets.split(",")) {
+                int separator = entry.indexOf(':');
+                if (separator <= 0) {
+                    throw new IllegalStateException("jwt.previous-secrets entries must look like kid:base64Secret");
+                }
+                verificationKeys.putIfAbsent(entry.substring(0, separator).trim(),
+                        Keys.hmacShaKeyFor(Decoders.BASE64.decode(entry.substring(separator + 1).trim())));
+            }
+        }
+
+        parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        String keyId = header.getKeyId();
+                        if (keyId == null) {
+                            return signingKey;
+                        }
+                        SecretKey key = verificationKeys.get(keyId);
+                        if (key == null) {
+                            throw new JwtException("Unknown signing key id: " + keyId);
+                        }
+                        return key;
+                    }
+                })
+                .build();
+
+        verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new Expiry<TokenDigest, Claims>() {
+                    @Override
+                    public long expireAfterCreate(TokenDigest key, Claims claims, long currentTime) {
+                        return remainingNanos(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(TokenDigest key, Claims claims, long currentTime, long currentDuration) {
+                        return remainingNanos(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(TokenDigest key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Start a token signed with the current key
+     */
+    public JwtBuilder builder() {
+        return Jwts.builder()
+                .header().keyId(currentKeyId).and()
+                .signWith(signingKey, Jwts.SIG.HS256);
+    }
+
+    /**
+     * Verify a token and return its claims.
+     *
+     * @throws ExpiredJwtException if the token has expired
+     * @throws JwtException        if the token is malformed or its signature does not match
+     */
+    public Claims verify(String token) {
+        TokenDigest key = TokenDigest.of(token);
+        Claims cached = verifiedClaims.getIfPresent(key);
+        if (cached != null) {
+            // Cache expiry is approximate; the exp claim is authoritative
+            if (cached.getExpiration() != null && cached.getExpiration().before(new Date())) {
+                verifiedClaims.invalidate(key);
+                throw new ExpiredJwtException(null, cached, "JWT expired at " + cached.getExpiration());
+            }
+            return cached;
+        }
+
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        verifiedClaims.put(key, claims);
+        return claims;
+    }
+
+    /**
+     * Drop a token's cached claims (e.g. once it has been revoked)
+     */
+    public void evict(String token) {
+        verifiedClaims.invalidate(TokenDigest.of(token));
+    }
+
+    private static long remainingNanos(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return TimeUnit.MINUTES.toNanos(5);
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiration.getTime() - System.currentTimeMillis()));
+    }
+}
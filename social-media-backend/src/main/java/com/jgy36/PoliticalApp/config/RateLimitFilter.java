@@ -0,0 +1,102 @@
+package com.jgy36.PoliticalApp.config;
+
+import com.jgy36.PoliticalApp.service.RateLimiter;
+import com.jgy36.PoliticalApp.service.RateLimiter.Decision;
+import com.jgy36.PoliticalApp.service.RateLimiter.Policy;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies per-route-group rate limits. Runs after {@link JwtTokenFilter} so authenticated requests
+ * are limited per user id; anonymous ones (login, 2FA) are limited per client IP.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final Policy authPolicy;
+    private final Policy postPolicy;
+    private final Policy messagePolicy;
+    private final Policy swipePolicy;
+
+    public RateLimitFilter(
+            RateLimiter rateLimiter,
+            @Value("${app.rate-limit.auth.capacity:10}") int authCapacity,
+            @Value("${app.rate-limit.auth.refill-per-minute:10}") int authRefill,
+            @Value("${app.rate-limit.posts.capacity:20}") int postCapacity,
+            @Value("${app.rate-limit.posts.refill-per-minute:10}") int postRefill,
+            @Value("${app.rate-limit.messages.capacity:60}") int messageCapacity,
+            @Value("${app.rate-limit.messages.refill-per-minute:60}") int messageRefill,
+            @Value("${app.rate-limit.swipes.capacity:100}") int swipeCapacity,
+            @Value("${app.rate-limit.swipes.refill-per-minute:100}") int swipeRefill) {
+        this.rateLimiter = rateLimiter;
+        this.authPolicy = new Policy("auth", authCapacity, authRefill);
+        this.postPolicy = new Policy("posts", postCapacity, postRefill);
+        this.messagePolicy = new Policy("messages", messageCapacity, messageRefill);
+        this.swipePolicy = new Policy("swipes", swipeCapacity, swipeRefill);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Policy policy = policyFor(request);
+        if (policy == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Decision decision = rateLimiter.tryAcquire(policy, clientKey(request));
+        if (!decision.allowed()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Too Many Requests\",\"message\":\"Rate limit exceeded, retry in "
+                    + decision.retryAfterSeconds() + " seconds\"}");
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    // Only writes and credential checks are limited; reads are left alone
+    private Policy policyFor(HttpServletRequest request) {
+        if (!HttpMethod.POST.matches(request.getMethod())) {
+            return null;
+        }
+        String uri = request.getRequestURI();
+        if (uri.equals("/api/auth/login") || uri.equals("/api/auth/verify-2fa")) {
+            return authPolicy;
+        }
+        if (uri.equals("/api/posts")) {
+            return postPolicy;
+        }
+        if (uri.startsWith("/api/messages/") || uri.equals("/api/messages")) {
+            return messagePolicy;
+        }
+        if (uri.equals("/api/dating/swipe")) {
+            return swipePolicy;
+        }
+        return null;
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof AuthenticatedUser principal) {
+            return "user:" + principal.getId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
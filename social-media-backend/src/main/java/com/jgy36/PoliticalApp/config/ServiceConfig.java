@@ -27,7 +27,10 @@ public class ServiceConfig {
             @Lazy PrivacySettingsService privacySettingsService,
             @Lazy FollowRequestService followRequestService,
             @Lazy PendingUserRepository pendingUserRepository,
-            @Lazy EmailService emailService) {
+            @Lazy EmailService emailService,
+            @Lazy FollowGraph followGraph,
+            @Lazy UserStatsService userStatsService,
+            @Lazy FollowEdgeService followEdgeService) {
 
         return new UserService(
                 userRepository,
@@ -37,7 +40,10 @@ public class ServiceConfig {
                 privacySettingsService,
                 followRequestService,
                 pendingUserRepository,
-                emailService
+                emailService,
+                followGraph,
+                userStatsService,
+                followEdgeService
         );
     }
 }
@@ -38,7 +38,7 @@ public class AccountManagementController {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
 
-        User user = userRepository.findByEmail(email)
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
         boolean isVerified = accountService.isEmailVerified(user.getId());
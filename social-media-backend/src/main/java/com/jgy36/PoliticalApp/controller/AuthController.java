@@ -6,16 +6,22 @@ import com.jgy36.PoliticalApp.dto.LoginRequest;
 import com.jgy36.PoliticalApp.dto.RegisterRequest;
 import com.jgy36.PoliticalApp.dto.TwoFAVerificationRequest;
 import com.jgy36.PoliticalApp.entity.User;
-import com.jgy36.PoliticalApp.entity.UserSecuritySettings;
+import com.jgy36.PoliticalApp.exception.ServiceOverloadedException;
 import com.jgy36.PoliticalApp.repository.UserRepository;
+import com.jgy36.PoliticalApp.service.LoginSessionService;
+import com.jgy36.PoliticalApp.service.LoginSessionService.IssuedTokens;
+import com.jgy36.PoliticalApp.service.RefreshTokenService;
 import com.jgy36.PoliticalApp.service.SecurityService;
 import com.jgy36.PoliticalApp.service.TokenBlacklistService;
+import com.jgy36.PoliticalApp.service.TwoFactorService;
 import com.jgy36.PoliticalApp.service.UserService;
-import jakarta.servlet.http.Cookie;
+import com.jgy36.PoliticalApp.service.UserSettingsInitializer;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,7 +30,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -32,6 +38,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -53,17 +60,28 @@ public class AuthController {
     private final JwtTokenUtil jwtTokenUtil;
     private final TokenBlacklistService tokenBlacklistService;
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
     private final SecurityService securityService;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginSessionService loginSessionService;
+    private final TwoFactorService twoFactorService;
+    private final UserSettingsInitializer settingsInitializer;
 
+    // Only for clients still holding a pre-refresh-token JWT; remove together with legacyRefresh after 2026-11-30
+    @Value("${app.auth.legacy-refresh-enabled:true}")
+    private boolean legacyRefreshEnabled;
 
     public AuthController(UserService userService,
                           AuthenticationManager authenticationManager,
                           JwtTokenUtil jwtTokenUtil,
                           TokenBlacklistService tokenBlacklistService,
                           UserRepository userRepository,
-                          BCryptPasswordEncoder passwordEncoder,
-                          SecurityService securityService) {
+                          PasswordEncoder passwordEncoder,
+                          SecurityService securityService,
+                          RefreshTokenService refreshTokenService,
+                          LoginSessionService loginSessionService,
+                          TwoFactorService twoFactorService,
+                          UserSettingsInitializer settingsInitializer) {
         this.userService = userService;
         this.authenticationManager = authenticationManager;
         this.jwtTokenUtil = jwtTokenUtil;
@@ -71,6 +89,10 @@ public class AuthController {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.securityService = securityService;
+        this.refreshTokenService = refreshTokenService;
+        this.loginSessionService = loginSessionService;
+        this.twoFactorService = twoFactorService;
+        this.settingsInitializer = settingsInitializer;
     }
 
     /**
@@ -96,6 +118,8 @@ public class AuthController {
             responseData.put("email", request.getEmail());
 
             return ResponseEntity.ok(responseData);
+        } catch (ServiceOverloadedException e) {
+            throw e; // ✅ 503 with Retry-After, not a validation failure
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(
                     Map.of(
@@ -155,7 +179,8 @@ public class AuthController {
      */
     // In AuthController.java, modify the loginUser method:
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@RequestBody LoginRequest loginRequest, HttpServletResponse response) {
+    public ResponseEntity<?> loginUser(@RequestBody LoginRequest loginRequest, HttpServletRequest request,
+                                       HttpServletResponse response) {
         // First check if user exists and is verified
         User user = userRepository.findByEmail(loginRequest.getEmail())
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
@@ -181,7 +206,7 @@ public class AuthController {
         // Check if 2FA is enabled for this user
         if (securityService.isTwoFaEnabled(user.getId())) {
             // Generate a temporary token for 2FA verification
-            String tempToken = jwtTokenUtil.generateToken(user.getEmail(), 300); // 5 minutes validity
+            String tempToken = jwtTokenUtil.generateTempToken(user.getEmail()); // 5 minutes validity
 
             // Return response indicating 2FA is required
             Map<String, Object> twoFaResponse = new HashMap<>();
@@ -192,26 +217,8 @@ public class AuthController {
             return ResponseEntity.ok(twoFaResponse);
         }
 
-        // If no 2FA, continue with normal login flow
-        String username = ((org.springframework.security.core.userdetails.User) authentication.getPrincipal()).getUsername();
-        String token = jwtTokenUtil.generateToken(username);
-
-        // Set JWT in HTTP-only cookie
-        Cookie jwtCookie = new Cookie("jwt", token);
-        jwtCookie.setHttpOnly(true);
-        jwtCookie.setSecure(false);
-        jwtCookie.setPath("/");
-        jwtCookie.setMaxAge(24 * 60 * 60);
-        response.addCookie(jwtCookie);
-
-        // Add session identifier cookie
-        String sessionId = UUID.randomUUID().toString();
-        Cookie sessionCookie = new Cookie("session_id", sessionId);
-        sessionCookie.setPath("/");
-        sessionCookie.setMaxAge(24 * 60 * 60);
-        response.addCookie(sessionCookie);
-
-        response.setHeader("Authorization", "Bearer " + token);
+        // If no 2FA, continue with normal login flow: short-lived access token + refresh token
+        IssuedTokens tokens = loginSessionService.startSession(user, request, response);
 
         // Return complete user info
         Map<String, Object> userResponse = new HashMap<>();
@@ -223,62 +230,60 @@ public class AuthController {
         userResponse.put("profileImageUrl", user.getProfileImageUrl());
 
         Map<String, Object> fullResponse = new HashMap<>();
-        fullResponse.put("token", token);
+        fullResponse.put("token", tokens.accessToken());
+        fullResponse.put("refreshToken", tokens.refreshToken());
         fullResponse.put("user", userResponse);
-        fullResponse.put("sessionId", sessionId);
+        fullResponse.put("sessionId", tokens.sessionId());
         fullResponse.put("requires2FA", false);
 
         return ResponseEntity.ok(fullResponse);
     }
 
     @PostMapping("/verify-2fa")
-    public ResponseEntity<?> verify2FA(@RequestBody TwoFAVerificationRequest request, HttpServletResponse response) {
+    public ResponseEntity<?> verify2FA(@RequestBody TwoFAVerificationRequest request, HttpServletRequest httpRequest,
+                                       HttpServletResponse response) {
         try {
-            // Validate the temporary token
-            String email = jwtTokenUtil.getUsernameFromToken(request.getTempToken());
-
-            // Verify token hasn't expired
-            if (jwtTokenUtil.isTokenExpired(request.getTempToken())) {
+            // Validate the temporary token (only a 2FA temp token is accepted here)
+            Claims tempClaims;
+            try {
+                tempClaims = jwtTokenUtil.validateTempToken(request.getTempToken());
+            } catch (RuntimeException e) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of(
                         "success", false,
-                        "message", "Verification token has expired"
+                        "message", e.getMessage()
                 ));
             }
+            String email = tempClaims.getSubject();
 
             // Get user
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-            // Get user's 2FA settings
-            UserSecuritySettings settings = securityService.getUserSecuritySettings(user.getId());
-
-            // Verify the 2FA code
-            if (!securityService.verifyTwoFaCode(settings.getTwoFaSecret(), request.getCode())) {
+            // Verify the 2FA code (throttled per user, each code usable once)
+            TwoFactorService.Verification verification = twoFactorService.verify(user.getId(), request.getCode());
+            if (verification.status() == TwoFactorService.Status.THROTTLED) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(verification.retryAfterSeconds()))
+                        .body(Map.of(
+                                "success", false,
+                                "message", "Too many attempts, please wait before trying again"
+                        ));
+            }
+            if (verification.status() == TwoFactorService.Status.REPLAYED) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of(
+                        "success", false,
+                        "message", "This code has already been used, wait for the next one"
+                ));
+            }
+            if (!verification.isValid()) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of(
                         "success", false,
                         "message", "Invalid verification code"
                 ));
             }
 
-            // Generate real JWT token
-            String token = jwtTokenUtil.generateToken(email);
-
-            // Set JWT in HTTP-only cookie
-            Cookie jwtCookie = new Cookie("jwt", token);
-            jwtCookie.setHttpOnly(true);
-            jwtCookie.setSecure(false);
-            jwtCookie.setPath("/");
-            jwtCookie.setMaxAge(24 * 60 * 60);
-            response.addCookie(jwtCookie);
-
-            // Add session identifier cookie
-            String sessionId = UUID.randomUUID().toString();
-            Cookie sessionCookie = new Cookie("session_id", sessionId);
-            sessionCookie.setPath("/");
-            sessionCookie.setMaxAge(24 * 60 * 60);
-            response.addCookie(sessionCookie);
-
-            response.setHeader("Authorization", "Bearer " + token);
+            // Start the real session
+            IssuedTokens tokens = loginSessionService.startSession(user, httpRequest, response);
 
             // Return complete user info
             Map<String, Object> userResponse = new HashMap<>();
@@ -290,9 +295,10 @@ public class AuthController {
             userResponse.put("profileImageUrl", user.getProfileImageUrl());
 
             Map<String, Object> fullResponse = new HashMap<>();
-            fullResponse.put("token", token);
+            fullResponse.put("token", tokens.accessToken());
+            fullResponse.put("refreshToken", tokens.refreshToken());
             fullResponse.put("user", userResponse);
-            fullResponse.put("sessionId", sessionId);
+            fullResponse.put("sessionId", tokens.sessionId());
             fullResponse.put("success", true);
 
             return ResponseEntity.ok(fullResponse);
@@ -310,17 +316,7 @@ public class AuthController {
     @PostMapping("/logout")
     public ResponseEntity<?> logout(HttpServletRequest request, HttpServletResponse response) {
         // Get token from cookie
-        Cookie[] cookies = request.getCookies();
-        String token = null;
-
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if ("jwt".equals(cookie.getName())) {
-                    token = cookie.getValue();
-                    break;
-                }
-            }
-        }
+        String token = LoginSessionService.readCookie(request, LoginSessionService.ACCESS_COOKIE);
 
         // If no cookie, try Authorization header
         if (token == null) {
@@ -330,29 +326,36 @@ public class AuthController {
             }
         }
 
-        // Blacklist the token if we found one
+        String sessionId = LoginSessionService.readCookie(request, LoginSessionService.SESSION_COOKIE);
+
+        // Blacklist the token if we found one (it may already be expired, which is fine)
         if (token != null) {
-            long expiration = jwtTokenUtil.getExpirationFromToken(token);
-            tokenBlacklistService.blacklistToken(token, expiration - System.currentTimeMillis());
+            try {
+                long expiration = jwtTokenUtil.getExpirationFromToken(token);
+                tokenBlacklistService.blacklistToken(token, expiration - System.currentTimeMillis());
+                String tokenSessionId = jwtTokenUtil.extractClaim(token, claims -> claims.get("sid", String.class));
+                if (tokenSessionId != null) {
+                    sessionId = tokenSessionId;
+                }
+            } catch (Exception e) {
+                logger.debug("Logout with unusable access token: {}", e.getMessage());
+            }
         }
 
-        // Clear cookies regardless
-        Cookie jwtCookie = new Cookie("jwt", null);
-        jwtCookie.setHttpOnly(true);
-        jwtCookie.setPath("/");
-        jwtCookie.setMaxAge(0); // Delete the cookie
-        response.addCookie(jwtCookie);
+        // ✅ End the refresh token family so the session cannot be renewed
+        if (sessionId != null) {
+            refreshTokenService.revokeSession(sessionId);
+        }
 
-        Cookie sessionCookie = new Cookie("session_id", null);
-        sessionCookie.setPath("/");
-        sessionCookie.setMaxAge(0); // Delete the cookie
-        response.addCookie(sessionCookie);
+        // Clear cookies regardless
+        loginSessionService.clearCookies(response);
 
         return ResponseEntity.ok("Logged out successfully");
     }
 
     @PostMapping("/google-login")
-    public ResponseEntity<AuthResponse> googleLogin(@RequestBody Map<String, String> userData, HttpServletResponse response) {
+    public ResponseEntity<AuthResponse> googleLogin(@RequestBody Map<String, String> userData, HttpServletRequest request,
+                                                    HttpServletResponse response) {
         String email = userData.get("email");
         String name = userData.get("name");
 
@@ -368,50 +371,69 @@ public class AuthController {
             user.setEmail(email);
             user.setUsername(name);
             user.setPassword(passwordEncoder.encode(UUID.randomUUID().toString())); // Random password
-            userRepository.save(user);
+            user = userRepository.save(user);
+            settingsInitializer.initializeSettings(user);
         }
 
-        // ✅ Generate JWT token for authentication
-        String token = jwtTokenUtil.generateToken(user.getEmail());
-
-        // ✅ Set JWT in HTTP-only cookie
-        Cookie jwtCookie = new Cookie("jwt", token);
-        jwtCookie.setHttpOnly(true);
-        jwtCookie.setSecure(false); // Set to true in production with HTTPS
-        jwtCookie.setPath("/");
-        jwtCookie.setMaxAge(24 * 60 * 60); // 24 hours in seconds
-        response.addCookie(jwtCookie);
-
-        // ✅ Add a session identifier cookie (not HTTP-only so JS can read it)
-        String sessionId = UUID.randomUUID().toString();
-        Cookie sessionCookie = new Cookie("session_id", sessionId);
-        sessionCookie.setPath("/");
-        sessionCookie.setMaxAge(24 * 60 * 60); // 24 hours
-        response.addCookie(sessionCookie);
+        // ✅ Start a session (access token + refresh token cookies)
+        IssuedTokens tokens = loginSessionService.startSession(user, request, response);
 
         // Return token for API clients
-        AuthResponse authResponse = new AuthResponse(token);
+        AuthResponse authResponse = new AuthResponse(tokens.accessToken());
         return ResponseEntity.ok(authResponse);
     }
 
     /**
-     * Improved refresh token endpoint that includes full user data
+     * ✅ Refresh endpoint: rotates the opaque refresh token (cookie, or "refreshToken" in the body for API
+     * clients) and issues a new short-lived access token for the same session.
+     * Presenting a refresh token that was already rotated revokes the whole session.
      */
     @PostMapping("/refresh")
-    public ResponseEntity<?> refreshToken(HttpServletRequest request, HttpServletResponse response) {
-        // Get token from cookie
-        Cookie[] cookies = request.getCookies();
-        String token = null;
-
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if ("jwt".equals(cookie.getName())) {
-                    token = cookie.getValue();
-                    break;
-                }
+    public ResponseEntity<?> refreshToken(@RequestBody(required = false) Map<String, String> body,
+                                          HttpServletRequest request, HttpServletResponse response) {
+        String refreshToken = LoginSessionService.readCookie(request, LoginSessionService.REFRESH_COOKIE);
+        if (refreshToken == null && body != null) {
+            refreshToken = body.get("refreshToken");
+        }
+
+        if (refreshToken == null) {
+            // Sessions started before refresh tokens existed only hold a JWT
+            if (legacyRefreshEnabled) {
+                return legacyRefresh(request, response);
             }
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("No refresh token provided");
+        }
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        if (rotation.status() == RefreshTokenService.Status.REUSED) {
+            loginSessionService.clearCookies(response);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Refresh token reuse detected, session revoked");
+        }
+        if (rotation.status() != RefreshTokenService.Status.OK) {
+            loginSessionService.clearCookies(response);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
         }
 
+        Optional<User> user = userRepository.findByEmail(rotation.email());
+        if (user.isEmpty()) {
+            refreshTokenService.revokeSession(rotation.sessionId());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not found");
+        }
+
+        IssuedTokens tokens = loginSessionService.continueSession(
+                rotation.email(), rotation.sessionId(), rotation.refreshToken(), response);
+        return ResponseEntity.ok(refreshResponse(user.get(), tokens));
+    }
+
+    /**
+     * Refresh from a still valid JWT issued before refresh tokens existed (no "sid" claim). Starts a proper
+     * session so the client moves to refresh tokens. Session-bound access tokens and 2FA temp tokens are
+     * never accepted: otherwise a stolen access token could be renewed forever, and 2FA skipped.
+     */
+    private ResponseEntity<?> legacyRefresh(HttpServletRequest request, HttpServletResponse response) {
+        // Get token from cookie
+        String token = LoginSessionService.readCookie(request, LoginSessionService.ACCESS_COOKIE);
+
         // If no cookie, try Authorization header
         if (token == null) {
             String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
@@ -423,7 +445,12 @@ public class AuthController {
 
         try {
             // Validate existing token before refreshing
-            String username = jwtTokenUtil.getUsernameFromToken(token);
+            Claims claims = jwtTokenUtil.extractClaim(token, Function.identity());
+            String username = claims.getSubject();
+
+            if (claims.get("sid") != null || claims.get("type") != null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Token cannot be refreshed");
+            }
 
             // Check if token is blacklisted
             if (tokenBlacklistService.isTokenBlacklisted(token)) {
@@ -435,50 +462,44 @@ public class AuthController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Token has expired");
             }
 
-            // Generate new token
-            String newToken = jwtTokenUtil.generateToken(username);
+            // "Log out everywhere" revokes every token issued before it
+            if (tokenBlacklistService.isRevokedByWatermark(username, claims.getIssuedAt())) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Token has been revoked");
+            }
 
             User user = userRepository.findByEmail(username)
                     .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-            // ✅ Set new JWT in HTTP-only cookie
-            Cookie jwtCookie = new Cookie("jwt", newToken);
-            jwtCookie.setHttpOnly(true);
-            jwtCookie.setSecure(false); // Set to true in production with HTTPS
-            jwtCookie.setPath("/");
-            jwtCookie.setMaxAge(24 * 60 * 60); // 24 hours in seconds
-            response.addCookie(jwtCookie);
-
-            // ✅ Set a new session ID
-            String sessionId = UUID.randomUUID().toString();
-            Cookie sessionCookie = new Cookie("session_id", sessionId);
-            sessionCookie.setPath("/");
-            sessionCookie.setMaxAge(24 * 60 * 60); // 24 hours
-            response.addCookie(sessionCookie);
-
-            // Also set the new token as Authorization header for API clients
-            response.setHeader("Authorization", "Bearer " + newToken);
-
-            // Return both token & detailed user info
-            Map<String, Object> userResponse = new HashMap<>();
-            userResponse.put("id", user.getId());
-            userResponse.put("username", user.getUsername());
-            userResponse.put("email", user.getEmail());
-            userResponse.put("displayName", user.getDisplayName());
-            userResponse.put("bio", user.getBio());
-            userResponse.put("profileImageUrl", user.getProfileImageUrl());
+            IssuedTokens tokens = loginSessionService.startSession(user, request, response);
 
-            Map<String, Object> fullResponse = new HashMap<>();
-            fullResponse.put("token", newToken);
-            fullResponse.put("user", userResponse);
-            fullResponse.put("sessionId", sessionId);
+            // The old long-lived token is replaced, so it should not stay usable
+            long expiration = jwtTokenUtil.getExpirationFromToken(token);
+            tokenBlacklistService.blacklistToken(token, expiration - System.currentTimeMillis());
 
-            return ResponseEntity.ok(fullResponse);
+            return ResponseEntity.ok(refreshResponse(user, tokens));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token");
         }
     }
 
+    private static Map<String, Object> refreshResponse(User user, IssuedTokens tokens) {
+        // Return both token & detailed user info
+        Map<String, Object> userResponse = new HashMap<>();
+        userResponse.put("id", user.getId());
+        userResponse.put("username", user.getUsername());
+        userResponse.put("email", user.getEmail());
+        userResponse.put("displayName", user.getDisplayName());
+        userResponse.put("bio", user.getBio());
+        userResponse.put("profileImageUrl", user.getProfileImageUrl());
+
+        Map<String, Object> fullResponse = new HashMap<>();
+        fullResponse.put("token", tokens.accessToken());
+        fullResponse.put("refreshToken", tokens.refreshToken());
+        fullResponse.put("user", userResponse);
+        fullResponse.put("sessionId", tokens.sessionId());
+        return fullResponse;
+    }
+
     /**
      * Check username availability via POST with detailed logging
      */
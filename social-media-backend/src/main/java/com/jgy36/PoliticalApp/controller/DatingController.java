@@ -1,5 +1,6 @@
 package com.jgy36.PoliticalApp.controller;
 
+import com.jgy36.PoliticalApp.dto.CursorPageDTO;
 import com.jgy36.PoliticalApp.entity.*;
 import com.jgy36.PoliticalApp.service.DatingService;
 import com.jgy36.PoliticalApp.service.UserService;
@@ -35,13 +36,25 @@ public class DatingController {
         return ResponseEntity.ok(profile);
     }
 
+    // First page of the candidate deck, nearest first; swiped profiles drop out, so fetching again continues the deck
     @GetMapping("/potential-matches")
     public ResponseEntity<List<DatingProfile>> getPotentialMatches(Authentication authentication) {
         User user = userService.findByUsername(authentication.getName())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        List<DatingProfile> matches = datingService.getPotentialMatches(user);
-        return ResponseEntity.ok(matches);
+        return ResponseEntity.ok(datingService.getPotentialMatches(user, null, DatingService.MAX_PAGE_SIZE).getItems());
+    }
+
+    // Cursor-paginated candidate deck, nearest first; pass nextCursor from the previous page to continue
+    @GetMapping("/potential-matches/page")
+    public ResponseEntity<CursorPageDTO<DatingProfile>> getPotentialMatchPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        User user = userService.findByUsername(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return ResponseEntity.ok(datingService.getPotentialMatches(user, cursor, limit));
     }
 
     @PostMapping("/swipe")
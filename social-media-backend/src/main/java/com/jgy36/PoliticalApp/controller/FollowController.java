@@ -1,5 +1,7 @@
 package com.jgy36.PoliticalApp.controller;
 
+import com.jgy36.PoliticalApp.dto.CursorPageDTO;
+import com.jgy36.PoliticalApp.dto.FollowUserDTO;
 import com.jgy36.PoliticalApp.service.FollowService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -63,17 +65,37 @@ public class FollowController {
         ));
     }
 
-    // ✅ NEW: Get followers list
+    // ✅ NEW: Get followers list, one numbered page (from 1) at a time
     @GetMapping("/followers/{userId}")
-    public ResponseEntity<List<Map<String, Object>>> getFollowers(@PathVariable Long userId) {
-        List<Map<String, Object>> followers = followService.getFollowers(userId);
+    public ResponseEntity<List<FollowUserDTO>> getFollowers(@PathVariable Long userId,
+                                                           @RequestParam(defaultValue = "1") int page) {
+        List<FollowUserDTO> followers = followService.getFollowers(userId, page);
         return ResponseEntity.ok(followers);
     }
 
-    // ✅ NEW: Get following list
+    // ✅ NEW: Get following list, one numbered page (from 1) at a time
     @GetMapping("/following/{userId}")
-    public ResponseEntity<List<Map<String, Object>>> getFollowing(@PathVariable Long userId) {
-        List<Map<String, Object>> following = followService.getFollowing(userId);
+    public ResponseEntity<List<FollowUserDTO>> getFollowing(@PathVariable Long userId,
+                                                           @RequestParam(defaultValue = "1") int page) {
+        List<FollowUserDTO> following = followService.getFollowing(userId, page);
         return ResponseEntity.ok(following);
     }
+
+    // ✅ Cursor-paginated followers; pass nextCursor from the previous page to continue
+    @GetMapping("/followers/{userId}/page")
+    public ResponseEntity<CursorPageDTO<FollowUserDTO>> getFollowerPage(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(followService.getFollowerPage(userId, cursor, limit));
+    }
+
+    // ✅ Cursor-paginated following list
+    @GetMapping("/following/{userId}/page")
+    public ResponseEntity<CursorPageDTO<FollowUserDTO>> getFollowingPage(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(followService.getFollowingPage(userId, cursor, limit));
+    }
 }
@@ -103,7 +103,7 @@ public class MessageController {
     public ResponseEntity<List<MessageResponse>> getConversationMessages(@PathVariable Long conversationId) {
         // Get the current user
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User currentUser = userRepository.findByEmail(auth.getName())
+        User currentUser = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalStateException("User not found"));
 
         // Get the conversation
@@ -171,7 +171,7 @@ public class MessageController {
 
         // Get the current user
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User currentUser = userRepository.findByEmail(auth.getName())
+        User currentUser = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalStateException("User not found"));
 
         // Get the receiver
@@ -194,7 +194,7 @@ public class MessageController {
     public ResponseEntity<Map<String, Long>> getUnreadMessagesCount() {
         // Get the current user
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User currentUser = userRepository.findByEmail(auth.getName())
+        User currentUser = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalStateException("User not found"));
 
         // Get unread count
@@ -210,7 +210,7 @@ public class MessageController {
     public ResponseEntity<Void> markConversationAsRead(@PathVariable Long conversationId) {
         // Get the current user
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User currentUser = userRepository.findByEmail(auth.getName())
+        User currentUser = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalStateException("User not found"));
 
         // Get the conversation
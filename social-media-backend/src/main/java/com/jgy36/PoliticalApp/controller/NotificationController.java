@@ -1,5 +1,6 @@
 package com.jgy36.PoliticalApp.controller;
 
+import com.jgy36.PoliticalApp.dto.CursorPageDTO;
 import com.jgy36.PoliticalApp.entity.Notification;
 import com.jgy36.PoliticalApp.entity.User;
 import com.jgy36.PoliticalApp.entity.UserNotificationPreferences;
@@ -7,11 +8,13 @@ import com.jgy36.PoliticalApp.repository.NotificationRepository;
 import com.jgy36.PoliticalApp.repository.UserNotificationPreferencesRepository;
 import com.jgy36.PoliticalApp.repository.UserRepository;
 import com.jgy36.PoliticalApp.service.NotificationService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -33,11 +36,27 @@ public class NotificationController {
         this.preferencesRepository = preferencesRepository;
     }
 
-    // ✅ Get Logged-in User's Notifications
+    // ✅ Get Logged-in User's Notifications, one numbered page (from 1) at a time
     @GetMapping
     @PreAuthorize("hasAuthority('ROLE_USER') or hasAuthority('ROLE_ADMIN')")
-    public ResponseEntity<List<Notification>> getUserNotifications() {
-        return ResponseEntity.ok(notificationService.getUserNotifications());
+    public ResponseEntity<List<Notification>> getUserNotifications(@RequestParam(defaultValue = "1") int page) {
+        return ResponseEntity.ok(notificationService.getUserNotifications(page));
+    }
+
+    // ✅ Cursor-paginated notifications; pass nextCursor from the previous page to continue
+    @GetMapping("/page")
+    @PreAuthorize("hasAuthority('ROLE_USER') or hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<CursorPageDTO<Notification>> getNotificationPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(notificationService.getNotificationPage(cursor, limit));
+    }
+
+    // ✅ Live stream of new notifications and unread count changes (Server-Sent Events)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('ROLE_USER') or hasAuthority('ROLE_ADMIN')")
+    public SseEmitter streamNotifications(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return notificationService.openStream(lastEventId);
     }
 
     // ✅ Mark Notification as Read
@@ -61,10 +80,10 @@ public class NotificationController {
     @PreAuthorize("hasAuthority('ROLE_USER') or hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<Map<String, Integer>> getUnreadCount() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByEmail(auth.getName())
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        int count = notificationRepository.findByRecipientAndReadFalse(user).size();
+        int count = (int) notificationService.getUnreadCount(user.getId());
         return ResponseEntity.ok(Map.of("count", count));
     }
 
@@ -73,7 +92,7 @@ public class NotificationController {
     @PreAuthorize("hasAuthority('ROLE_USER') or hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<Map<String, Object>> debugNotifications() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByEmail(auth.getName())
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
         // Get user notification preferences
@@ -5,6 +5,7 @@ import com.jgy36.PoliticalApp.entity.ConnectedAccount;
 import com.jgy36.PoliticalApp.entity.User;
 import com.jgy36.PoliticalApp.repository.ConnectedAccountRepository;
 import com.jgy36.PoliticalApp.repository.UserRepository;
+import com.jgy36.PoliticalApp.service.LoginSessionService;
 import com.jgy36.PoliticalApp.utils.OAuth2Util;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,8 +22,6 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 
-import java.util.UUID;
-
 @Controller
 @RequestMapping("/oauth2")
 public class OAuth2Controller {
@@ -32,6 +31,7 @@ public class OAuth2Controller {
     private final ConnectedAccountRepository connectedAccountRepository;
     private final JwtTokenUtil jwtTokenUtil;
     private final OAuth2Util oAuth2Util;
+    private final LoginSessionService loginSessionService;
 
     @Value("${app.frontend-url}")
     private String frontendUrl;
@@ -40,11 +40,13 @@ public class OAuth2Controller {
             UserRepository userRepository,
             ConnectedAccountRepository connectedAccountRepository,
             JwtTokenUtil jwtTokenUtil,
-            OAuth2Util oAuth2Util) {
+            OAuth2Util oAuth2Util,
+            LoginSessionService loginSessionService) {
         this.userRepository = userRepository;
         this.connectedAccountRepository = connectedAccountRepository;
         this.jwtTokenUtil = jwtTokenUtil;
         this.oAuth2Util = oAuth2Util;
+        this.loginSessionService = loginSessionService;
     }
 
     @GetMapping("/login/success")
@@ -141,23 +143,8 @@ public class OAuth2Controller {
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new IllegalStateException("User not found after OAuth2 authentication"));
 
-            // Generate JWT token
-            String token = jwtTokenUtil.generateToken(user.getEmail());
-
-            // Set JWT in HTTP-only cookie
-            Cookie jwtCookie = new Cookie("jwt", token);
-            jwtCookie.setHttpOnly(true);
-            jwtCookie.setSecure(false); // Set to true in production with HTTPS
-            jwtCookie.setPath("/");
-            jwtCookie.setMaxAge(24 * 60 * 60); // 24 hours in seconds
-            response.addCookie(jwtCookie);
-
-            // Add a session identifier cookie
-            String sessionId = UUID.randomUUID().toString();
-            Cookie sessionCookie = new Cookie("session_id", sessionId);
-            sessionCookie.setPath("/");
-            sessionCookie.setMaxAge(24 * 60 * 60); // 24 hours
-            response.addCookie(sessionCookie);
+            // Start a session: access token, refresh token and session cookies
+            loginSessionService.startSession(user, request, response);
 
             // Redirect to frontend with success
             return "redirect:" + frontendUrl + "/login?oauth=success";
@@ -6,11 +6,9 @@ import com.jgy36.PoliticalApp.dto.PostRequest;
 import com.jgy36.PoliticalApp.entity.MediaAttachment;
 import com.jgy36.PoliticalApp.entity.Post;
 import com.jgy36.PoliticalApp.entity.User;
-import com.jgy36.PoliticalApp.exception.ResourceNotFoundException;
 import com.jgy36.PoliticalApp.repository.UserRepository;
+import com.jgy36.PoliticalApp.service.FollowGraph;
 import com.jgy36.PoliticalApp.service.PostService;
-import com.jgy36.PoliticalApp.service.PrivacySettingsService;
-import com.jgy36.PoliticalApp.service.UserService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -36,15 +34,13 @@ public class PostController {
 
     private final PostService postService;
     private final UserRepository userRepository;// ✅ Ensure this is declared
-    private final UserService userService; // ✅ Ensure this is declared
-    private final PrivacySettingsService privacySettingsService; // ✅ Ensure this is declared
+    private final FollowGraph followGraph;
 
 
-    public PostController(PostService postService, UserRepository userRepository, UserService userService, PrivacySettingsService privacySettingsService) {
+    public PostController(PostService postService, UserRepository userRepository, FollowGraph followGraph) {
         this.postService = postService;
         this.userRepository = userRepository;
-        this.userService = userService;
-        this.privacySettingsService = privacySettingsService;
+        this.followGraph = followGraph;
     }
 
     // ✅ Get all posts
@@ -70,7 +66,7 @@ public class PostController {
         }
 
         String email = auth.getName();
-        Optional<User> userOpt = userRepository.findByEmail(email);
+        Optional<User> userOpt = userRepository.findByPrincipal(auth);
 
         if (userOpt.isEmpty()) {
             System.out.println("🚨 User not found in DB! Returning 401.");
@@ -78,9 +74,7 @@ public class PostController {
         }
 
         User user = userOpt.get();
-        List<Long> followingIds = user.getFollowing().stream()
-                .map(User::getId)
-                .collect(Collectors.toList());
+        List<Long> followingIds = followGraph.getFollowingIds(user.getId());
 
         if (followingIds.isEmpty()) {
             System.out.println("✅ User follows no one. Returning empty array.");
@@ -216,37 +210,7 @@ public class PostController {
     // In PostController.java
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<PostDTO>> getUserPosts(@PathVariable Long userId) {
-        // Get current user (if authenticated)
-        User currentUser = null;
-        try {
-            currentUser = userService.getCurrentUser();
-            System.out.println("DEBUG: Current user ID: " + currentUser.getId() +
-                    " (type: " + currentUser.getId().getClass().getName() + ")");
-            System.out.println("DEBUG: Request userId: " + userId +
-                    " (type: " + userId.getClass().getName() + ")");
-        } catch (Exception e) {
-            System.out.println("DEBUG: Failed to get current user: " + e.getMessage());
-            // User not authenticated
-        }
-
-        // Check if target user account is private
-        boolean isPrivate = privacySettingsService.isAccountPrivate(userId);
-        boolean isOwner = currentUser != null && currentUser.getId().equals(userId);
-        boolean isFollowing = false;
-
-        // Check following status if user is authenticated
-        if (currentUser != null) {
-            User targetUser = userRepository.findById(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-            isFollowing = currentUser.getFollowing().contains(targetUser);
-        }
-
-        // If private and not owner and not following, return empty list
-        if (isPrivate && !isOwner && !isFollowing) {
-            return ResponseEntity.ok(Collections.emptyList());
-        }
-
-        // Otherwise return posts as normal
+        // Only the posts the current viewer may see: owner, public profile, follower, or match limits
         List<PostDTO> postDTOs = postService.getPostsByUserId(userId);
         return ResponseEntity.ok(postDTOs);
     }
@@ -336,7 +300,7 @@ public class PostController {
         }
 
         String email = auth.getName();
-        Optional<User> userOpt = userRepository.findByEmail(email);
+        Optional<User> userOpt = userRepository.findByPrincipal(auth);
 
         if (userOpt.isEmpty()) {
             System.out.println("🚨 User not found in DB! Returning 401.");
@@ -1,17 +1,27 @@
 package com.jgy36.PoliticalApp.controller;
 
+import com.jgy36.PoliticalApp.config.JwtTokenFilter;
 import com.jgy36.PoliticalApp.dto.ChangePasswordRequest;
 import com.jgy36.PoliticalApp.dto.VerifyTwoFaRequest;
+import com.jgy36.PoliticalApp.entity.User;
 import com.jgy36.PoliticalApp.entity.UserSession;
+import com.jgy36.PoliticalApp.repository.UserRepository;
+import com.jgy36.PoliticalApp.service.ActivityTracker;
+import com.jgy36.PoliticalApp.service.LoginSessionService;
+import com.jgy36.PoliticalApp.service.LoginSessionService.IssuedTokens;
 import com.jgy36.PoliticalApp.service.SecurityService;
+import com.jgy36.PoliticalApp.service.TwoFactorService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,9 +31,19 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/users")
 public class SecurityController {
     private final SecurityService securityService;
-
-    public SecurityController(SecurityService securityService) {
+    private final ActivityTracker activityTracker;
+    private final TwoFactorService twoFactorService;
+    private final LoginSessionService loginSessionService;
+    private final UserRepository userRepository;
+
+    public SecurityController(SecurityService securityService, ActivityTracker activityTracker,
+                              TwoFactorService twoFactorService, LoginSessionService loginSessionService,
+                              UserRepository userRepository) {
         this.securityService = securityService;
+        this.twoFactorService = twoFactorService;
+        this.activityTracker = activityTracker;
+        this.loginSessionService = loginSessionService;
+        this.userRepository = userRepository;
     }
 
     /**
@@ -46,26 +66,15 @@ public class SecurityController {
      */
     @PostMapping("/2fa/setup")
     public ResponseEntity<?> setupTwoFa() {
-        String secret = securityService.generateTwoFaSecret();
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String userEmail = auth.getName();
-
-        // Generate QR code URL with proper encoding
-        String otpAuth = String.format(
-                "otpauth://totp/PoliticalApp:%s?secret=%s&issuer=PoliticalApp&algorithm=SHA1&digits=6&period=30",
-                URLEncoder.encode(userEmail, StandardCharsets.UTF_8),
-                secret
-        );
+        Long userId = securityService.getCurrentUserSecuritySettings().getUserId();
 
-        // Use Google Charts API with proper URL encoding
-        String qrCodeUrl = String.format(
-                "https://chart.googleapis.com/chart?cht=qr&chs=300x300&chld=L|0&chl=%s",
-                URLEncoder.encode(otpAuth, StandardCharsets.UTF_8)
-        );
+        // QR code is rendered locally (the secret never leaves the server) and reused until enrollment ends
+        TwoFactorService.Enrollment enrollment = twoFactorService.startEnrollment(userId, auth.getName());
 
         Map<String, Object> response = new HashMap<>();
-        response.put("secretKey", secret);
-        response.put("qrCodeUrl", qrCodeUrl);
+        response.put("secretKey", enrollment.secret());
+        response.put("qrCodeUrl", enrollment.qrCodeDataUri());
 
         return ResponseEntity.ok(response);
     }
@@ -75,15 +84,20 @@ public class SecurityController {
      */
     @PostMapping("/2fa/verify")
     public ResponseEntity<?> verifyTwoFa(@RequestBody VerifyTwoFaRequest request) {
-        boolean isCodeValid = securityService.verifyTwoFaCode(request.getSecret(), request.getCode());
+        Long userId = securityService.getCurrentUserSecuritySettings().getUserId();
+        TwoFactorService.Verification verification =
+                twoFactorService.verifyEnrollment(userId, request.getSecret(), request.getCode());
 
-        if (!isCodeValid) {
+        if (verification.status() == TwoFactorService.Status.THROTTLED) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(verification.retryAfterSeconds()))
+                    .body(Map.of("success", false, "message", "Too many attempts, please wait before trying again"));
+        }
+        if (!verification.isValid()) {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Invalid verification code"));
         }
 
         // Enable 2FA for the user
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        Long userId = securityService.getCurrentUserSecuritySettings().getUserId();
         securityService.enableTwoFa(userId, request.getSecret());
 
         return ResponseEntity.ok(Map.of("success", true, "message", "Two-factor authentication enabled successfully"));
@@ -102,11 +116,12 @@ public class SecurityController {
     }
 
     /**
-     * Change password
+     * Change password. Every session ends and every token already issued is revoked; the caller
+     * continues on a new session, returned like a login.
      */
     @PutMapping("/password")
-    public ResponseEntity<?> changePassword(@RequestBody ChangePasswordRequest request) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    public ResponseEntity<?> changePassword(@RequestBody ChangePasswordRequest request,
+                                            HttpServletRequest httpRequest, HttpServletResponse response) {
         Long userId = securityService.getCurrentUserSecuritySettings().getUserId();
 
         boolean success = securityService.changePassword(userId, request.getCurrentPassword(), request.getNewPassword());
@@ -115,7 +130,18 @@ public class SecurityController {
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Current password is incorrect"));
         }
 
-        return ResponseEntity.ok(Map.of("success", true, "message", "Password changed successfully"));
+        // ✅ Anyone holding a token from before the change is logged out
+        securityService.terminateAllSessions(userId);
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        IssuedTokens tokens = loginSessionService.startSession(user, httpRequest, response);
+
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Password changed successfully",
+                "token", tokens.accessToken(),
+                "refreshToken", tokens.refreshToken(),
+                "sessionId", tokens.sessionId()));
     }
 
     /**
@@ -135,7 +161,9 @@ public class SecurityController {
                     dto.put("os", session.getOs());
                     dto.put("ipAddress", session.getIpAddress());
                     dto.put("location", session.getLocation());
-                    dto.put("lastActive", session.getLastActive().toString());
+                    // ✅ Includes activity not yet flushed to the DB
+                    LocalDateTime lastActive = activityTracker.getSessionLastActive(session.getId(), session.getLastActive());
+                    dto.put("lastActive", lastActive != null ? lastActive.toString() : null);
                     return dto;
                 })
                 .collect(Collectors.toList());
@@ -151,14 +179,33 @@ public class SecurityController {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         Long userId = securityService.getCurrentUserSecuritySettings().getUserId();
 
-        // Get the current session ID from request
-        String currentSessionId = request.getSession().getId();
+        // Session of the access token used for this request (set by JwtTokenFilter)
+        String currentSessionId = (String) request.getAttribute(JwtTokenFilter.SESSION_ID_ATTRIBUTE);
+        // Tokens from before sessions had ids can't tell which session to keep; logout-everywhere covers them
+        if (currentSessionId == null) {
+            return ResponseEntity.badRequest().body(Map.of("success", false,
+                    "message", "Current session unknown; log in again or use logout-everywhere"));
+        }
 
         securityService.terminateAllSessionsExceptCurrent(userId, currentSessionId);
 
         return ResponseEntity.ok(Map.of("success", true, "message", "Logged out from all other devices"));
     }
 
+    /**
+     * Logout from every session, this one included (e.g. after a suspected account compromise).
+     * Access tokens already issued stop working right away.
+     */
+    @PostMapping("/sessions/logout-everywhere")
+    public ResponseEntity<?> logoutEverywhere(HttpServletResponse response) {
+        Long userId = securityService.getCurrentUserSecuritySettings().getUserId();
+
+        securityService.terminateAllSessions(userId);
+        loginSessionService.clearCookies(response);
+
+        return ResponseEntity.ok(Map.of("success", true, "message", "Logged out from all devices"));
+    }
+
     /**
      * Terminate a specific session
      */
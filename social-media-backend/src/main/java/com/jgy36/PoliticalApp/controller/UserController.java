@@ -2,10 +2,10 @@ package com.jgy36.PoliticalApp.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jgy36.PoliticalApp.config.AuthenticatedUser;
 import com.jgy36.PoliticalApp.dto.PostDTO;
 import com.jgy36.PoliticalApp.dto.UserProfileDTO;
 import com.jgy36.PoliticalApp.entity.User;
-import com.jgy36.PoliticalApp.entity.UserPrivacySettings;
 import com.jgy36.PoliticalApp.exception.ResourceNotFoundException;
 import com.jgy36.PoliticalApp.repository.UserRepository;
 import com.jgy36.PoliticalApp.service.*;
@@ -38,16 +38,24 @@ public class UserController {
     private final FollowRequestService followRequestService;
     private final UserService userService;
     private final PrivacySettingsService privacySettingsService;
+    private final FollowGraph followGraph;
+    private final UserStatsService userStatsService;
+    private final FollowSuggestionService followSuggestionService;
+    private final FollowEdgeService followEdgeService;
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
 
-    public UserController(UserRepository userRepository, FollowService followService, PostService postService, FollowRequestService followRequestService, UserService userService, PrivacySettingsService privacySettingsService) {
+    public UserController(UserRepository userRepository, FollowService followService, PostService postService, FollowRequestService followRequestService, UserService userService, PrivacySettingsService privacySettingsService, FollowGraph followGraph, UserStatsService userStatsService, FollowSuggestionService followSuggestionService, FollowEdgeService followEdgeService) {
         this.userRepository = userRepository;
         this.followService = followService;
         this.postService = postService;
         this.followRequestService = followRequestService;
         this.userService = userService;
         this.privacySettingsService = privacySettingsService;
+        this.followGraph = followGraph;
+        this.userStatsService = userStatsService;
+        this.followSuggestionService = followSuggestionService;
+        this.followEdgeService = followEdgeService;
     }
 
     /**
@@ -77,14 +85,11 @@ public class UserController {
         response.put("profileImageUrl", user.getProfileImageUrl());
         response.put("createdAt", user.getCreatedAt().toString());
 
-        // Get followers/following counts
-        int followersCount = userRepository.countFollowers(user.getId());
-        int followingCount = userRepository.countFollowing(user.getId());
-        int postsCount = userRepository.countPosts(user.getId());
-
-        response.put("followersCount", followersCount);
-        response.put("followingCount", followingCount);
-        response.put("postsCount", postsCount);
+        // Get followers/following/post counts in one lookup
+        UserStatsService.UserStats stats = userStatsService.get(user.getId());
+        response.put("followersCount", stats.followersCount());
+        response.put("followingCount", stats.followingCount());
+        response.put("postsCount", stats.postsCount());
 
         return ResponseEntity.ok(response);
     }
@@ -103,23 +108,11 @@ public class UserController {
 
         User user = userOpt.get();
 
-        // Get the current authenticated user if available
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User currentUser = null;
-        boolean isFollowing = false;
-
-        if (authentication != null && !authentication.getName().equals("anonymousUser")) {
-            Optional<User> currentUserOpt = userRepository.findByEmail(authentication.getName());
-            if (currentUserOpt.isPresent()) {
-                currentUser = currentUserOpt.get();
-                isFollowing = currentUser.getFollowing().contains(user);
-            }
-        }
+        // Follow state of the current user, if any, from the in-memory graph
+        boolean isFollowing = followGraph.isFollowing(currentUserId(), user.getId());
 
         // Get user stats
-        int followersCount = followService.getFollowerCount(user.getId());
-        int followingCount = followService.getFollowingCount(user.getId());
-        int postsCount = followService.getPostCount(user.getId());
+        UserStatsService.UserStats stats = userStatsService.get(user.getId());
 
         // Create user profile DTO with necessary information
         UserProfileDTO profileDTO = new UserProfileDTO();
@@ -129,9 +122,9 @@ public class UserController {
         profileDTO.setBio(user.getBio());
         profileDTO.setProfileImageUrl(user.getProfileImageUrl());  // Add this
         profileDTO.setJoinDate(user.getCreatedAt().toString());
-        profileDTO.setFollowersCount(followersCount);
-        profileDTO.setFollowingCount(followingCount);
-        profileDTO.setPostsCount(postsCount);
+        profileDTO.setFollowersCount(stats.followersCount());
+        profileDTO.setFollowingCount(stats.followingCount());
+        profileDTO.setPostsCount(stats.postsCount());
         profileDTO.setIsFollowing(isFollowing);
 
         return ResponseEntity.ok(profileDTO);
@@ -147,25 +140,7 @@ public class UserController {
 
         User user = userOpt.get();
 
-        // Get current user (if authenticated)
-        User currentUser = null;
-        try {
-            currentUser = userService.getCurrentUser();
-        } catch (Exception e) {
-            // User not authenticated
-        }
-
-        // Check privacy - critical check that might be missing
-        boolean isPrivate = privacySettingsService.isAccountPrivate(user.getId());
-        boolean isOwner = currentUser != null && currentUser.getId().equals(user.getId());
-        boolean isFollowing = currentUser != null && currentUser.getFollowing().contains(user);
-
-        // If private and not owner and not following, don't show posts
-        if (isPrivate && !isOwner && !isFollowing) {
-            return ResponseEntity.ok(Collections.emptyList()); // Return empty list of posts
-        }
-
-        // This line has changed - we're now directly getting PostDTOs from the service
+        // Privacy is applied by the service: owner, public profile, follower, or match limits
         List<PostDTO> postDTOs = postService.getPostsByUserId(user.getId());
 
         // Debug the response before sending
@@ -194,7 +169,7 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Authentication required"));
         }
 
-        Optional<User> currentUserOpt = userRepository.findByEmail(authentication.getName());
+        Optional<User> currentUserOpt = userRepository.findByPrincipal(authentication);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Current user not found"));
         }
@@ -248,7 +223,7 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Authentication required"));
         }
 
-        Optional<User> currentUserOpt = userRepository.findByEmail(authentication.getName());
+        Optional<User> currentUserOpt = userRepository.findByPrincipal(authentication);
         if (currentUserOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Current user not found"));
         }
@@ -261,12 +236,11 @@ public class UserController {
         User currentUser = currentUserOpt.get();
         User targetUser = targetUserOpt.get();
 
-        // Remove target user from current user's following list
-        currentUser.unfollow(targetUser);
-        userRepository.save(currentUser);
+        // Remove the follow edge
+        followEdgeService.unfollow(currentUser.getId(), targetUser.getId());
 
         // Get updated stats
-        int followersCount = followService.getFollowerCount(targetUser.getId());
+        int followersCount = userStatsService.get(targetUser.getId()).followersCount();
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -276,6 +250,19 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * ✅ "Who to follow" suggestions for the current user, precomputed from friends of friends and
+     * shared communities
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<?> getFollowSuggestions(@RequestParam(defaultValue = "10") int limit) {
+        Long userId = currentUserId();
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Authentication required"));
+        }
+        return ResponseEntity.ok(followSuggestionService.getSuggestions(userId, Math.max(limit, 1)));
+    }
+
     /**
      * Search for users by username
      *
@@ -286,6 +273,9 @@ public class UserController {
     public ResponseEntity<List<UserProfileDTO>> searchUsers(@RequestParam String query) {
         // Find users with username containing the query (case insensitive)
         List<User> users = userRepository.findByUsernameContainingIgnoreCase(query);
+        Long currentUserId = currentUserId();
+        Map<Long, UserStatsService.UserStats> statsByUser = userStatsService.getAll(
+                users.stream().map(User::getId).collect(Collectors.toList()));
 
         // Convert to UserProfileDTO objects
         List<UserProfileDTO> userDTOs = users.stream()
@@ -295,28 +285,14 @@ public class UserController {
                     dto.setUsername(user.getUsername());
                     dto.setJoinDate(user.getCreatedAt().toString());
 
-                    // Get follower count
-                    int followersCount = followService.getFollowerCount(user.getId());
-                    int followingCount = followService.getFollowingCount(user.getId());
-                    int postsCount = followService.getPostCount(user.getId());
-
-                    dto.setFollowersCount(followersCount);
-                    dto.setFollowingCount(followingCount);
-                    dto.setPostsCount(postsCount);
+                    // Counts come from the batch lookup above
+                    UserStatsService.UserStats stats = statsByUser.getOrDefault(user.getId(), UserStatsService.UserStats.EMPTY);
+                    dto.setFollowersCount(stats.followersCount());
+                    dto.setFollowingCount(stats.followingCount());
+                    dto.setPostsCount(stats.postsCount());
 
                     // Check if current user is following this user
-                    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-                    boolean isFollowing = false;
-
-                    if (authentication != null && !authentication.getName().equals("anonymousUser")) {
-                        Optional<User> currentUserOpt = userRepository.findByEmail(authentication.getName());
-                        if (currentUserOpt.isPresent()) {
-                            User currentUser = currentUserOpt.get();
-                            isFollowing = currentUser.getFollowing().contains(user);
-                        }
-                    }
-
-                    dto.setIsFollowing(isFollowing);
+                    dto.setIsFollowing(followGraph.isFollowing(currentUserId, user.getId()));
 
                     return dto;
                 })
@@ -335,7 +311,7 @@ public class UserController {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
 
-        Optional<User> userOpt = userRepository.findByEmail(email);
+        Optional<User> userOpt = userRepository.findByPrincipal(authentication);
         if (userOpt.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("success", false, "message", "User not found"));
@@ -391,7 +367,7 @@ public class UserController {
         String email = authentication.getName();
         System.out.println("✅ Updating profile for user: " + email);
 
-        Optional<User> userOpt = userRepository.findByEmail(email);
+        Optional<User> userOpt = userRepository.findByPrincipal(authentication);
         if (userOpt.isEmpty()) {
             System.out.println("❌ User not found with email: " + email);
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -567,12 +543,12 @@ public class UserController {
      */
     @GetMapping("/{userId}/privacy-status")
     public ResponseEntity<Map<String, Boolean>> checkPrivacyStatus(@PathVariable Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found");
+        }
 
-        // Check user privacy settings
-        UserPrivacySettings privacySettings = user.getPrivacySettings();
-        boolean isPrivate = privacySettings != null && !privacySettings.isPublicProfile();
+        // ✅ Served from the privacy settings cache
+        boolean isPrivate = privacySettingsService.isAccountPrivate(userId);
 
         Map<String, Boolean> response = new HashMap<>();
         response.put("isPrivate", isPrivate);
@@ -614,7 +590,7 @@ public class UserController {
             }
 
             String email = authentication.getName();
-            Optional<User> currentUserOpt = userRepository.findByEmail(email);
+            Optional<User> currentUserOpt = userRepository.findByPrincipal(authentication);
 
             if (currentUserOpt.isEmpty()) {
                 System.out.println("❌ Current user not found with email: " + email);
@@ -680,4 +656,15 @@ public class UserController {
         }
     }
 
+    // Id of the authenticated user without loading the entity when possible (null when anonymous)
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication.getName().equals("anonymousUser")) {
+            return null;
+        }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        return userRepository.findByPrincipal(authentication).map(User::getId).orElse(null);
+    }
 }
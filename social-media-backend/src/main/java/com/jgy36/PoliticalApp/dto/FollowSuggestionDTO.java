@@ -0,0 +1,20 @@
+package com.jgy36.PoliticalApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// One "who to follow" entry, read from the precomputed follow_suggestions table
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowSuggestionDTO {
+    private Long id;
+    private String username;
+    private String displayName;
+    private String profileImageUrl;
+    private int mutualFollowersCount; // accounts the viewer follows that follow this user
+    private int sharedCommunitiesCount;
+}
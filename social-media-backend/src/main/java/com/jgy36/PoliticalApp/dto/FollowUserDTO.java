@@ -0,0 +1,29 @@
+package com.jgy36.PoliticalApp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// One row of a follower/following list, projected straight from the query (no User entity)
+@Getter
+@Setter
+@NoArgsConstructor
+public class FollowUserDTO {
+    @JsonIgnore
+    private Long followId; // position of the row, used for the page cursor
+    private Long id;
+    private String username;
+    private String displayName;
+    private String profileImageUrl;
+    private Boolean isFollowing; // whether the viewer follows this user
+
+    public FollowUserDTO(Long followId, Long id, String username, String displayName, String profileImageUrl) {
+        this.followId = followId;
+        this.id = id;
+        this.username = username;
+        this.displayName = displayName;
+        this.profileImageUrl = profileImageUrl;
+        this.isFollowing = false;
+    }
+}
@@ -22,6 +22,13 @@ public class DatingProfile {
 
     private String location;
 
+    // Geocoded from location unless the client sends coordinates
+    private Double latitude;
+
+    private Double longitude;
+
+    private String gender;
+
     @ElementCollection
     @CollectionTable(name = "dating_profile_photos", joinColumns = @JoinColumn(name = "dating_profile_id"))
     @Column(name = "photo_url")
@@ -61,6 +68,15 @@ public class DatingProfile {
     public String getLocation() { return location; }
     public void setLocation(String location) { this.location = location; }
 
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    public String getGender() { return gender; }
+    public void setGender(String gender) { this.gender = gender; }
+
     public List<String> getPhotos() { return photos; }
     public void setPhotos(List<String> photos) { this.photos = photos; }
 
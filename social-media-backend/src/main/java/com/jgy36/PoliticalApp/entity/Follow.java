@@ -3,8 +3,17 @@ package com.jgy36.PoliticalApp.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 
+import java.time.LocalDateTime;
+
+/**
+ * A follow edge, and the only mapping of the follows table. Users carry no follow collection:
+ * lookups go through FollowRepository (ids, counts and pages) or the in-memory FollowGraph.
+ */
 @Entity
-@Table(name = "follows")
+@Table(name = "follows",
+        uniqueConstraints = @UniqueConstraint(name = "uk_follows_follower_following",
+                columnNames = {"follower_id", "following_id"}),
+        indexes = @Index(name = "idx_follows_following_follower", columnList = "following_id, follower_id"))
 public class Follow {
 
     @Id
@@ -13,15 +22,19 @@ public class Follow {
 
     // ✅ Getters & Setters
     @Getter
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "follower_id", nullable = false)
     private User follower;
 
     @Getter
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "following_id", nullable = false)
     private User following;
 
+    @Getter
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
     public Follow() {
     }
 
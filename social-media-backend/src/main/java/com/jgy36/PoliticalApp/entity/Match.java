@@ -4,8 +4,11 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "match")
+@Table(name = "match",
+        uniqueConstraints = @UniqueConstraint(name = "uk_match_user1_user2",
+                columnNames = {"user1_id", "user2_id"}))
 public class Match {
+    // Each pair has one row, stored with the lower user id as user1
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
 @Entity
 @Getter
 @Setter
-@Table(name = "notifications")
+@Table(name = "notifications") // Partitioned by month on created_at, see V2__partition_notifications.sql
 public class Notification {
 
     @Id
@@ -28,6 +28,10 @@ public class Notification {
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Last insert or coalescing merge; the id stays the same when a row is merged into
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
     // Add these new fields
     @Column(name = "notification_type")
     private String notificationType; // "post_created", "comment_created", "like", "follow", etc.
@@ -40,4 +44,11 @@ public class Notification {
 
     @Column(name = "community_id")
     private String communityId; // For community-related notifications
+
+    // Coalesced notifications ("alice and 41 others liked your post")
+    @Column(name = "actor_count", nullable = false, columnDefinition = "integer default 1")
+    private int actorCount = 1; // How many events were merged into this row
+
+    @Column(name = "recent_actors")
+    private String recentActors; // Comma-separated usernames of the latest actors, newest first
 }
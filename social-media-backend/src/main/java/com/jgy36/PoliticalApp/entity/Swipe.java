@@ -5,7 +5,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "swipe")
+@Table(name = "swipe",
+        uniqueConstraints = @UniqueConstraint(name = "uk_swipe_swiper_target",
+                columnNames = {"swiper_id", "target_id"}))
 public class Swipe {
 
     @Id
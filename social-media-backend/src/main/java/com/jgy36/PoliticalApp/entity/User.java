@@ -1,7 +1,6 @@
 package com.jgy36.PoliticalApp.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -46,17 +45,6 @@ public class User {
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
-    // Getters & Setters
-    @Getter
-    @ManyToMany
-    @JoinTable(
-            name = "follows",
-            joinColumns = @JoinColumn(name = "follower_id"),
-            inverseJoinColumns = @JoinColumn(name = "following_id")
-    )
-    @JsonIgnoreProperties("following")
-    private Set<User> following = new HashSet<>();
-
     @OneToMany(fetch = FetchType.LAZY)
     @JsonIgnore
     private Set<Post> savedPosts;
@@ -116,14 +104,6 @@ public class User {
         this.createdAt = LocalDateTime.now();
     }
 
-    public void follow(User user) {
-        following.add(user);
-    }
-
-    public void unfollow(User user) {
-        following.remove(user);
-    }
-
     // For compatibility with new settings implementation
     public boolean isEmailVerified() {
         return verified;
@@ -1,6 +1,7 @@
 package com.jgy36.PoliticalApp.exception;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotWritableException;
@@ -55,6 +56,14 @@ public class GlobalExceptionHandler {
         );
     }
 
+    // ✅ Handle load shedding (503) - tell clients when to come back
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleOverloaded(ServiceOverloadedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(createErrorResponse("Service Unavailable", ex.getMessage()));
+    }
+
     // ✅ Handle JSON serialization errors - KEEP THIS ONE, REMOVE THE DUPLICATE
     @ExceptionHandler(HttpMessageNotWritableException.class)
     public ResponseEntity<Map<String, Object>> handleJsonSerializationException(HttpMessageNotWritableException ex) {
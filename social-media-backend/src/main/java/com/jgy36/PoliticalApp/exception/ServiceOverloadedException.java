@@ -0,0 +1,19 @@
+package com.jgy36.PoliticalApp.exception;
+
+/**
+ * Thrown when a bounded resource is saturated and the request is shed rather than queued.
+ * Mapped to 503 with a Retry-After header by {@link GlobalExceptionHandler}.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
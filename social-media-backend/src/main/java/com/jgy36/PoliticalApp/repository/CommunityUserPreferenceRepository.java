@@ -4,8 +4,11 @@ import com.jgy36.PoliticalApp.entity.Community;
 import com.jgy36.PoliticalApp.entity.CommunityUserPreference;
 import com.jgy36.PoliticalApp.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -22,4 +25,10 @@ public interface CommunityUserPreferenceRepository extends JpaRepository<Communi
 
     // Find all preferences for a specific community
     Iterable<CommunityUserPreference> findAllByCommunity(Community community);
+
+    // Ids of members who enabled notifications for a community, excluding one user (e.g. the post author)
+    @Query("SELECT p.user.id FROM CommunityUserPreference p WHERE p.community = :community " +
+            "AND p.notificationsEnabled = true AND p.user.id <> :excludedUserId")
+    List<Long> findNotifiedUserIdsByCommunity(@Param("community") Community community,
+                                              @Param("excludedUserId") Long excludedUserId);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +17,20 @@ public interface DatingProfileRepository extends JpaRepository<DatingProfile, Lo
 
     @Query("SELECT dp FROM DatingProfile dp WHERE dp.isActive = true AND dp.user.id != :userId")
     List<DatingProfile> findActiveDatingProfilesExcludingUser(@Param("userId") Long userId);
+
+    @Query("SELECT dp FROM DatingProfile dp WHERE dp.user.id = :userId")
+    Optional<DatingProfile> findByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT dp FROM DatingProfile dp WHERE dp.user.id IN :userIds")
+    List<DatingProfile> findByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // Profiles saved before coordinates existed, in id order for keyset batches
+    List<DatingProfile> findTop500ByLatitudeIsNullAndLocationIsNotNullAndIdGreaterThanOrderByIdAsc(Long id);
+
+    // Bounding-box scan for candidate generation before the in-memory index has loaded
+    @Query("SELECT dp FROM DatingProfile dp WHERE dp.isActive = true AND dp.user.id != :userId " +
+            "AND dp.latitude BETWEEN :minLat AND :maxLat AND dp.longitude BETWEEN :minLon AND :maxLon")
+    List<DatingProfile> findActiveInBoundingBox(@Param("userId") Long userId,
+                                                @Param("minLat") double minLat, @Param("maxLat") double maxLat,
+                                                @Param("minLon") double minLon, @Param("maxLon") double maxLon);
 }
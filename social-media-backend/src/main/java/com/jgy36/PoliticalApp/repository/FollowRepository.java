@@ -1,31 +1,71 @@
 package com.jgy36.PoliticalApp.repository;
 
+import com.jgy36.PoliticalApp.dto.FollowUserDTO;
 import com.jgy36.PoliticalApp.entity.Follow;
-import com.jgy36.PoliticalApp.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface FollowRepository extends JpaRepository<Follow, Long> {
-    boolean existsByFollowerAndFollowing(User follower, User following);
+    boolean existsByFollowerIdAndFollowingId(Long followerId, Long followingId);
 
-    @Transactional
-    void deleteByFollowerAndFollowing(User follower, User following);
+    // Returns 1 if the edge was created, 0 if it already existed (safe against concurrent follows)
+    @Modifying
+    @Query(value = "INSERT INTO follows (follower_id, following_id, created_at) VALUES (:followerId, :followingId, NOW()) " +
+            "ON CONFLICT (follower_id, following_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
 
-    List<Follow> findByFollower(User follower);
+    // Returns 1 if the edge was removed, 0 if there was none
+    @Modifying
+    @Query("DELETE FROM Follow f WHERE f.follower.id = :followerId AND f.following.id = :followingId")
+    int deleteEdge(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
 
-    // Find all users who follow a given user (their followers)
-    @Query("SELECT f.follower FROM Follow f WHERE f.following.id = :userId")
-    List<User> findFollowersByFollowingId(@Param("userId") Long userId);
+    // Every edge of a user, in both directions (account deletion)
+    @Modifying
+    @Query("DELETE FROM Follow f WHERE f.follower.id = :userId OR f.following.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
 
-    // Find all users a given user follows (their following)
-    @Query("SELECT f.following FROM Follow f WHERE f.follower.id = :userId")
-    List<User> findFollowingByFollowerId(@Param("userId") Long userId);
+    @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId")
+    List<Long> findFollowingIdsByFollowerId(@Param("userId") Long userId);
+
+    @Query("SELECT f.follower.id FROM Follow f WHERE f.following.id = :userId")
+    List<Long> findFollowerIdsByFollowingId(@Param("userId") Long userId);
+
+    // Accounts the viewer follows that also follow the target
+    @Query("SELECT COUNT(f) FROM Follow f WHERE f.following.id = :targetId AND f.follower.id IN " +
+            "(SELECT v.following.id FROM Follow v WHERE v.follower.id = :viewerId)")
+    int countMutualFollowers(@Param("viewerId") Long viewerId, @Param("targetId") Long targetId);
+
+    // Which of the given users the viewer follows
+    @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :viewerId AND f.following.id IN :userIds")
+    List<Long> findFollowedAmong(@Param("viewerId") Long viewerId, @Param("userIds") Collection<Long> userIds);
+
+    // Follower list pages, most recent follow first; later pages continue strictly below the cursor row
+    @Query("SELECT new com.jgy36.PoliticalApp.dto.FollowUserDTO(f.id, u.id, u.username, u.displayName, u.profileImageUrl) " +
+            "FROM Follow f JOIN f.follower u WHERE f.following.id = :userId ORDER BY f.id DESC")
+    List<FollowUserDTO> findFollowerPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT new com.jgy36.PoliticalApp.dto.FollowUserDTO(f.id, u.id, u.username, u.displayName, u.profileImageUrl) " +
+            "FROM Follow f JOIN f.follower u WHERE f.following.id = :userId AND f.id < :beforeId ORDER BY f.id DESC")
+    List<FollowUserDTO> findFollowerPageBefore(@Param("userId") Long userId, @Param("beforeId") Long beforeId,
+                                               Pageable pageable);
+
+    // Following list pages, same ordering
+    @Query("SELECT new com.jgy36.PoliticalApp.dto.FollowUserDTO(f.id, u.id, u.username, u.displayName, u.profileImageUrl) " +
+            "FROM Follow f JOIN f.following u WHERE f.follower.id = :userId ORDER BY f.id DESC")
+    List<FollowUserDTO> findFollowingPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT new com.jgy36.PoliticalApp.dto.FollowUserDTO(f.id, u.id, u.username, u.displayName, u.profileImageUrl) " +
+            "FROM Follow f JOIN f.following u WHERE f.follower.id = :userId AND f.id < :beforeId ORDER BY f.id DESC")
+    List<FollowUserDTO> findFollowingPageBefore(@Param("userId") Long userId, @Param("beforeId") Long beforeId,
+                                                Pageable pageable);
 
     // Count how many followers a user has
     @Query("SELECT COUNT(f) FROM Follow f WHERE f.following.id = :userId")
@@ -3,10 +3,12 @@ package com.jgy36.PoliticalApp.repository;
 import com.jgy36.PoliticalApp.entity.Match;
 import com.jgy36.PoliticalApp.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +19,22 @@ public interface MatchRepository extends JpaRepository<Match, Long> {
 
     @Query("SELECT m FROM Match m WHERE ((m.user1 = :user1 AND m.user2 = :user2) OR (m.user1 = :user2 AND m.user2 = :user1)) AND m.isActive = true")
     Optional<Match> findActiveMatchBetweenUsers(@Param("user1") User user1, @Param("user2") User user2);
+
+    Optional<Match> findByUser1IdAndUser2IdAndIsActiveTrue(Long user1Id, Long user2Id);
+
+    // Creates the pair's match (user1Id < user2Id) if the target has liked the swiper. Returns 1 if it was
+    // created, 0 if there is no like back or the pair already has a match
+    @Modifying
+    @Query(value = "INSERT INTO match (user1_id, user2_id, matched_at, is_active) " +
+            "SELECT :user1Id, :user2Id, NOW(), true WHERE EXISTS (SELECT 1 FROM swipe s " +
+            "WHERE s.swiper_id = :targetId AND s.target_id = :swiperId AND s.direction = 'LIKE') " +
+            "ON CONFLICT (user1_id, user2_id) DO NOTHING", nativeQuery = true)
+    int insertIfLikedBack(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id,
+                          @Param("swiperId") Long swiperId, @Param("targetId") Long targetId);
+
+    // Which of the given users have an active match with the user
+    @Query("SELECT CASE WHEN m.user1.id = :userId THEN m.user2.id ELSE m.user1.id END FROM Match m " +
+            "WHERE m.isActive = true AND ((m.user1.id = :userId AND m.user2.id IN :userIds) " +
+            "OR (m.user2.id = :userId AND m.user1.id IN :userIds))")
+    List<Long> findActiveMatchedUserIds(@Param("userId") Long userId, @Param("userIds") Collection<Long> userIds);
 }
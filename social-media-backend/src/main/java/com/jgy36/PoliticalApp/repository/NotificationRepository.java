@@ -2,9 +2,15 @@ package com.jgy36.PoliticalApp.repository;
 
 import com.jgy36.PoliticalApp.entity.Notification;
 import com.jgy36.PoliticalApp.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -13,4 +19,36 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
 
     // Add this new method to find unread notifications
     List<Notification> findByRecipientAndReadFalse(User recipient);
+
+    // First page of a user's feed, newest first
+    @Query("SELECT n FROM Notification n WHERE n.recipient.id = :userId ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findFeedPage(@Param("userId") Long userId, Pageable pageable);
+
+    // Following pages: everything strictly older than the (createdAt, id) cursor
+    @Query("SELECT n FROM Notification n WHERE n.recipient.id = :userId " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+            "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findFeedPageBefore(@Param("userId") Long userId,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
+
+    // Maintained by a trigger on the notifications table
+    @Query(value = "SELECT COALESCE((SELECT unread_count FROM notification_unread_counts WHERE user_id = :userId), 0)",
+            nativeQuery = true)
+    long findUnreadCount(@Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notification n SET n.read = true WHERE n.recipient.id = :userId AND n.read = false")
+    int markAllAsReadByRecipientId(@Param("userId") Long userId);
+
+    // Notifications written after a given event, used to resume a notification stream: rows with a
+    // higher id, plus older rows coalesced into since that event (merges keep the row's id)
+    @Query(value = "SELECT * FROM notifications n WHERE n.user_id = :userId " +
+            "AND (n.id > :lastEventId OR n.updated_at > (SELECT c.updated_at FROM notifications c " +
+            "WHERE c.id = :lastEventId AND c.user_id = :userId)) " +
+            "ORDER BY n.updated_at ASC, n.id ASC LIMIT 100",
+            nativeQuery = true)
+    List<Notification> findChangedSince(@Param("userId") Long userId, @Param("lastEventId") Long lastEventId);
 }
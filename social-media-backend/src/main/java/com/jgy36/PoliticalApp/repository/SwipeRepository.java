@@ -3,6 +3,9 @@ package com.jgy36.PoliticalApp.repository;
 import com.jgy36.PoliticalApp.entity.Swipe;
 import com.jgy36.PoliticalApp.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,4 +16,20 @@ public interface SwipeRepository extends JpaRepository<Swipe, Long> {
     Optional<Swipe> findBySwiperAndTarget(User swiper, User target);
     List<Swipe> findBySwiper(User swiper);
     boolean existsBySwiperAndTarget(User swiper, User target);
+
+    // Returns 1 if the swipe was recorded, 0 if the swiper had already swiped on the target
+    @Modifying
+    @Query(value = "INSERT INTO swipe (swiper_id, target_id, direction, swiped_at) " +
+            "VALUES (:swiperId, :targetId, :direction, NOW()) " +
+            "ON CONFLICT (swiper_id, target_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("swiperId") Long swiperId, @Param("targetId") Long targetId,
+                       @Param("direction") String direction);
+
+    // Blocks until no other transaction holds the lock for this key; released when the transaction ends
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:key)", nativeQuery = true)
+    int lockTransaction(@Param("key") long key);
+
+    // Everyone the user has already swiped on, to keep them out of the candidate deck
+    @Query("SELECT s.target.id FROM Swipe s WHERE s.swiper.id = :swiperId")
+    List<Long> findTargetIdsBySwiperId(@Param("swiperId") Long swiperId);
 }
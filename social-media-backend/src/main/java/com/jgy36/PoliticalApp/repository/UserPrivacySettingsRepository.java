@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +25,12 @@ public interface UserPrivacySettingsRepository extends JpaRepository<UserPrivacy
     @Query("SELECT ups FROM UserPrivacySettings ups WHERE ups.user.id = :userId")
     Optional<UserPrivacySettings> findByUserId(@Param("userId") Long userId);
 
+    /**
+     * Find privacy settings for many users in one query
+     */
+    @Query("SELECT ups FROM UserPrivacySettings ups WHERE ups.user.id IN :userIds")
+    List<UserPrivacySettings> findAllByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
     /**
      * Check if user has privacy settings configured
      */
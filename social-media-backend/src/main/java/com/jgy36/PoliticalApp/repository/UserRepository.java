@@ -1,10 +1,12 @@
 package com.jgy36.PoliticalApp.repository;
 
+import com.jgy36.PoliticalApp.config.AuthenticatedUser;
 import com.jgy36.PoliticalApp.entity.Role;
 import com.jgy36.PoliticalApp.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,6 +16,17 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
+    /**
+     * Load the authenticated user. Token principals carry the id, so this is a primary-key lookup
+     * that the request's persistence context answers from memory after the first call.
+     */
+    default Optional<User> findByPrincipal(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return findById(principal.getId());
+        }
+        return findByEmail(authentication.getName());
+    }
+
     Optional<User> findByUsername(String username);
 
     List<User> findByRole(Role role);
@@ -0,0 +1,27 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import com.jgy36.PoliticalApp.service.ActivityTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ActivityFlushTask {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityFlushTask.class);
+
+    @Autowired
+    private ActivityTracker activityTracker;
+
+    // Write last-active timestamps collected in memory since the previous run
+    @Scheduled(fixedDelayString = "${app.activity.flush-interval-ms:5000}")
+    public void flushActivity() {
+        try {
+            activityTracker.flush();
+        } catch (Exception e) {
+            // Pending entries stay in memory and are retried on the next run
+            logger.warn("Failed to flush user activity", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import com.jgy36.PoliticalApp.service.DatingDeckService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DatingDeckTask {
+
+    @Autowired
+    private DatingDeckService datingDeckService;
+
+    @Scheduled(cron = "${app.dating.deck.rebuild-cron:0 0 3 * * *}") // Run every day at 03:00
+    public void rebuild() {
+        datingDeckService.rebuild();
+    }
+
+    // Users whose profile or communities changed, or whose deck ran low or expired
+    @Scheduled(initialDelayString = "${app.dating.deck.refresh-interval-ms:120000}",
+            fixedDelayString = "${app.dating.deck.refresh-interval-ms:120000}")
+    public void refreshStale() {
+        datingDeckService.refreshStale();
+    }
+}
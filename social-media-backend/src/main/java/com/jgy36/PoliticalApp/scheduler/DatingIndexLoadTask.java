@@ -0,0 +1,30 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import com.jgy36.PoliticalApp.service.DatingCandidateIndex;
+import com.jgy36.PoliticalApp.service.DatingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DatingIndexLoadTask {
+
+    @Autowired
+    private DatingCandidateIndex datingCandidateIndex;
+
+    @Autowired
+    private DatingService datingService;
+
+    private boolean locationsBackfilled;
+
+    // Loads the candidate index at startup, then rebuilds it to repair any event this node missed.
+    // Before the first load, profiles saved before coordinates existed are geocoded so they are indexed.
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.dating.index-reload-interval-ms:3600000}")
+    public void reload() {
+        if (!locationsBackfilled) {
+            datingService.geocodeMissingLocations();
+            locationsBackfilled = true;
+        }
+        datingCandidateIndex.reload();
+    }
+}
@@ -0,0 +1,19 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import com.jgy36.PoliticalApp.service.FollowGraph;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FollowGraphLoadTask {
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    // Loads the graph at startup, then rebuilds it to repair any event this node missed
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.follow-graph.reload-interval-ms:21600000}")
+    public void reload() {
+        followGraph.reload();
+    }
+}
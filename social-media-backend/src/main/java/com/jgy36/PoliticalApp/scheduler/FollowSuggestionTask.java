@@ -0,0 +1,25 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import com.jgy36.PoliticalApp.service.FollowSuggestionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FollowSuggestionTask {
+
+    @Autowired
+    private FollowSuggestionService followSuggestionService;
+
+    @Scheduled(cron = "${app.suggestions.rebuild-cron:0 30 4 * * *}") // Run every day at 04:30
+    public void rebuild() {
+        followSuggestionService.rebuild();
+    }
+
+    // Users whose follows or communities changed since their suggestions were computed
+    @Scheduled(initialDelayString = "${app.suggestions.refresh-interval-ms:300000}",
+            fixedDelayString = "${app.suggestions.refresh-interval-ms:300000}")
+    public void refreshStale() {
+        followSuggestionService.refreshStale();
+    }
+}
@@ -0,0 +1,89 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Keeps the monthly notification partitions in shape: creates upcoming months ahead of time
+ * (moving any of their rows out of the DEFAULT partition), drops whole partitions once they
+ * fall out of the retention period and deletes expired rows left in DEFAULT.
+ */
+@Component
+public class NotificationPartitionMaintenanceTask {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPartitionMaintenanceTask.class);
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.notifications.retention-months:6}")
+    private int retentionMonths;
+
+    @Value("${app.notifications.partitions-ahead:2}")
+    private int partitionsAhead;
+
+    @Scheduled(cron = "0 15 3 * * *") // Run every day at 03:15
+    @Transactional
+    public void maintainPartitions() {
+        createUpcomingPartitions();
+        dropExpiredPartitions();
+        pruneDefaultPartition();
+    }
+
+    private void createUpcomingPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            LocalDate month = current.plusMonths(i).atDay(1);
+            jdbcTemplate.queryForList("SELECT create_notification_partition(?)", month);
+        }
+    }
+
+    private void dropExpiredPartitions() {
+        // Partitions named notifications_pYYYY_MM hold exactly that month
+        String oldestKept = "notifications_p" + YearMonth.now().minusMonths(retentionMonths).format(PARTITION_SUFFIX);
+
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = 'notifications' AND c.relname LIKE 'notifications\\_p%' " +
+                        "ORDER BY c.relname",
+                String.class);
+
+        for (String partition : partitions) {
+            if (partition.compareTo(oldestKept) >= 0) {
+                break;
+            }
+
+            // Dropping a table fires no row triggers, so take its unread rows off the counters first
+            jdbcTemplate.update(
+                    "UPDATE notification_unread_counts c SET unread_count = GREATEST(c.unread_count - d.unread, 0) " +
+                            "FROM (SELECT user_id, COUNT(*) AS unread FROM " + partition +
+                            " WHERE NOT read GROUP BY user_id) d WHERE c.user_id = d.user_id");
+            jdbcTemplate.execute("ALTER TABLE notifications DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+
+            logger.info("Dropped expired notification partition {}", partition);
+        }
+    }
+
+    // DEFAULT can hold rows of any month, so it is pruned row by row (the trigger keeps the counters right)
+    private void pruneDefaultPartition() {
+        LocalDate oldestKept = YearMonth.now().minusMonths(retentionMonths).atDay(1);
+        int deleted = jdbcTemplate.update("DELETE FROM notifications_default WHERE created_at < ?", oldestKept);
+        if (deleted > 0) {
+            logger.info("Deleted {} expired notifications from the default partition", deleted);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import com.jgy36.PoliticalApp.service.ActivityTracker;
+import com.jgy36.PoliticalApp.service.NotificationPreferencesCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class NotificationPreferencesWarmupTask {
+    private static final int CHUNK_SIZE = 1000;
+
+    @Autowired
+    private ActivityTracker activityTracker;
+
+    @Autowired
+    private NotificationPreferencesCache preferencesCache;
+
+    // Keep preferences of recently active users in memory so their notifications never hit the DB
+    @Scheduled(fixedDelayString = "${app.notifications.preferences-cache.warmup-interval-ms:300000}")
+    public void warmActiveUsers() {
+        // Users this node served within the activity tracker's recent window; no query needed
+        List<Long> activeUserIds = activityTracker.getRecentlyActiveUserIds();
+
+        for (int from = 0; from < activeUserIds.size(); from += CHUNK_SIZE) {
+            preferencesCache.warm(activeUserIds.subList(from, Math.min(from + CHUNK_SIZE, activeUserIds.size())));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import com.jgy36.PoliticalApp.service.SwipeBitmaps;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SwipeBitmapsLoadTask {
+
+    @Autowired
+    private SwipeBitmaps swipeBitmaps;
+
+    // Loads the bitmaps at startup, then rebuilds them to repair any event this node missed
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.dating.swipe-bitmaps-reload-interval-ms:21600000}")
+    public void reload() {
+        swipeBitmaps.reload();
+    }
+}
@@ -0,0 +1,19 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import com.jgy36.PoliticalApp.service.TokenBlacklistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TokenBlacklistSyncTask {
+
+    @Autowired
+    private TokenBlacklistService tokenBlacklistService;
+
+    // Runs once at startup to fill the filter, then catches up on pub/sub messages this node missed
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.security.blacklist.resync-interval-ms:600000}")
+    public void resync() {
+        tokenBlacklistService.resyncBloomFilter();
+    }
+}
@@ -0,0 +1,20 @@
+package com.jgy36.PoliticalApp.scheduler;
+
+import com.jgy36.PoliticalApp.service.UserStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserStatsReconciliationTask {
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    // Repairs counter drift (writes outside the maintained paths, cascaded deletes); a no-op when counts agree
+    @Scheduled(initialDelayString = "${app.user-stats.reconcile-interval-ms:3600000}",
+            fixedDelayString = "${app.user-stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        userStatsService.reconcile();
+    }
+}
@@ -1,8 +1,10 @@
 package com.jgy36.PoliticalApp.service;
 
+import com.jgy36.PoliticalApp.config.AuthenticatedUser;
 import com.jgy36.PoliticalApp.entity.ConnectedAccount;
 import com.jgy36.PoliticalApp.entity.User;
 import com.jgy36.PoliticalApp.repository.ConnectedAccountRepository;
+import com.jgy36.PoliticalApp.repository.FollowRepository;
 import com.jgy36.PoliticalApp.repository.UserRepository;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
@@ -30,6 +32,11 @@ public class AccountManagementService {
     private final JavaMailSender mailSender;
     private final OAuth2AuthorizedClientService authorizedClientService;
     private final EmailService emailService;  // ADD THIS LINE
+    private final PrincipalCache principalCache;
+    private final FollowGraph followGraph;
+    private final FollowRepository followRepository;
+    private final DatingCandidateIndex datingCandidateIndex;
+    private final UserStatsService userStatsService;
 
 
     @Value("${app.frontend-url}")
@@ -42,12 +49,22 @@ public class AccountManagementService {
             UserRepository userRepository,
             ConnectedAccountRepository connectedAccountRepository,
             JavaMailSender mailSender,
-            OAuth2AuthorizedClientService authorizedClientService, EmailService emailService) {
+            OAuth2AuthorizedClientService authorizedClientService, EmailService emailService,
+            PrincipalCache principalCache,
+            FollowGraph followGraph,
+            FollowRepository followRepository,
+            DatingCandidateIndex datingCandidateIndex,
+            UserStatsService userStatsService) {
         this.userRepository = userRepository;
         this.connectedAccountRepository = connectedAccountRepository;
         this.mailSender = mailSender;
         this.authorizedClientService = authorizedClientService;
         this.emailService = emailService;  // ADD THIS LINE
+        this.principalCache = principalCache;
+        this.followGraph = followGraph;
+        this.followRepository = followRepository;
+        this.datingCandidateIndex = datingCandidateIndex;
+        this.userStatsService = userStatsService;
     }
 
     /**
@@ -55,8 +72,10 @@ public class AccountManagementService {
      */
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        User user = userRepository.findByEmail(authentication.getName())
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         return user.getId();
     }
@@ -225,11 +244,13 @@ public class AccountManagementService {
             return false;
         }
 
+        String oldEmail = user.getEmail();
         user.setEmail(newEmail);
         user.setEmailVerified(true);
         user.setVerificationToken(null);
         user.setVerificationTokenExpiresAt(null);
         userRepository.save(user);
+        principalCache.evict(oldEmail);
 
         return true;
     }
@@ -380,8 +401,15 @@ public class AccountManagementService {
         // Delete connected accounts
         connectedAccountRepository.deleteAllByUserId(userId);
 
+        // Counterpart follower/following counts, then the follow edges in both directions
+        userStatsService.recordUserDeleted(userId);
+        followRepository.deleteAllByUserId(userId);
+
         // Delete user
         userRepository.deleteById(userId);
+        followGraph.removeUser(userId);
+        datingCandidateIndex.removeUser(userId);
+        principalCache.evict(userId);
     }
 
     /**
@@ -0,0 +1,143 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind tracking of User.lastActive and UserSession.lastActive.
+ * Authenticated requests only record a timestamp in memory; {@link #flush()} writes the latest value
+ * per user and per session in two batched UPDATEs, so activity costs no row write per request.
+ * Readers merge the pending in-memory values over what the DB holds.
+ */
+@Service
+public class ActivityTracker {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityTracker.class);
+    private static final int BATCH_SIZE = 1000;
+
+    // Never moves a timestamp backwards (e.g. two nodes flushing out of order)
+    private static final String UPDATE_USERS_SQL =
+            "UPDATE users SET last_active = ? WHERE id = ? AND (last_active IS NULL OR last_active < ?)";
+    private static final String UPDATE_SESSIONS_SQL =
+            "UPDATE user_sessions SET last_active = ? WHERE id = ? AND (last_active IS NULL OR last_active < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Not yet written, epoch millis
+    private final Map<Long, Long> pendingUsers = new ConcurrentHashMap<>();
+    private final Map<String, Long> pendingSessions = new ConcurrentHashMap<>();
+
+    // Users seen by this node recently, for "recently active" reads without a query
+    private final Cache<Long, Long> recentlySeen;
+
+    public ActivityTracker(JdbcTemplate jdbcTemplate,
+                           @Value("${app.activity.recent-window-minutes:15}") long recentWindowMinutes,
+                           @Value("${app.activity.recent-max-users:200000}") long recentMaxUsers) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.recentlySeen = Caffeine.newBuilder()
+                .maximumSize(recentMaxUsers)
+                .expireAfterWrite(Duration.ofMinutes(recentWindowMinutes))
+                .build();
+    }
+
+    /**
+     * Note activity for a user and, if known, the session the request belongs to
+     */
+    public void record(Long userId, String sessionId) {
+        long now = System.currentTimeMillis();
+        pendingUsers.merge(userId, now, Math::max);
+        recentlySeen.put(userId, now);
+        if (sessionId != null) {
+            pendingSessions.merge(sessionId, now, Math::max);
+        }
+    }
+
+    /**
+     * The later of the pending activity and the stored value
+     */
+    public LocalDateTime getSessionLastActive(String sessionId, LocalDateTime stored) {
+        return latest(pendingSessions.get(sessionId), stored);
+    }
+
+    /**
+     * Users this node has seen within the recent window
+     */
+    public List<Long> getRecentlyActiveUserIds() {
+        return new ArrayList<>(recentlySeen.asMap().keySet());
+    }
+
+    /**
+     * Write pending activity in batches. Entries touched again while flushing stay pending.
+     */
+    public void flush() {
+        flushUsers();
+        flushSessions();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("Failed to flush activity on shutdown", e);
+        }
+    }
+
+    private void flushUsers() {
+        List<Map.Entry<Long, Long>> batch = snapshot(pendingUsers);
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_USERS_SQL, batch, BATCH_SIZE, (ps, entry) -> {
+            Timestamp at = Timestamp.from(Instant.ofEpochMilli(entry.getValue()));
+            ps.setTimestamp(1, at);
+            ps.setLong(2, entry.getKey());
+            ps.setTimestamp(3, at);
+        });
+        // Only drop what was written; a newer timestamp recorded meanwhile is kept for the next flush
+        batch.forEach(entry -> pendingUsers.remove(entry.getKey(), entry.getValue()));
+    }
+
+    private void flushSessions() {
+        List<Map.Entry<String, Long>> batch = snapshot(pendingSessions);
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SESSIONS_SQL, batch, BATCH_SIZE, (ps, entry) -> {
+            Timestamp at = Timestamp.from(Instant.ofEpochMilli(entry.getValue()));
+            ps.setTimestamp(1, at);
+            ps.setString(2, entry.getKey());
+            ps.setTimestamp(3, at);
+        });
+        batch.forEach(entry -> pendingSessions.remove(entry.getKey(), entry.getValue()));
+    }
+
+    private static <K> List<Map.Entry<K, Long>> snapshot(Map<K, Long> pending) {
+        return pending.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    private static LocalDateTime latest(Long pendingMillis, LocalDateTime stored) {
+        if (pendingMillis == null) {
+            return stored;
+        }
+        LocalDateTime pending = LocalDateTime.ofInstant(Instant.ofEpochMilli(pendingMillis), ZoneId.systemDefault());
+        return stored == null || pending.isAfter(stored) ? pending : stored;
+    }
+}
@@ -70,7 +70,7 @@ public class CommentService {
         // Check if current user has liked this comment
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.isAuthenticated() && !auth.getName().equals("anonymousUser")) {
-            User currentUser = userRepository.findByEmail(auth.getName()).orElse(null);
+            User currentUser = userRepository.findByPrincipal(auth).orElse(null);
             if (currentUser != null) {
                 dto.setLikedByCurrentUser(commentLikeRepository.existsByUserAndComment(currentUser, comment));
             }
@@ -83,7 +83,7 @@ public class CommentService {
     @Transactional
     public CommentDTO addComment(Long postId, String content) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByEmail(auth.getName())
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new NoSuchElementException("User not found with email: " + auth.getName()));
 
         Post post = postRepository.findById(postId)
@@ -147,7 +147,7 @@ public class CommentService {
     @Transactional
     public CommentDTO likeComment(Long commentId) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByEmail(auth.getName())
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
         Comment comment = commentRepository.findById(commentId)
@@ -168,7 +168,8 @@ public class CommentService {
             if (!comment.getUser().equals(user)) {
                 notificationService.createNotification(
                         comment.getUser(),
-                        user.getUsername() + " liked your comment",
+                        user,
+                        "liked your comment",
                         "like",
                         comment.getPost().getId(),
                         comment.getId(),
@@ -184,7 +185,7 @@ public class CommentService {
     @Transactional
     public CommentDTO replyToComment(Long parentCommentId, String content) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByEmail(auth.getName())
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
         Comment parentComment = commentRepository.findById(parentCommentId)
@@ -231,7 +232,7 @@ public class CommentService {
     @Transactional
     public void deleteComment(Long commentId) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByEmail(auth.getName())
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
         Comment comment = commentRepository.findById(commentId)
@@ -33,6 +33,15 @@ public class CommunityService {
     @Autowired
     private CommunityUserPreferenceRepository communityUserPreferenceRepository;
 
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private FollowSuggestionService followSuggestionService;
+
+    @Autowired
+    private DatingDeckService datingDeckService;
+
     @Autowired
     public CommunityService(CommunityRepository communityRepository,
                             UserRepository userRepository,
@@ -290,6 +299,8 @@ public class CommunityService {
 
         community.addMember(currentUser);
         communityRepository.save(community);
+        followSuggestionService.markStale(currentUser.getId());
+        datingDeckService.markStale(currentUser.getId());
     }
 
     // Leave a community
@@ -300,6 +311,8 @@ public class CommunityService {
 
         community.removeMember(currentUser);
         communityRepository.save(community);
+        followSuggestionService.markStale(currentUser.getId());
+        datingDeckService.markStale(currentUser.getId());
     }
 
     // Check if user is a member of a community
@@ -351,6 +364,7 @@ public class CommunityService {
         Post post = new Post(content, currentUser);
         post.setCommunity(community);
         Post savedPost = postRepository.save(post);
+        userStatsService.recordPostCreated(currentUser.getId());
 
         // Create notifications for users who have enabled notifications for this community
         createNotificationsForNewPost(community, currentUser, post);
@@ -360,32 +374,20 @@ public class CommunityService {
 
     // Add this new method
     private void createNotificationsForNewPost(Community community, User postAuthor, Post post) {
-        // Get all user preferences for this community where notifications are enabled
-        Iterable<CommunityUserPreference> preferences = communityUserPreferenceRepository.findAllByCommunity(community);
+        // Only the ids of members with notifications enabled, the author excluded
+        List<Long> recipientIds = communityUserPreferenceRepository
+                .findNotifiedUserIdsByCommunity(community, postAuthor.getId());
 
-        for (CommunityUserPreference preference : preferences) {
-            User user = preference.getUser();
-
-            // Skip notification for the post author
-            if (user.getId().equals(postAuthor.getId())) {
-                continue;
-            }
-
-            // Only create notification if user has enabled notifications
-            if (preference.isNotificationsEnabled()) {
-                // Create notification with proper reference data
-                notificationService.createPostNotification(user, postAuthor, post);
-            }
-        }
+        // Queued as one batch; the dispatcher writes them off the request thread
+        notificationService.createPostNotifications(recipientIds, postAuthor, post);
     }
 
     // Helper method to get the current authenticated user
     private User getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
 
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new NoSuchElementException("User not found with email: " + email));
+        return userRepository.findByPrincipal(auth)
+                .orElseThrow(() -> new NoSuchElementException("User not found with email: " + auth.getName()));
     }
 
     /**
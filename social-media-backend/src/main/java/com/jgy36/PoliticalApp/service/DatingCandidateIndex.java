@@ -0,0 +1,375 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.entity.DatingProfile;
+import com.jgy36.PoliticalApp.repository.DatingProfileRepository;
+import com.jgy36.PoliticalApp.utils.ClusterMessages;
+import com.jgy36.PoliticalApp.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Active dating profiles held in memory on a latitude/longitude grid, so a candidate deck is built
+ * from the cells around the seeker instead of from every profile. Each candidate is then checked
+ * against both sides' distance, age range and gender preference.
+ * <p>
+ * Loaded from dating_profile at startup and periodically, kept current by profile saves, which are
+ * applied after commit and broadcast to the other nodes. Until the first load completes, queries fall
+ * back to a bounding-box query.
+ */
+@Service
+public class DatingCandidateIndex implements MessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(DatingCandidateIndex.class);
+    private static final String EVENT_CHANNEL = "cache:dating-index";
+    private static final String SELECT_SQL = "SELECT user_id, latitude, longitude, age, gender, gender_preference, " +
+            "min_age, max_age, max_distance FROM dating_profile " +
+            "WHERE is_active = true AND latitude IS NOT NULL AND longitude IS NOT NULL";
+    private static final double EARTH_RADIUS_MILES = 3958.8;
+    private static final double MILES_PER_DEGREE = 69.0;
+    private static final double METERS_PER_MILE = 1609.344;
+    private static final String ANY_GENDER = "any";
+
+    /**
+     * The fields candidate matching needs from a profile
+     */
+    public record Profile(long userId, double latitude, double longitude, Integer age, String gender,
+                          String genderPreference, Integer minAge, Integer maxAge, Integer maxDistance) {
+
+        /**
+         * Null for a profile that cannot be a candidate (inactive or not located)
+         */
+        public static Profile of(DatingProfile profile) {
+            if (!Boolean.TRUE.equals(profile.getIsActive()) || profile.getLatitude() == null || profile.getLongitude() == null) {
+                return null;
+            }
+            return new Profile(profile.getUser().getId(), profile.getLatitude(), profile.getLongitude(),
+                    profile.getAge(), profile.getGender(), profile.getGenderPreference(),
+                    profile.getMinAge(), profile.getMaxAge(), profile.getMaxDistance());
+        }
+    }
+
+    /**
+     * A candidate with its distance from the seeker in whole meters, the deck's sort key with the user id
+     */
+    public record Candidate(long userId, long distanceMeters) {
+    }
+
+    private static final Comparator<Candidate> DECK_ORDER =
+            Comparator.comparingLong(Candidate::distanceMeters).thenComparingLong(Candidate::userId);
+
+    private static final RowMapper<Profile> PROFILE_ROW = (rs, rowNum) -> new Profile(
+            rs.getLong("user_id"), rs.getDouble("latitude"), rs.getDouble("longitude"),
+            rs.getObject("age", Integer.class), rs.getString("gender"), rs.getString("gender_preference"),
+            rs.getObject("min_age", Integer.class), rs.getObject("max_age", Integer.class),
+            rs.getObject("max_distance", Integer.class));
+
+    private record Change(long userId, Profile profile) {
+    }
+
+    private final DatingProfileRepository datingProfileRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.dating.grid-cell-degrees:0.5}")
+    private double cellDegrees;
+
+    @Value("${app.dating.default-max-distance-miles:50}")
+    private int defaultMaxDistanceMiles;
+
+    @Value("${app.dating.max-distance-miles:500}")
+    private int maxDistanceMiles;
+
+    // userId -> indexed profile, and grid cell -> user ids in it
+    private volatile Map<Long, Profile> profiles = new ConcurrentHashMap<>();
+    private volatile Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Serializes updates with the swap at the end of a reload; changes seen during a reload are replayed onto it
+    private final Object updateLock = new Object();
+    private List<Change> changesDuringReload;
+
+    public DatingCandidateIndex(DatingProfileRepository datingProfileRepository,
+                                JdbcTemplate jdbcTemplate,
+                                StringRedisTemplate redisTemplate,
+                                RedisMessageListenerContainer listenerContainer) {
+        this.datingProfileRepository = datingProfileRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVENT_CHANNEL));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * The indexed profile of a user, or null if they are not an active, located candidate
+     */
+    public Profile getProfile(long userId) {
+        return profiles.get(userId);
+    }
+
+    /**
+     * Rebuild the index from the dating_profile table
+     */
+    @Transactional(readOnly = true)
+    public void reload() {
+        synchronized (updateLock) {
+            changesDuringReload = new ArrayList<>();
+        }
+
+        long start = System.currentTimeMillis();
+        Map<Long, Profile> loadedProfiles = new HashMap<>();
+        Map<Long, Set<Long>> loadedCells = new HashMap<>();
+        try {
+            jdbcTemplate.query(SELECT_SQL, rs -> {
+                Profile profile = PROFILE_ROW.mapRow(rs, 0);
+                put(loadedProfiles, loadedCells, profile.userId(), profile);
+            });
+        } catch (RuntimeException e) {
+            synchronized (updateLock) {
+                changesDuringReload = null;
+            }
+            throw e;
+        }
+
+        synchronized (updateLock) {
+            for (Change change : changesDuringReload) {
+                put(loadedProfiles, loadedCells, change.userId(), change.profile());
+            }
+            changesDuringReload = null;
+            Map<Long, Set<Long>> concurrentCells = new ConcurrentHashMap<>();
+            loadedCells.forEach((cell, ids) -> {
+                Set<Long> set = ConcurrentHashMap.newKeySet(ids.size());
+                set.addAll(ids);
+                concurrentCells.put(cell, set);
+            });
+            profiles = new ConcurrentHashMap<>(loadedProfiles);
+            cells = concurrentCells;
+            ready = true;
+        }
+        logger.info("Dating candidate index loaded: {} profiles in {} cells in {} ms",
+                loadedProfiles.size(), loadedCells.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Re-index a saved profile once the current transaction commits
+     */
+    public void recordProfile(DatingProfile profile) {
+        long userId = profile.getUser().getId();
+        Profile indexed = Profile.of(profile);
+        TransactionUtils.afterCommit(() -> {
+            update(new Change(userId, indexed));
+            publish("update:" + userId);
+        });
+    }
+
+    /**
+     * Drop a user's profile once the current transaction commits
+     */
+    public void removeUser(Long userId) {
+        TransactionUtils.afterCommit(() -> {
+            update(new Change(userId, null));
+            publish("update:" + userId);
+        });
+    }
+
+    /**
+     * Up to limit candidates for the seeker, nearest first: within both sides' distance limits, each inside
+     * the other's age range and gender preference, and not in excluded
+     */
+    public List<Candidate> findCandidates(Profile seeker, Roaring64Bitmap excluded, int limit) {
+        double radiusMiles = radiusOf(seeker);
+        double latDelta = radiusMiles / MILES_PER_DEGREE;
+        double lonDelta = radiusMiles / (MILES_PER_DEGREE * Math.max(Math.cos(Math.toRadians(seeker.latitude())), 0.01));
+
+        List<Candidate> deck = new ArrayList<>();
+        if (!ready) {
+            for (DatingProfile profile : datingProfileRepository.findActiveInBoundingBox(seeker.userId(),
+                    seeker.latitude() - latDelta, seeker.latitude() + latDelta,
+                    seeker.longitude() - lonDelta, seeker.longitude() + lonDelta)) {
+                Profile candidate = Profile.of(profile);
+                if (candidate != null) {
+                    consider(seeker, candidate, radiusMiles, excluded, deck);
+                }
+            }
+        } else {
+            Map<Long, Profile> currentProfiles = profiles;
+            Map<Long, Set<Long>> currentCells = cells;
+            long minLatCell = cellOf(seeker.latitude() - latDelta);
+            long maxLatCell = cellOf(seeker.latitude() + latDelta);
+            long minLonCell = cellOf(Math.max(seeker.longitude() - lonDelta, -180));
+            long maxLonCell = cellOf(Math.min(seeker.longitude() + lonDelta, 180));
+            for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (long lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    Set<Long> ids = currentCells.get(key(latCell, lonCell));
+                    if (ids == null) {
+                        continue;
+                    }
+                    for (Long id : ids) {
+                        Profile candidate = currentProfiles.get(id);
+                        if (candidate != null) {
+                            consider(seeker, candidate, radiusMiles, excluded, deck);
+                        }
+                    }
+                }
+            }
+        }
+
+        deck.sort(DECK_ORDER);
+        return deck.size() > limit ? new ArrayList<>(deck.subList(0, limit)) : deck;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = ClusterMessages.fromOtherNode(message);
+        if (body == null) {
+            return;
+        }
+        String[] parts = body.split(":");
+        try {
+            long userId = Long.parseLong(parts[parts.length - 1]);
+            // Re-read the row rather than trusting the message, so out-of-order events settle on the latest state
+            List<Profile> rows = jdbcTemplate.query(SELECT_SQL + " AND user_id = ?", PROFILE_ROW, userId);
+            update(new Change(userId, rows.isEmpty() ? null : rows.get(0)));
+        } catch (RuntimeException e) {
+            logger.warn("Ignoring dating index event {}: {}", body, e.getMessage());
+        }
+    }
+
+    private void consider(Profile seeker, Profile candidate, double radiusMiles, Roaring64Bitmap excluded, List<Candidate> deck) {
+        if (candidate.userId() == seeker.userId() || excluded.contains(candidate.userId())) {
+            return;
+        }
+        double distance = distanceMiles(seeker, candidate);
+        if (distance > radiusMiles || distance > radiusOf(candidate)) {
+            return;
+        }
+        if (!withinAgeRange(candidate.age(), seeker.minAge(), seeker.maxAge())
+                || !withinAgeRange(seeker.age(), candidate.minAge(), candidate.maxAge())) {
+            return;
+        }
+        if (!accepts(seeker.genderPreference(), candidate.gender())
+                || !accepts(candidate.genderPreference(), seeker.gender())) {
+            return;
+        }
+        deck.add(new Candidate(candidate.userId(), Math.round(distance * METERS_PER_MILE)));
+    }
+
+    private double radiusOf(Profile profile) {
+        int miles = profile.maxDistance() != null && profile.maxDistance() > 0
+                ? profile.maxDistance()
+                : defaultMaxDistanceMiles;
+        return Math.min(miles, maxDistanceMiles);
+    }
+
+    private static boolean withinAgeRange(Integer age, Integer minAge, Integer maxAge) {
+        if (minAge == null && maxAge == null) {
+            return true;
+        }
+        return age != null && (minAge == null || age >= minAge) && (maxAge == null || age <= maxAge);
+    }
+
+    // No preference (or "Everyone") accepts anyone. A profile without a gender is accepted too, since clients
+    // do not collect it yet; otherwise the gender has to match ("Men" accepts "man", "male", ...)
+    private static boolean accepts(String preference, String gender) {
+        String wanted = canonicalGender(preference);
+        String actual = canonicalGender(gender);
+        if (wanted == null || wanted.equals(ANY_GENDER) || actual == null) {
+            return true;
+        }
+        return wanted.equals(actual);
+    }
+
+    // One value per gender, whether it was written as a preference ("Women") or an identity ("female")
+    private static String canonicalGender(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        return switch (normalized) {
+            case "any", "all", "everyone", "both" -> ANY_GENDER;
+            case "men", "man", "male", "m" -> "man";
+            case "women", "woman", "female", "f" -> "woman";
+            default -> normalized;
+        };
+    }
+
+    // Haversine
+    private static double distanceMiles(Profile a, Profile b) {
+        double dLat = Math.toRadians(b.latitude() - a.latitude());
+        double dLon = Math.toRadians(b.longitude() - a.longitude());
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(a.latitude())) * Math.cos(Math.toRadians(b.latitude()))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_MILES * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    private void update(Change change) {
+        synchronized (updateLock) {
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+            put(profiles, cells, change.userId(), change.profile());
+        }
+    }
+
+    // Move a user to their new cell, or out of the index when profile is null
+    private void put(Map<Long, Profile> profileMap, Map<Long, Set<Long>> cellMap, long userId, Profile profile) {
+        Profile previous = profile == null ? profileMap.remove(userId) : profileMap.put(userId, profile);
+        if (previous != null) {
+            long previousCell = cellKey(previous);
+            Set<Long> ids = cellMap.get(previousCell);
+            if (ids != null) {
+                ids.remove(userId);
+                if (ids.isEmpty()) {
+                    cellMap.remove(previousCell);
+                }
+            }
+        }
+        if (profile != null) {
+            cellMap.computeIfAbsent(cellKey(profile), k -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+    }
+
+    private long cellKey(Profile profile) {
+        return key(cellOf(profile.latitude()), cellOf(profile.longitude()));
+    }
+
+    private long cellOf(double degrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long key(long latCell, long lonCell) {
+        return (latCell << 32) | (lonCell & 0xFFFFFFFFL);
+    }
+
+    private void publish(String event) {
+        try {
+            ClusterMessages.publish(redisTemplate, EVENT_CHANNEL, event);
+        } catch (Exception e) {
+            // Other nodes pick the change up at their next reload
+            logger.error("Failed to publish dating index event {}", event, e);
+        }
+    }
+}
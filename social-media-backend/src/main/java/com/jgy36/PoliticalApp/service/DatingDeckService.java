@@ -0,0 +1,432 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.utils.RedisScriptUtils;
+import com.jgy36.PoliticalApp.utils.TransactionUtils;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Precomputed candidate decks for dating mode, so opening the app and swiping never build a deck on
+ * the request path.
+ * <ul>
+ *     <li>Every night each recently active dating user gets a ranked deck of a few hundred candidates:
+ *     the nearest eligible profiles from {@link DatingCandidateIndex}, minus everyone already swiped on,
+ *     ranked by distance, age fit, shared communities and political alignment.</li>
+ *     <li>A deck is stored as a Redis list of user ids. A swipe removes its target from the front of the
+ *     list, which is where the target almost always is, so this is effectively a pop.</li>
+ *     <li>Profile and community changes, and decks running low, mark the user stale. Stale users are
+ *     rebuilt every few minutes, so decks keep up during the day.</li>
+ * </ul>
+ */
+@Service
+public class DatingDeckService {
+    private static final Logger logger = LoggerFactory.getLogger(DatingDeckService.class);
+    private static final String DECK_KEY_PREFIX = "dating:deck:";
+    private static final String STALE_KEY = "dating:deck:stale";
+    private static final String REBUILD_LOCK_KEY = "dating:deck:rebuild-lock";
+    private static final Duration REBUILD_LOCK_TTL = Duration.ofHours(2);
+
+    // Closeness counts most; everything else refines the order within a similar distance
+    private static final double DISTANCE_WEIGHT = 3.0;
+    private static final double AGE_FIT_WEIGHT = 1.0;
+    private static final double SHARED_COMMUNITY_WEIGHT = 2.0;
+    private static final double ALIGNMENT_WEIGHT = 2.0;
+    private static final int MAX_COUNTED_SHARED_COMMUNITIES = 5;
+
+    // Where the default political communities (see CommunityService) sit on a left-right axis
+    private static final Map<String, Integer> LEANING_BY_SLUG = Map.of(
+            "socialist", -2,
+            "democrat", -1,
+            "independent", 0,
+            "libertarian", 1,
+            "republican", 1,
+            "conservative", 2);
+    private static final double MAX_LEANING_GAP = 4.0;
+
+    private static final String ACTIVE_DATING_USERS_SQL =
+            "SELECT dp.user_id FROM dating_profile dp JOIN users u ON u.id = dp.user_id " +
+                    "WHERE dp.is_active = true AND u.last_active >= ?";
+    private static final String MEMBERSHIPS_SQL =
+            "SELECT cm.user_id, cm.community_id, c.slug FROM community_members cm " +
+                    "JOIN communities c ON c.id = cm.community_id " +
+                    "JOIN dating_profile dp ON dp.user_id = cm.user_id WHERE dp.is_active = true";
+
+    private record Ranked(long userId, double score) {
+    }
+
+    // Sorted community ids per dating user, and their average political leaning where they have one
+    private record Memberships(Map<Long, long[]> communitiesByUser, Map<Long, Double> leaningByUser, long loadedAt) {
+    }
+
+    /**
+     * Candidate user ids for one page of a stored deck, and the deck entry to continue after (null on the last page)
+     */
+    public record DeckPage(List<Long> userIds, Long lastUserId) {
+    }
+
+    private final DatingCandidateIndex candidateIndex;
+    private final SwipeBitmaps swipeBitmaps;
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+
+    private final int deckSize;
+    private final int poolSize;
+    private final Duration deckTtl;
+    private final int activeDays;
+    private final int refillBelow;
+    private final int staleBatchSize;
+    private final long membershipsMaxAgeMs;
+    private final int parallelism;
+
+    // Community memberships from the last load; stale refreshes reuse them for the candidates' side
+    private volatile Memberships memberships;
+
+    public DatingDeckService(DatingCandidateIndex candidateIndex,
+                             SwipeBitmaps swipeBitmaps,
+                             JdbcTemplate jdbcTemplate,
+                             StringRedisTemplate redisTemplate,
+                             @Value("${app.dating.deck.size:300}") int deckSize,
+                             @Value("${app.dating.deck.pool-size:1000}") int poolSize,
+                             @Value("${app.dating.deck.ttl-hours:36}") long deckTtlHours,
+                             @Value("${app.dating.deck.active-days:30}") int activeDays,
+                             @Value("${app.dating.deck.refill-below:50}") int refillBelow,
+                             @Value("${app.dating.deck.stale-batch-size:200}") int staleBatchSize,
+                             @Value("${app.dating.deck.memberships-max-age-ms:3600000}") long membershipsMaxAgeMs,
+                             @Value("${app.dating.deck.parallelism:0}") int parallelism) {
+        this.candidateIndex = candidateIndex;
+        this.swipeBitmaps = swipeBitmaps;
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.deckSize = deckSize;
+        this.poolSize = poolSize;
+        this.deckTtl = Duration.ofHours(deckTtlHours);
+        this.activeDays = activeDays;
+        this.refillBelow = refillBelow;
+        this.staleBatchSize = staleBatchSize;
+        this.membershipsMaxAgeMs = membershipsMaxAgeMs;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * A page of the user's stored deck, continuing after the given entry (from the front if it is null or
+     * has been swiped off since) and skipping anyone swiped on or no longer a candidate since it was built;
+     * null if the user has no deck yet, in which case one is queued.
+     * <p>
+     * Pages are addressed by entry rather than by offset because swipes remove entries from the front.
+     */
+    public DeckPage getPage(Long userId, Long afterUserId, int limit) {
+        String key = DECK_KEY_PREFIX + userId;
+        Long size = redisTemplate.opsForList().size(key);
+        if (size == null || size == 0) {
+            markStale(userId);
+            return null;
+        }
+        if (size < refillBelow) {
+            markStale(userId);
+        }
+
+        long start = 0;
+        if (afterUserId != null) {
+            Long index = redisTemplate.opsForList().indexOf(key, afterUserId.toString());
+            start = index != null ? index + 1 : 0;
+        }
+        List<String> ids = redisTemplate.opsForList().range(key, start, start + limit - 1);
+        if (ids == null || ids.isEmpty()) {
+            return new DeckPage(new ArrayList<>(), null);
+        }
+
+        Roaring64Bitmap swiped = swipeBitmaps.getSwiped(userId);
+        boolean indexReady = candidateIndex.isReady();
+        List<Long> page = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            long candidateId = Long.parseLong(id);
+            if (!swiped.contains(candidateId)
+                    && (!indexReady || candidateIndex.getProfile(candidateId) != null)) {
+                page.add(candidateId);
+            }
+        }
+        Long lastUserId = start + ids.size() < size ? Long.valueOf(ids.get(ids.size() - 1)) : null;
+        return new DeckPage(page, lastUserId);
+    }
+
+    /**
+     * Take a swiped target out of the swiper's deck once the current transaction commits
+     */
+    public void consume(Long swiperId, Long targetId) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                redisTemplate.opsForList().remove(DECK_KEY_PREFIX + swiperId, 1, targetId.toString());
+            } catch (Exception e) {
+                // Serving filters swiped users anyway
+                logger.warn("Failed to remove user {} from the deck of user {}: {}", targetId, swiperId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Queue a user's deck for rebuilding once the current transaction commits
+     */
+    public void markStale(Long userId) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                redisTemplate.opsForSet().add(STALE_KEY, userId.toString());
+            } catch (Exception e) {
+                // The next nightly rebuild picks the change up
+                logger.warn("Failed to mark dating deck stale for user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Rebuild the deck of every recently active dating user
+     */
+    public void rebuild() {
+        if (!candidateIndex.isReady()) {
+            logger.info("Dating candidate index not loaded yet, skipping deck rebuild");
+            return;
+        }
+        // One node at a time; the lock expires on its own if the node dies mid-run
+        String lockToken = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, lockToken, REBUILD_LOCK_TTL))) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long[] userIds = loadActiveDatingUserIds();
+            Memberships loaded = loadMemberships();
+            memberships = loaded;
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.submit(() -> Arrays.stream(userIds).parallel().forEach(userId -> buildSafely(userId, loaded))).join();
+            } finally {
+                pool.shutdown();
+            }
+            logger.info("Rebuilt dating decks for {} users in {} ms", userIds.length, System.currentTimeMillis() - start);
+        } finally {
+            // A run that outlived the TTL must not free the lock another node now holds
+            RedisScriptUtils.releaseLock(redisTemplate, REBUILD_LOCK_KEY, lockToken);
+        }
+    }
+
+    /**
+     * Rebuild the decks of users whose profile or communities changed, or whose deck ran low
+     */
+    public void refreshStale() {
+        if (!candidateIndex.isReady()) {
+            return;
+        }
+        List<String> popped = redisTemplate.opsForSet().pop(STALE_KEY, staleBatchSize);
+        if (popped == null || popped.isEmpty()) {
+            return;
+        }
+
+        Memberships current = memberships;
+        if (current == null || System.currentTimeMillis() - current.loadedAt() > membershipsMaxAgeMs) {
+            current = loadMemberships();
+            memberships = current;
+        } else {
+            // The stale users' own memberships may be what changed
+            current = withFreshMemberships(current, popped.stream().map(Long::parseLong).toList());
+        }
+
+        try {
+            for (String userId : popped) {
+                buildDeck(Long.parseLong(userId), current);
+            }
+        } catch (RuntimeException e) {
+            // Put them back for the next run
+            redisTemplate.opsForSet().add(STALE_KEY, popped.toArray(new String[0]));
+            throw e;
+        }
+    }
+
+    private void buildSafely(long userId, Memberships loaded) {
+        try {
+            buildDeck(userId, loaded);
+        } catch (RuntimeException e) {
+            // One failed deck should not lose the others; the user is rebuilt on the next stale pass
+            logger.error("Failed to build dating deck for user {}", userId, e);
+            markStale(userId);
+        }
+    }
+
+    private void buildDeck(long userId, Memberships loaded) {
+        String key = DECK_KEY_PREFIX + userId;
+        DatingCandidateIndex.Profile seeker = candidateIndex.getProfile(userId);
+        if (seeker == null) {
+            redisTemplate.delete(key);
+            return;
+        }
+
+        List<DatingCandidateIndex.Candidate> pool =
+                candidateIndex.findCandidates(seeker, swipeBitmaps.getSwiped(userId), poolSize);
+        List<Ranked> ranked = rank(seeker, pool, loaded);
+        if (ranked.isEmpty()) {
+            redisTemplate.delete(key);
+            return;
+        }
+
+        String[] ids = new String[Math.min(ranked.size(), deckSize)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Long.toString(ranked.get(i).userId());
+        }
+        // Built under a temporary key and renamed over the old deck, so readers never see a partial one
+        String tmpKey = key + ":building";
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            redis.del(tmpKey);
+            redis.rPush(tmpKey, ids);
+            redis.expire(tmpKey, deckTtl.getSeconds());
+            redis.rename(tmpKey, key);
+            return null;
+        });
+    }
+
+    private List<Ranked> rank(DatingCandidateIndex.Profile seeker, List<DatingCandidateIndex.Candidate> pool,
+                              Memberships loaded) {
+        if (pool.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // The pool is nearest first, so the last candidate sets the distance scale
+        double farthest = Math.max(1, pool.get(pool.size() - 1).distanceMeters());
+        long[] seekerCommunities = loaded.communitiesByUser().get(seeker.userId());
+        Double seekerLeaning = loaded.leaningByUser().get(seeker.userId());
+
+        List<Ranked> ranked = new ArrayList<>(pool.size());
+        for (DatingCandidateIndex.Candidate candidate : pool) {
+            DatingCandidateIndex.Profile profile = candidateIndex.getProfile(candidate.userId());
+            if (profile == null) {
+                continue;
+            }
+            double distance = 1 - candidate.distanceMeters() / farthest;
+            double shared = Math.min(countShared(seekerCommunities, loaded.communitiesByUser().get(candidate.userId())),
+                    MAX_COUNTED_SHARED_COMMUNITIES) / (double) MAX_COUNTED_SHARED_COMMUNITIES;
+            double alignment = alignment(seekerLeaning, loaded.leaningByUser().get(candidate.userId()));
+            double score = DISTANCE_WEIGHT * distance
+                    + AGE_FIT_WEIGHT * ageFit(seeker, profile.age())
+                    + SHARED_COMMUNITY_WEIGHT * shared
+                    + ALIGNMENT_WEIGHT * alignment;
+            ranked.add(new Ranked(candidate.userId(), score));
+        }
+        ranked.sort(Comparator.comparingDouble(Ranked::score).reversed().thenComparingLong(Ranked::userId));
+        return ranked;
+    }
+
+    // 1 at the middle of the seeker's age range (or at their own age without one), falling to 0 at its edges
+    private static double ageFit(DatingCandidateIndex.Profile seeker, Integer age) {
+        if (age == null) {
+            return 0;
+        }
+        if (seeker.minAge() != null && seeker.maxAge() != null) {
+            double middle = (seeker.minAge() + seeker.maxAge()) / 2.0;
+            double halfRange = Math.max(1, (seeker.maxAge() - seeker.minAge()) / 2.0);
+            return Math.max(0, 1 - Math.abs(age - middle) / halfRange);
+        }
+        if (seeker.age() != null) {
+            return Math.max(0, 1 - Math.abs(age - seeker.age()) / 10.0);
+        }
+        return 0.5;
+    }
+
+    // 1 for the same leaning, 0 for opposite ends, and 0 when either side has none
+    private static double alignment(Double a, Double b) {
+        if (a == null || b == null) {
+            return 0;
+        }
+        return 1 - Math.abs(a - b) / MAX_LEANING_GAP;
+    }
+
+    private static int countShared(long[] a, long[] b) {
+        if (a == null || b == null) {
+            return 0;
+        }
+        int shared = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    private long[] loadActiveDatingUserIds() {
+        Roaring64Bitmap ids = new Roaring64Bitmap();
+        jdbcTemplate.query(ACTIVE_DATING_USERS_SQL,
+                rs -> {
+                    ids.addLong(rs.getLong(1));
+                },
+                Timestamp.valueOf(LocalDateTime.now().minusDays(activeDays)));
+        return ids.toArray();
+    }
+
+    private Memberships loadMemberships() {
+        long loadedAt = System.currentTimeMillis();
+        Map<Long, Roaring64Bitmap> communities = new HashMap<>();
+        Map<Long, List<Integer>> leanings = new HashMap<>();
+        jdbcTemplate.query(MEMBERSHIPS_SQL, rs -> {
+            collect(rs.getLong(1), rs.getLong(2), rs.getString(3), communities, leanings);
+        });
+        Map<Long, long[]> communitiesByUser = new HashMap<>(communities.size() * 2);
+        communities.forEach((userId, ids) -> communitiesByUser.put(userId, ids.toArray()));
+        Map<Long, Double> leaningByUser = new HashMap<>(leanings.size() * 2);
+        leanings.forEach((userId, values) -> leaningByUser.put(userId, average(values)));
+        return new Memberships(communitiesByUser, leaningByUser, loadedAt);
+    }
+
+    // A copy of the loaded memberships with the given users' rows re-read
+    private Memberships withFreshMemberships(Memberships current, List<Long> userIds) {
+        Map<Long, Roaring64Bitmap> communities = new HashMap<>();
+        Map<Long, List<Integer>> leanings = new HashMap<>();
+        String sql = MEMBERSHIPS_SQL + " AND cm.user_id IN (" + String.join(",", Collections.nCopies(userIds.size(), "?")) + ")";
+        jdbcTemplate.query(sql, rs -> {
+            collect(rs.getLong(1), rs.getLong(2), rs.getString(3), communities, leanings);
+        }, userIds.toArray());
+
+        Map<Long, long[]> communitiesByUser = new HashMap<>(current.communitiesByUser());
+        Map<Long, Double> leaningByUser = new HashMap<>(current.leaningByUser());
+        for (Long userId : userIds) {
+            communitiesByUser.remove(userId);
+            leaningByUser.remove(userId);
+        }
+        communities.forEach((userId, ids) -> communitiesByUser.put(userId, ids.toArray()));
+        leanings.forEach((userId, values) -> leaningByUser.put(userId, average(values)));
+        return new Memberships(communitiesByUser, leaningByUser, current.loadedAt());
+    }
+
+    private static void collect(long userId, long communityId, String slug,
+                                Map<Long, Roaring64Bitmap> communities, Map<Long, List<Integer>> leanings) {
+        communities.computeIfAbsent(userId, id -> new Roaring64Bitmap()).addLong(communityId);
+        Integer leaning = slug != null ? LEANING_BY_SLUG.get(slug) : null;
+        if (leaning != null) {
+            leanings.computeIfAbsent(userId, id -> new ArrayList<>()).add(leaning);
+        }
+    }
+
+    private static double average(List<Integer> values) {
+        double sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum / values.size();
+    }
+}
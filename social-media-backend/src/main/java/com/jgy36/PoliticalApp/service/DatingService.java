@@ -1,19 +1,55 @@
 package com.jgy36.PoliticalApp.service;
 
+import com.jgy36.PoliticalApp.dto.CursorPageDTO;
 import com.jgy36.PoliticalApp.entity.*;
 import com.jgy36.PoliticalApp.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 
 @Service
 @Transactional
 public class DatingService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DatingService.class);
+    public static final int MAX_PAGE_SIZE = 50;
+
+    // Position in a candidate deck, opaque to clients: the last entry served from the user's precomputed
+    // deck, or the (distance, user id) of the last candidate returned from a deck built on demand
+    private record DeckCursor(boolean stored, long distanceMeters, long userId) {
+        static DeckCursor afterStored(long userId) {
+            return new DeckCursor(true, 0, userId);
+        }
+
+        String encode() {
+            String raw = stored ? "s|" + userId : "d|" + distanceMeters + "|" + userId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static DeckCursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                if (parts[0].equals("s")) {
+                    return afterStored(Long.parseLong(parts[1]));
+                }
+                return new DeckCursor(false, Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        boolean isBefore(DatingCandidateIndex.Candidate candidate) {
+            return distanceMeters < candidate.distanceMeters()
+                    || (distanceMeters == candidate.distanceMeters() && userId < candidate.userId());
+        }
+    }
+
     @Autowired
     private DatingProfileRepository datingProfileRepository;
 
@@ -23,6 +59,22 @@ public class DatingService {
     @Autowired
     private MatchRepository matchRepository;
 
+    @Autowired
+    private DatingCandidateIndex candidateIndex;
+
+    @Autowired
+    private SwipeBitmaps swipeBitmaps;
+
+    @Autowired
+    private LocationGeocoder locationGeocoder;
+
+    @Autowired
+    private DatingDeckService deckService;
+
+    // Upper bound on the candidates considered per request, nearest first
+    @Value("${app.dating.deck-size:500}")
+    private int deckSize;
+
     public DatingProfile createOrUpdateDatingProfile(User user, DatingProfile profileData) {
         Optional<DatingProfile> existingProfile = datingProfileRepository.findByUser(user);
 
@@ -32,52 +84,178 @@ public class DatingService {
             profile.setBio(profileData.getBio());
             profile.setAge(profileData.getAge());
             profile.setLocation(profileData.getLocation());
+            profile.setLatitude(profileData.getLatitude());
+            profile.setLongitude(profileData.getLongitude());
+            profile.setGender(profileData.getGender());
             profile.setPhotos(profileData.getPhotos());
             profile.setGenderPreference(profileData.getGenderPreference());
             profile.setMinAge(profileData.getMinAge());
             profile.setMaxAge(profileData.getMaxAge());
             profile.setMaxDistance(profileData.getMaxDistance());
-            return datingProfileRepository.save(profile);
+            return saveAndIndex(profile);
         } else {
             profileData.setUser(user);
             profileData.setIsActive(true);
-            return datingProfileRepository.save(profileData);
+            return saveAndIndex(profileData);
         }
     }
 
-    public List<DatingProfile> getPotentialMatches(User user) {
-        return datingProfileRepository.findActiveDatingProfilesExcludingUser(user.getId());
+    /**
+     * One page of the user's candidate deck. Served from the precomputed deck (see {@link DatingDeckService})
+     * when there is one; otherwise built on demand, nearest first: active profiles within distance that fit
+     * both sides' age and gender preferences and that the user has not swiped on yet. Empty until the
+     * user's own profile has a location.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<DatingProfile> getPotentialMatches(User user, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        DeckCursor after = cursor == null || cursor.isBlank() ? null : DeckCursor.decode(cursor);
+
+        if (after == null || after.stored()) {
+            DatingDeckService.DeckPage stored =
+                    deckService.getPage(user.getId(), after == null ? null : after.userId(), pageSize);
+            if (stored != null) {
+                String nextCursor = stored.lastUserId() != null ? DeckCursor.afterStored(stored.lastUserId()).encode() : null;
+                return new CursorPageDTO<>(loadProfiles(stored.userIds()), nextCursor);
+            }
+            // No stored deck (it is queued now); start an on-demand one
+            after = null;
+        }
+
+        DatingCandidateIndex.Profile seeker = datingProfileRepository.findByUser(user)
+                .map(DatingCandidateIndex.Profile::of)
+                .orElse(null);
+        if (seeker == null) {
+            return new CursorPageDTO<>(new ArrayList<>(), null);
+        }
+
+        List<DatingCandidateIndex.Candidate> deck =
+                candidateIndex.findCandidates(seeker, swipeBitmaps.getSwiped(user.getId()), deckSize);
+
+        int start = 0;
+        if (after != null) {
+            while (start < deck.size() && !after.isBefore(deck.get(start))) {
+                start++;
+            }
+        }
+        List<DatingCandidateIndex.Candidate> page = deck.subList(start, Math.min(start + pageSize, deck.size()));
+        List<DatingProfile> items = loadProfiles(page.stream().map(DatingCandidateIndex.Candidate::userId).toList());
+
+        String nextCursor = null;
+        if (start + pageSize < deck.size()) {
+            DatingCandidateIndex.Candidate last = page.get(page.size() - 1);
+            nextCursor = new DeckCursor(false, last.distanceMeters(), last.userId()).encode();
+        }
+        return new CursorPageDTO<>(items, nextCursor);
     }
 
-    public Match swipeUser(User swiper, User target, SwipeDirection direction) {
-        // Check if already swiped
-        if (swipeRepository.existsBySwiperAndTarget(swiper, target)) {
-            throw new RuntimeException("Already swiped on this user");
-        }
-
-        // Record the swipe
-        Swipe swipe = new Swipe();
-        swipe.setSwiper(swiper);
-        swipe.setTarget(target);
-        swipe.setDirection(direction);
-        swipe.setSwipedAt(LocalDateTime.now());
-        swipeRepository.save(swipe);
-
-        // Check for match if it was a LIKE
-        if (direction == SwipeDirection.LIKE) {
-            Optional<Swipe> reciprocalSwipe = swipeRepository.findBySwiperAndTarget(target, swiper);
-            if (reciprocalSwipe.isPresent() && reciprocalSwipe.get().getDirection() == SwipeDirection.LIKE) {
-                // It's a match!
-                Match match = new Match();
-                match.setUser1(swiper);
-                match.setUser2(target);
-                match.setMatchedAt(LocalDateTime.now());
-                match.setIsActive(true);
-                return matchRepository.save(match);
+    // The profiles of the given users in one query, in the given order
+    private List<DatingProfile> loadProfiles(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, DatingProfile> byUserId = new HashMap<>();
+        for (DatingProfile profile : datingProfileRepository.findByUserIdIn(userIds)) {
+            byUserId.put(profile.getUser().getId(), profile);
+        }
+        List<DatingProfile> items = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            DatingProfile profile = byUserId.get(userId);
+            if (profile != null) {
+                items.add(profile);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Geocode the location text of profiles that have no coordinates yet (saved before they existed), so
+     * they can enter the candidate index. Profiles whose location is not recognized are left as they are.
+     *
+     * @return the number of profiles located
+     */
+    public int geocodeMissingLocations() {
+        int located = 0;
+        long lastId = 0;
+        List<DatingProfile> batch;
+        do {
+            batch = datingProfileRepository.findTop500ByLatitudeIsNullAndLocationIsNotNullAndIdGreaterThanOrderByIdAsc(lastId);
+            List<DatingProfile> changed = new ArrayList<>();
+            for (DatingProfile profile : batch) {
+                locationGeocoder.geocode(profile.getLocation()).ifPresent(coordinates -> {
+                    profile.setLatitude(coordinates.latitude());
+                    profile.setLongitude(coordinates.longitude());
+                    changed.add(profile);
+                });
+                lastId = profile.getId();
             }
+            datingProfileRepository.saveAll(changed);
+            located += changed.size();
+        } while (!batch.isEmpty());
+
+        if (located > 0) {
+            logger.info("Geocoded {} dating profiles without coordinates", located);
         }
+        return located;
+    }
+
+    // Locate the profile from its location text unless the client sent coordinates
+    private DatingProfile saveAndIndex(DatingProfile profile) {
+        if (profile.getLatitude() == null || profile.getLongitude() == null) {
+            locationGeocoder.geocode(profile.getLocation()).ifPresentOrElse(coordinates -> {
+                profile.setLatitude(coordinates.latitude());
+                profile.setLongitude(coordinates.longitude());
+            }, () -> {
+                profile.setLatitude(null);
+                profile.setLongitude(null);
+            });
+        }
+        DatingProfile saved = datingProfileRepository.save(profile);
+        candidateIndex.recordProfile(saved);
+        deckService.markStale(saved.getUser().getId());
+        return saved;
+    }
+
+    /**
+     * Record a swipe and, if it completes a mutual like, the match. Safe to retry and to race:
+     * <ul>
+     *     <li>Swipes are unique per (swiper, target). Repeating a swipe changes nothing and returns the
+     *     pair's current match.</li>
+     *     <li>Matches are unique per pair, stored with the lower user id first.</li>
+     *     <li>Swipes between the same two users take turns on a transaction-scoped advisory lock. Of two
+     *     simultaneous likes, the second always sees the first and creates the one match.</li>
+     * </ul>
+     *
+     * @return the pair's active match, or null if they have not matched
+     */
+    public Match swipeUser(User swiper, User target, SwipeDirection direction) {
+        Long swiperId = swiper.getId();
+        Long targetId = target.getId();
+        if (swiperId.equals(targetId)) {
+            throw new IllegalArgumentException("Cannot swipe on yourself");
+        }
+        long user1Id = Math.min(swiperId, targetId);
+        long user2Id = Math.max(swiperId, targetId);
+
+        swipeRepository.lockTransaction(pairLockKey(user1Id, user2Id));
+        if (swipeRepository.insertIfAbsent(swiperId, targetId, direction.name()) == 0) {
+            // A retry, or a second swipe on the same user: the first one stands
+            return matchRepository.findByUser1IdAndUser2IdAndIsActiveTrue(user1Id, user2Id).orElse(null);
+        }
+        swipeBitmaps.recordSwipe(swiperId, targetId);
+        deckService.consume(swiperId, targetId);
+
+        if (direction != SwipeDirection.LIKE) {
+            return null;
+        }
+        // Checked against the swipe table, not the bitmaps: a like from another node may not have reached them
+        matchRepository.insertIfLikedBack(user1Id, user2Id, swiperId, targetId);
+        return matchRepository.findByUser1IdAndUser2IdAndIsActiveTrue(user1Id, user2Id).orElse(null);
+    }
 
-        return null; // No match
+    // Advisory lock key for a pair of users, in either order; a collision between pairs only makes them take turns
+    private static long pairLockKey(long user1Id, long user2Id) {
+        return (user1Id << 32) ^ user2Id;
     }
 
     public List<Match> getUserMatches(User user) {
@@ -0,0 +1,56 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.repository.FollowRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The single write path for follow edges. Every follow and unfollow goes through here, so the follows
+ * table, the in-memory graph, the user_stats counters and suggestion staleness change together, and only
+ * when the edge actually changed.
+ */
+@Service
+public class FollowEdgeService {
+    private final FollowRepository followRepository;
+    private final FollowGraph followGraph;
+    private final UserStatsService userStatsService;
+    private final FollowSuggestionService followSuggestionService;
+
+    public FollowEdgeService(FollowRepository followRepository,
+                             FollowGraph followGraph,
+                             UserStatsService userStatsService,
+                             FollowSuggestionService followSuggestionService) {
+        this.followRepository = followRepository;
+        this.followGraph = followGraph;
+        this.userStatsService = userStatsService;
+        this.followSuggestionService = followSuggestionService;
+    }
+
+    /**
+     * Create the edge; false if it already existed
+     */
+    @Transactional
+    public boolean follow(Long followerId, Long followingId) {
+        if (followRepository.insertIfAbsent(followerId, followingId) == 0) {
+            return false;
+        }
+        followGraph.recordFollow(followerId, followingId);
+        userStatsService.recordFollow(followerId, followingId);
+        followSuggestionService.markStale(followerId);
+        return true;
+    }
+
+    /**
+     * Remove the edge; false if there was none
+     */
+    @Transactional
+    public boolean unfollow(Long followerId, Long followingId) {
+        if (followRepository.deleteEdge(followerId, followingId) == 0) {
+            return false;
+        }
+        followGraph.recordUnfollow(followerId, followingId);
+        userStatsService.recordUnfollow(followerId, followingId);
+        followSuggestionService.markStale(followerId);
+        return true;
+    }
+}
@@ -0,0 +1,340 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.repository.FollowRepository;
+import com.jgy36.PoliticalApp.utils.ClusterMessages;
+import com.jgy36.PoliticalApp.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The follow graph held in memory as compressed bitmaps of user ids, one per user and direction.
+ * Loaded from the follows table at startup (and periodically, to repair anything missed), then kept
+ * current by follow/unfollow events, which are applied after commit and broadcast to the other nodes.
+ * Until the first load completes, every query falls back to the database.
+ * <p>
+ * Bitmaps are copy-on-write: readers never lock, and an update replaces the bitmap it changes.
+ */
+@Service
+public class FollowGraph implements MessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(FollowGraph.class);
+    private static final String EVENT_CHANNEL = "cache:follow-graph";
+    private static final String LOAD_SQL = "SELECT follower_id, following_id FROM follows";
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    private record Edge(long followerId, long followingId, boolean added) {
+    }
+
+    private final FollowRepository followRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    // userId -> ids they follow / ids following them
+    private volatile Map<Long, Roaring64Bitmap> following = new ConcurrentHashMap<>();
+    private volatile Map<Long, Roaring64Bitmap> followers = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Serializes updates with the swap at the end of a reload; edges seen during a reload are replayed onto it
+    private final Object updateLock = new Object();
+    private List<Edge> changesDuringReload;
+
+    public FollowGraph(FollowRepository followRepository,
+                       JdbcTemplate jdbcTemplate,
+                       StringRedisTemplate redisTemplate,
+                       RedisMessageListenerContainer listenerContainer) {
+        this.followRepository = followRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVENT_CHANNEL));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Rebuild the graph from the follows table
+     */
+    @Transactional(readOnly = true)
+    public void reload() {
+        synchronized (updateLock) {
+            changesDuringReload = new ArrayList<>();
+        }
+
+        long start = System.currentTimeMillis();
+        Map<Long, Roaring64Bitmap> loadedFollowing = new HashMap<>();
+        Map<Long, Roaring64Bitmap> loadedFollowers = new HashMap<>();
+        long[] edges = {0};
+        try {
+            // Streamed with a fetch size (needs the read-only transaction on PostgreSQL)
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(LOAD_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(LOAD_FETCH_SIZE);
+                return statement;
+            }, rs -> {
+                long followerId = rs.getLong(1);
+                long followingId = rs.getLong(2);
+                loadedFollowing.computeIfAbsent(followerId, id -> new Roaring64Bitmap()).addLong(followingId);
+                loadedFollowers.computeIfAbsent(followingId, id -> new Roaring64Bitmap()).addLong(followerId);
+                edges[0]++;
+            });
+        } catch (RuntimeException e) {
+            synchronized (updateLock) {
+                changesDuringReload = null;
+            }
+            throw e;
+        }
+        loadedFollowing.values().forEach(Roaring64Bitmap::runOptimize);
+        loadedFollowers.values().forEach(Roaring64Bitmap::runOptimize);
+
+        synchronized (updateLock) {
+            // Replay in order: the scan may or may not have seen each of these, and add/remove are idempotent
+            for (Edge edge : changesDuringReload) {
+                apply(loadedFollowing, edge.followerId(), edge.followingId(), edge.added());
+                apply(loadedFollowers, edge.followingId(), edge.followerId(), edge.added());
+            }
+            changesDuringReload = null;
+            following = new ConcurrentHashMap<>(loadedFollowing);
+            followers = new ConcurrentHashMap<>(loadedFollowers);
+            ready = true;
+        }
+        logger.info("Follow graph loaded: {} edges, {} users in {} ms",
+                edges[0], loadedFollowing.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isFollowing(Long followerId, Long followingId) {
+        if (followerId == null || followingId == null) {
+            return false;
+        }
+        if (!ready) {
+            return followRepository.existsByFollowerIdAndFollowingId(followerId, followingId);
+        }
+        Roaring64Bitmap ids = following.get(followerId);
+        return ids != null && ids.contains(followingId);
+    }
+
+    /**
+     * Both users follow each other
+     */
+    public boolean areMutual(Long userId, Long otherUserId) {
+        return isFollowing(userId, otherUserId) && isFollowing(otherUserId, userId);
+    }
+
+    public int getFollowerCount(Long userId) {
+        if (!ready) {
+            return followRepository.countFollowersByFollowingId(userId);
+        }
+        Roaring64Bitmap ids = followers.get(userId);
+        return ids == null ? 0 : (int) ids.getLongCardinality();
+    }
+
+    public int getFollowingCount(Long userId) {
+        if (!ready) {
+            return followRepository.countFollowingByFollowerId(userId);
+        }
+        Roaring64Bitmap ids = following.get(userId);
+        return ids == null ? 0 : (int) ids.getLongCardinality();
+    }
+
+    /**
+     * How many of the accounts the viewer follows also follow the target ("followed by ... and N others")
+     */
+    public int getMutualFollowerCount(Long viewerId, Long targetUserId) {
+        if (!ready) {
+            return followRepository.countMutualFollowers(viewerId, targetUserId);
+        }
+        Roaring64Bitmap viewerFollowing = following.get(viewerId);
+        Roaring64Bitmap targetFollowers = followers.get(targetUserId);
+        if (viewerFollowing == null || targetFollowers == null) {
+            return 0;
+        }
+        Roaring64Bitmap mutual = viewerFollowing.clone();
+        mutual.and(targetFollowers);
+        return (int) mutual.getLongCardinality();
+    }
+
+    /**
+     * Ids of the accounts a user follows
+     */
+    public List<Long> getFollowingIds(Long userId) {
+        if (!ready) {
+            return followRepository.findFollowingIdsByFollowerId(userId);
+        }
+        return toList(following.get(userId));
+    }
+
+    /**
+     * Ids of the accounts following a user
+     */
+    public List<Long> getFollowerIds(Long userId) {
+        if (!ready) {
+            return followRepository.findFollowerIdsByFollowingId(userId);
+        }
+        return toList(followers.get(userId));
+    }
+
+    /**
+     * Ids a user follows as a sorted primitive array, for batch jobs that walk the graph without boxing.
+     * Empty until the first load.
+     */
+    public long[] getFollowingArray(long userId) {
+        Roaring64Bitmap ids = following.get(userId);
+        return ids == null ? new long[0] : ids.toArray();
+    }
+
+    /**
+     * Which of the given users the viewer follows: one bitmap probe per id, or a single IN query
+     * before the first load
+     */
+    public Set<Long> getFollowedAmong(Long viewerId, Collection<Long> userIds) {
+        if (viewerId == null || userIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        if (!ready) {
+            return new HashSet<>(followRepository.findFollowedAmong(viewerId, userIds));
+        }
+        Roaring64Bitmap ids = following.get(viewerId);
+        Set<Long> followed = new HashSet<>();
+        if (ids != null) {
+            for (Long userId : userIds) {
+                if (ids.contains(userId)) {
+                    followed.add(userId);
+                }
+            }
+        }
+        return followed;
+    }
+
+    /**
+     * Record a new follow edge once the current transaction commits
+     */
+    public void recordFollow(Long followerId, Long followingId) {
+        TransactionUtils.afterCommit(() -> {
+            update(new Edge(followerId, followingId, true));
+            publish("follow:" + followerId + ":" + followingId);
+        });
+    }
+
+    /**
+     * Record a removed follow edge once the current transaction commits
+     */
+    public void recordUnfollow(Long followerId, Long followingId) {
+        TransactionUtils.afterCommit(() -> {
+            update(new Edge(followerId, followingId, false));
+            publish("unfollow:" + followerId + ":" + followingId);
+        });
+    }
+
+    /**
+     * Drop every edge of a deleted user once the current transaction commits
+     */
+    public void removeUser(Long userId) {
+        TransactionUtils.afterCommit(() -> {
+            removeUserLocally(userId);
+            publish("remove:" + userId);
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // follow:<follower>:<following>, unfollow:<follower>:<following> or remove:<userId>
+        String event = ClusterMessages.fromOtherNode(message);
+        String[] parts = event == null ? new String[0] : event.split(":");
+        if (parts.length < 2) {
+            return;
+        }
+        try {
+            switch (parts[0]) {
+                case "follow" -> update(new Edge(Long.parseLong(parts[1]), Long.parseLong(parts[2]), true));
+                case "unfollow" -> update(new Edge(Long.parseLong(parts[1]), Long.parseLong(parts[2]), false));
+                case "remove" -> removeUserLocally(Long.parseLong(parts[1]));
+                default -> logger.debug("Unknown follow graph event {}", parts[0]);
+            }
+        } catch (RuntimeException e) {
+            // Malformed message; the periodic reload repairs anything missed
+            logger.warn("Ignoring follow graph event: {}", e.getMessage());
+        }
+    }
+
+    private void update(Edge edge) {
+        synchronized (updateLock) {
+            if (changesDuringReload != null) {
+                changesDuringReload.add(edge);
+            }
+            updateCopy(following, edge.followerId(), edge.followingId(), edge.added());
+            updateCopy(followers, edge.followingId(), edge.followerId(), edge.added());
+        }
+    }
+
+    private void removeUserLocally(Long userId) {
+        synchronized (updateLock) {
+            for (long followingId : toList(following.get(userId))) {
+                update(new Edge(userId, followingId, false));
+            }
+            for (long followerId : toList(followers.get(userId))) {
+                update(new Edge(followerId, userId, false));
+            }
+        }
+    }
+
+    private void publish(String event) {
+        try {
+            ClusterMessages.publish(redisTemplate, EVENT_CHANNEL, event);
+        } catch (Exception e) {
+            logger.warn("Failed to publish follow graph event, other nodes catch up on reload: {}", e.getMessage());
+        }
+    }
+
+    // Replace the bitmap instead of mutating it, so concurrent readers always see a complete one
+    private static void updateCopy(Map<Long, Roaring64Bitmap> graph, long key, long value, boolean add) {
+        graph.compute(key, (id, current) -> {
+            Roaring64Bitmap next = current == null ? new Roaring64Bitmap() : current.clone();
+            if (add) {
+                next.addLong(value);
+            } else {
+                next.removeLong(value);
+            }
+            return next.isEmpty() ? null : next;
+        });
+    }
+
+    // Only for maps not yet visible to readers
+    private static void apply(Map<Long, Roaring64Bitmap> graph, long key, long value, boolean add) {
+        if (add) {
+            graph.computeIfAbsent(key, id -> new Roaring64Bitmap()).addLong(value);
+        } else {
+            Roaring64Bitmap ids = graph.get(key);
+            if (ids != null) {
+                ids.removeLong(value);
+            }
+        }
+    }
+
+    private static List<Long> toList(Roaring64Bitmap ids) {
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        List<Long> result = new ArrayList<>((int) ids.getLongCardinality());
+        ids.forEach(result::add);
+        return result;
+    }
+}
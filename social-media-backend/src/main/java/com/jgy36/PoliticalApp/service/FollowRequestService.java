@@ -1,11 +1,8 @@
 package com.jgy36.PoliticalApp.service;
 
-import com.jgy36.PoliticalApp.entity.Follow;
 import com.jgy36.PoliticalApp.entity.FollowRequest;
 import com.jgy36.PoliticalApp.entity.User;
-import com.jgy36.PoliticalApp.entity.UserPrivacySettings;
 import com.jgy36.PoliticalApp.exception.ResourceNotFoundException;
-import com.jgy36.PoliticalApp.repository.FollowRepository;
 import com.jgy36.PoliticalApp.repository.FollowRequestRepository;
 import com.jgy36.PoliticalApp.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,10 +28,13 @@ public class FollowRequestService {
     private PrivacySettingsService privacySettingsService;
 
     @Autowired
-    private FollowRepository followRepository;
+    private NotificationService notificationService;
 
     @Autowired
-    private NotificationService notificationService;
+    private FollowGraph followGraph;
+
+    @Autowired
+    private FollowEdgeService followEdgeService;
 
     /**
      * Create a follow request or direct follow based on target user's privacy settings
@@ -47,7 +47,7 @@ public class FollowRequestService {
         // Get current user using authentication context and email (like in UserController)
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
-        User currentUser = userRepository.findByEmail(email)
+        User currentUser = userRepository.findByPrincipal(authentication)
                 .orElseThrow(() -> new IllegalStateException("Current user not found by email: " + email));
 
         // Get target user
@@ -60,7 +60,7 @@ public class FollowRequestService {
         }
 
         // Check if already following
-        if (currentUser.getFollowing().contains(targetUser)) {
+        if (followGraph.isFollowing(currentUser.getId(), targetUser.getId())) {
             return true; // Already following
         }
 
@@ -76,22 +76,13 @@ public class FollowRequestService {
             return false; // Request already exists
         }
 
-        // Get privacy settings directly from the repository instead of user object
-        // This ensures we're getting the latest settings from the database
-        UserPrivacySettings privacySettings = privacySettingsService
-                .getSettings(targetUserId);
-
-        boolean isPrivate = !privacySettings.isPublicProfile();
-
-        System.out.println("CRITICAL DEBUG - Privacy check for user " + targetUser.getUsername());
-        System.out.println("Is private account? " + isPrivate);
-        System.out.println("Privacy settings: publicProfile=" + privacySettings.isPublicProfile());
+        // Privacy comes from the settings cache, which writers update on commit
+        boolean isPrivate = privacySettingsService.isAccountPrivate(targetUserId);
 
         // If account is public, directly follow
         if (!isPrivate) {
             System.out.println("Creating direct follow - public account");
-            currentUser.follow(targetUser);
-            userRepository.save(currentUser);
+            followEdgeService.follow(currentUser.getId(), targetUser.getId());
 
             // Create follow notification for public account
             notificationService.createNotification(
@@ -134,7 +125,7 @@ public class FollowRequestService {
         // Get current user
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
-        User currentUser = userRepository.findByEmail(email)
+        User currentUser = userRepository.findByPrincipal(authentication)
                 .orElseThrow(() -> new IllegalStateException("Current user not found by email: " + email));
 
         // Get the request
@@ -157,8 +148,7 @@ public class FollowRequestService {
 
         // Create the follow relationship
         User requester = request.getRequester();
-        Follow follow = new Follow(requester, currentUser);
-        followRepository.save(follow);
+        followEdgeService.follow(requester.getId(), currentUser.getId());
 
         // Create notification for request approval
         notificationService.createNotification(
@@ -181,7 +171,7 @@ public class FollowRequestService {
         // Get current user
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
-        User currentUser = userRepository.findByEmail(email)
+        User currentUser = userRepository.findByPrincipal(authentication)
                 .orElseThrow(() -> new IllegalStateException("Current user not found by email: " + email));
 
         // Get the request
@@ -1,36 +1,52 @@
 package com.jgy36.PoliticalApp.service;
 
-import com.jgy36.PoliticalApp.entity.Follow;
+import com.jgy36.PoliticalApp.config.AuthenticatedUser;
+import com.jgy36.PoliticalApp.dto.CursorPageDTO;
+import com.jgy36.PoliticalApp.dto.FollowUserDTO;
 import com.jgy36.PoliticalApp.entity.User;
 import com.jgy36.PoliticalApp.repository.FollowRepository;
 import com.jgy36.PoliticalApp.repository.UserRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class FollowService {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 100;
 
     private final FollowRepository followRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
     private final FollowRequestService followRequestService;
+    private final FollowGraph followGraph;
+    private final UserStatsService userStatsService;
+    private final FollowEdgeService followEdgeService;
 
-    public FollowService(FollowRepository followRepository, UserRepository userRepository, NotificationService notificationService, FollowRequestService followRequestService) {
+    public FollowService(FollowRepository followRepository, UserRepository userRepository, NotificationService notificationService, FollowRequestService followRequestService, FollowGraph followGraph, UserStatsService userStatsService, FollowEdgeService followEdgeService) {
         this.followRepository = followRepository;
         this.userRepository = userRepository;
         this.notificationService = notificationService;
         this.followRequestService = followRequestService;
+        this.followGraph = followGraph;
+        this.userStatsService = userStatsService;
+        this.followEdgeService = followEdgeService;
     }
 
     private User getAuthenticatedUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return userRepository.findByEmail(auth.getName())
+        return userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
 
@@ -44,12 +60,9 @@ public class FollowService {
             throw new IllegalArgumentException("You cannot follow yourself.");
         }
 
-        boolean wasAlreadyFollowing = followRepository.existsByFollowerAndFollowing(currentUser, userToFollow);
+        boolean wasAlreadyFollowing = !followEdgeService.follow(currentUser.getId(), userToFollow.getId());
 
         if (!wasAlreadyFollowing) {
-            Follow follow = new Follow(currentUser, userToFollow);
-            followRepository.save(follow);
-
             // Create notification for the followed user with updated format
             notificationService.createNotification(
                     userToFollow,
@@ -61,9 +74,10 @@ public class FollowService {
             );
         }
 
-        // Always return updated follow counts
-        int followersCount = getFollowerCount(userId);
-        int followingCount = getFollowingCount(userId);
+        // Always return updated follow counts (user_stats was updated in this transaction)
+        UserStatsService.UserStats stats = userStatsService.get(userId);
+        int followersCount = stats.followersCount();
+        int followingCount = stats.followingCount();
 
         // Explicitly specify the return type for Map.of to fix type inference error
         return Map.<String, Object>of(
@@ -85,15 +99,12 @@ public class FollowService {
         User userToUnfollow = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User to unfollow not found"));
 
-        boolean wasFollowing = followRepository.existsByFollowerAndFollowing(currentUser, userToUnfollow);
-
-        if (wasFollowing) {
-            followRepository.deleteByFollowerAndFollowing(currentUser, userToUnfollow);
-        }
+        boolean wasFollowing = followEdgeService.unfollow(currentUser.getId(), userToUnfollow.getId());
 
-        // Always return updated follow counts
-        int followersCount = getFollowerCount(userId);
-        int followingCount = getFollowingCount(userId);
+        // Always return updated follow counts (user_stats was updated in this transaction)
+        UserStatsService.UserStats stats = userStatsService.get(userId);
+        int followersCount = stats.followersCount();
+        int followingCount = stats.followingCount();
 
         // Explicitly specify the return type for Map.of to fix type inference error
         return Map.<String, Object>of(
@@ -107,98 +118,147 @@ public class FollowService {
 
     public boolean checkIfFollowing(Long targetUserId) {
         User currentUser = getAuthenticatedUser();
-        User targetUser = userRepository.findById(targetUserId)
-                .orElseThrow(() -> new IllegalArgumentException("Target user not found"));
+        if (!userRepository.existsById(targetUserId)) {
+            throw new IllegalArgumentException("Target user not found");
+        }
 
-        return followRepository.existsByFollowerAndFollowing(currentUser, targetUser);
+        return followGraph.isFollowing(currentUser.getId(), targetUserId);
     }
 
     public List<Long> getFollowingIds() {
         User currentUser = getAuthenticatedUser();
-        List<Follow> followings = followRepository.findByFollower(currentUser);
-        return followings.stream()
-                .map(follow -> follow.getFollowing().getId())
-                .collect(Collectors.toList());
+        return followGraph.getFollowingIds(currentUser.getId());
     }
 
-    public List<Map<String, Object>> getFollowers(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    /**
+     * Numbered page (from 1) of a user's followers, for clients that page with ?page=N.
+     * Offset based, so deep pages cost more than getFollowerPage.
+     */
+    public List<FollowUserDTO> getFollowers(Long userId, int page) {
+        return getNumberedPage(userId, page, true);
+    }
 
-        // Get current user to check if they follow each follower
-        User currentUser = null;
-        try {
-            currentUser = getAuthenticatedUser();
-        } catch (Exception e) {
-            // User not authenticated, continue without this info
+    public List<FollowUserDTO> getFollowing(Long userId, int page) {
+        return getNumberedPage(userId, page, false);
+    }
+
+    /**
+     * One page of a user's followers, most recent first, with the viewer's follow state per row
+     */
+    public CursorPageDTO<FollowUserDTO> getFollowerPage(Long userId, String cursor, int limit) {
+        return getPage(userId, cursor, limit, true);
+    }
+
+    /**
+     * One page of the accounts a user follows, most recent first, with the viewer's follow state per row
+     */
+    public CursorPageDTO<FollowUserDTO> getFollowingPage(Long userId, String cursor, int limit) {
+        return getPage(userId, cursor, limit, false);
+    }
+
+    private CursorPageDTO<FollowUserDTO> getPage(Long userId, String cursor, int limit, boolean followers) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
         }
 
-        final User finalCurrentUser = currentUser;
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells us whether another page exists
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        List<FollowUserDTO> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = followers
+                    ? followRepository.findFollowerPage(userId, pageable)
+                    : followRepository.findFollowingPage(userId, pageable);
+        } else {
+            Long beforeId = decodeCursor(cursor);
+            rows = followers
+                    ? followRepository.findFollowerPageBefore(userId, beforeId, pageable)
+                    : followRepository.findFollowingPageBefore(userId, beforeId, pageable);
+        }
 
-        return followRepository.findFollowersByFollowingId(userId).stream()
-                .map(follower -> {
-                    boolean isFollowing = finalCurrentUser != null &&
-                            followRepository.existsByFollowerAndFollowing(finalCurrentUser, follower);
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = encodeCursor(rows.get(pageSize - 1).getFollowId());
+        }
 
-                    return Map.<String, Object>of(
-                            "id", follower.getId(),
-                            "username", follower.getUsername(),
-                            "isFollowing", isFollowing
-                    );
-                })
-                .collect(Collectors.toList());
+        setViewerFollowState(rows);
+        return new CursorPageDTO<>(new ArrayList<>(rows), nextCursor);
     }
 
-    public List<Map<String, Object>> getFollowing(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    private List<FollowUserDTO> getNumberedPage(Long userId, int page, boolean followers) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
 
-        // Get current user to check if they follow each following
-        User currentUser = null;
-        try {
-            currentUser = getAuthenticatedUser();
-        } catch (Exception e) {
-            // User not authenticated, continue without this info
+        Pageable pageable = PageRequest.of(Math.max(page, 1) - 1, DEFAULT_PAGE_SIZE);
+        List<FollowUserDTO> rows = followers
+                ? followRepository.findFollowerPage(userId, pageable)
+                : followRepository.findFollowingPage(userId, pageable);
+
+        setViewerFollowState(rows);
+        return new ArrayList<>(rows);
+    }
+
+    // Viewer follow state for the whole page at once
+    private void setViewerFollowState(List<FollowUserDTO> rows) {
+        Long viewerId = getAuthenticatedUserIdOrNull();
+        if (viewerId != null && !rows.isEmpty()) {
+            Set<Long> followed = followGraph.getFollowedAmong(viewerId,
+                    rows.stream().map(FollowUserDTO::getId).collect(Collectors.toList()));
+            rows.forEach(row -> row.setIsFollowing(followed.contains(row.getId())));
         }
+    }
 
-        final User finalCurrentUser = currentUser;
+    private Long getAuthenticatedUserIdOrNull() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || "anonymousUser".equals(auth.getName())) {
+            return null;
+        }
+        if (auth.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        return userRepository.findByPrincipal(auth).map(User::getId).orElse(null);
+    }
 
-        return followRepository.findFollowingByFollowerId(userId).stream()
-                .map(following -> {
-                    boolean isFollowing = finalCurrentUser != null &&
-                            followRepository.existsByFollowerAndFollowing(finalCurrentUser, following);
+    private static String encodeCursor(Long followId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(followId.toString().getBytes(StandardCharsets.UTF_8));
+    }
 
-                    return Map.<String, Object>of(
-                            "id", following.getId(),
-                            "username", following.getUsername(),
-                            "isFollowing", isFollowing
-                    );
-                })
-                .collect(Collectors.toList());
+    private static Long decodeCursor(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 
     public int getFollowerCount(Long userId) {
-        return userRepository.countFollowers(userId);
+        return userStatsService.get(userId).followersCount();
     }
 
     public int getFollowingCount(Long userId) {
-        return userRepository.countFollowing(userId);
+        return userStatsService.get(userId).followingCount();
     }
 
     public int getPostCount(Long userId) {
-        return userRepository.countPosts(userId);
+        return userStatsService.get(userId).postsCount();
     }
 
     @Transactional(readOnly = true)
     public Map<String, Object> getFollowStatus(Long targetUserId) {
         try {
             User currentUser = getAuthenticatedUser();
-            User targetUser = userRepository.findById(targetUserId)
-                    .orElseThrow(() -> new IllegalArgumentException("Target user not found"));
-
-            boolean isFollowing = followRepository.existsByFollowerAndFollowing(currentUser, targetUser);
-            int followersCount = getFollowerCount(targetUserId);
-            int followingCount = getFollowingCount(targetUserId);
+            if (!userRepository.existsById(targetUserId)) {
+                throw new IllegalArgumentException("Target user not found");
+            }
+
+            boolean isFollowing = followGraph.isFollowing(currentUser.getId(), targetUserId);
+            UserStatsService.UserStats stats = userStatsService.get(targetUserId);
+            int followersCount = stats.followersCount();
+            int followingCount = stats.followingCount();
 
             // Explicitly specify the return type for Map.of to fix type inference error
             return Map.<String, Object>of(
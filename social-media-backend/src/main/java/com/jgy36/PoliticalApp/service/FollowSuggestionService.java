@@ -0,0 +1,427 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.dto.FollowSuggestionDTO;
+import com.jgy36.PoliticalApp.utils.RedisScriptUtils;
+import com.jgy36.PoliticalApp.utils.TransactionUtils;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * "Who to follow" suggestions: friends of friends (accounts followed by the accounts a user follows) and
+ * members of the same communities, scored and cut to the top N per user in the follow_suggestions table.
+ * <ul>
+ *     <li>The full rebuild covers recently active users. Their ids are split into shards computed in
+ *     parallel on a fork/join pool, walking the in-memory {@link FollowGraph} as primitive arrays with one
+ *     reusable counter table per shard, so memory is bounded by the shard rather than the graph.</li>
+ *     <li>Follows, unfollows and community changes mark the user stale; stale users are recomputed every
+ *     few minutes, so suggestions keep up with the graph between rebuilds.</li>
+ *     <li>Serving is a single indexed read of the stored rows.</li>
+ * </ul>
+ */
+@Service
+public class FollowSuggestionService {
+    private static final Logger logger = LoggerFactory.getLogger(FollowSuggestionService.class);
+    private static final String STALE_KEY = "suggestions:stale";
+    private static final String REBUILD_LOCK_KEY = "suggestions:rebuild-lock";
+    private static final Duration REBUILD_LOCK_TTL = Duration.ofHours(2);
+
+    // A shared follow is a stronger signal than a shared community
+    private static final int MUTUAL_WEIGHT = 2;
+    private static final int SHARED_COMMUNITY_WEIGHT = 1;
+
+    private static final String READ_SQL =
+            "SELECT s.suggested_user_id, u.username, u.display_name, u.profile_image_url, " +
+                    "s.mutual_follows, s.shared_communities " +
+                    "FROM follow_suggestions s JOIN users u ON u.id = s.suggested_user_id " +
+                    "WHERE s.user_id = ? ORDER BY s.rank LIMIT ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO follow_suggestions (user_id, rank, suggested_user_id, mutual_follows, shared_communities, computed_at) " +
+                    "VALUES (?, ?, ?, ?, ?, NOW())";
+    // Very large communities say little about who someone knows, and would dominate the work
+    private static final String MEMBERSHIPS_SQL =
+            "SELECT community_id, user_id FROM community_members WHERE community_id IN " +
+                    "(SELECT community_id FROM community_members GROUP BY community_id HAVING COUNT(*) <= :maxSize)";
+
+    private record Suggestion(long userId, int mutualFollows, int sharedCommunities) {
+    }
+
+    // Sorted member ids per community, and sorted community ids per user
+    private record Memberships(Map<Long, long[]> membersByCommunity, Map<Long, long[]> communitiesByUser) {
+    }
+
+    private final FollowGraph followGraph;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int suggestionsSize;
+    private final int shardSize;
+    private final int activeDays;
+    private final int maxFanout;
+    private final int maxCommunitySize;
+    private final int parallelism;
+    private final int staleBatchSize;
+
+    public FollowSuggestionService(FollowGraph followGraph,
+                                   JdbcTemplate jdbcTemplate,
+                                   StringRedisTemplate redisTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.suggestions.size:20}") int suggestionsSize,
+                                   @Value("${app.suggestions.shard-size:1000}") int shardSize,
+                                   @Value("${app.suggestions.active-days:30}") int activeDays,
+                                   @Value("${app.suggestions.max-fanout:500}") int maxFanout,
+                                   @Value("${app.suggestions.max-community-size:5000}") int maxCommunitySize,
+                                   @Value("${app.suggestions.parallelism:0}") int parallelism,
+                                   @Value("${app.suggestions.stale-batch-size:500}") int staleBatchSize) {
+        this.followGraph = followGraph;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.suggestionsSize = suggestionsSize;
+        this.shardSize = shardSize;
+        this.activeDays = activeDays;
+        this.maxFanout = maxFanout;
+        this.maxCommunitySize = maxCommunitySize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.staleBatchSize = staleBatchSize;
+    }
+
+    /**
+     * Stored suggestions for a user, best first, without accounts they have followed since
+     */
+    public List<FollowSuggestionDTO> getSuggestions(Long userId, int limit) {
+        List<FollowSuggestionDTO> suggestions = jdbcTemplate.query(READ_SQL,
+                (rs, i) -> new FollowSuggestionDTO(rs.getLong(1), rs.getString(2), rs.getString(3),
+                        rs.getString(4), rs.getInt(5), rs.getInt(6)),
+                userId, Math.min(limit, suggestionsSize));
+
+        Set<Long> followed = followGraph.getFollowedAmong(userId,
+                suggestions.stream().map(FollowSuggestionDTO::getId).toList());
+        suggestions.removeIf(suggestion -> followed.contains(suggestion.getId()));
+        return suggestions;
+    }
+
+    /**
+     * Queue a user's suggestions for recomputation once the current transaction commits
+     */
+    public void markStale(Long userId) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                redisTemplate.opsForSet().add(STALE_KEY, userId.toString());
+            } catch (Exception e) {
+                // The next full rebuild picks the change up
+                logger.warn("Failed to mark suggestions stale for user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Recompute suggestions for every recently active user
+     */
+    public void rebuild() {
+        if (!followGraph.isReady()) {
+            logger.info("Follow graph not loaded yet, skipping suggestion rebuild");
+            return;
+        }
+        // One node at a time; the lock expires on its own if the node dies mid-run
+        String lockToken = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, lockToken, REBUILD_LOCK_TTL))) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long[] userIds = loadActiveUserIds();
+            Memberships memberships = loadMemberships(MEMBERSHIPS_SQL, new MapSqlParameterSource("maxSize", maxCommunitySize));
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new ShardTask(userIds, 0, userIds.length, memberships));
+            } finally {
+                pool.shutdown();
+            }
+            logger.info("Rebuilt follow suggestions for {} users in {} ms",
+                    userIds.length, System.currentTimeMillis() - start);
+        } finally {
+            // A run that outlived the TTL must not free the lock another node now holds
+            RedisScriptUtils.releaseLock(redisTemplate, REBUILD_LOCK_KEY, lockToken);
+        }
+    }
+
+    /**
+     * Recompute suggestions for users whose follows or communities changed
+     */
+    public void refreshStale() {
+        if (!followGraph.isReady()) {
+            return;
+        }
+        List<String> popped = redisTemplate.opsForSet().pop(STALE_KEY, staleBatchSize);
+        if (popped == null || popped.isEmpty()) {
+            return;
+        }
+        long[] userIds = popped.stream().mapToLong(Long::parseLong).sorted().toArray();
+
+        // Only the communities these users belong to
+        MapSqlParameterSource params = new MapSqlParameterSource("maxSize", maxCommunitySize)
+                .addValue("ids", Arrays.stream(userIds).boxed().toList());
+        Memberships memberships = loadMemberships(MEMBERSHIPS_SQL +
+                " AND community_id IN (SELECT community_id FROM community_members WHERE user_id IN (:ids))", params);
+
+        try {
+            refreshShard(userIds, 0, userIds.length, memberships);
+        } catch (RuntimeException e) {
+            // Put them back for the next run
+            redisTemplate.opsForSet().add(STALE_KEY, popped.toArray(new String[0]));
+            throw e;
+        }
+    }
+
+    private long[] loadActiveUserIds() {
+        Roaring64Bitmap ids = new Roaring64Bitmap();
+        jdbcTemplate.query("SELECT id FROM users WHERE last_active >= ?",
+                rs -> {
+                    ids.addLong(rs.getLong(1));
+                },
+                Timestamp.valueOf(LocalDateTime.now().minusDays(activeDays)));
+        return ids.toArray();
+    }
+
+    private Memberships loadMemberships(String sql, MapSqlParameterSource params) {
+        Map<Long, Roaring64Bitmap> members = new HashMap<>();
+        Map<Long, Roaring64Bitmap> communities = new HashMap<>();
+        namedJdbcTemplate.query(sql, params, rs -> {
+            long communityId = rs.getLong(1);
+            long userId = rs.getLong(2);
+            members.computeIfAbsent(communityId, id -> new Roaring64Bitmap()).addLong(userId);
+            communities.computeIfAbsent(userId, id -> new Roaring64Bitmap()).addLong(communityId);
+        });
+        return new Memberships(toArrays(members), toArrays(communities));
+    }
+
+    // Split the id range until a piece fits in one shard, then compute and store that shard
+    private class ShardTask extends RecursiveAction {
+        private final long[] userIds;
+        private final int from;
+        private final int to;
+        private final Memberships memberships;
+
+        ShardTask(long[] userIds, int from, int to, Memberships memberships) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+            this.memberships = memberships;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= shardSize) {
+                try {
+                    refreshShard(userIds, from, to, memberships);
+                } catch (RuntimeException e) {
+                    // One failed shard should not lose the others; the next rebuild retries it
+                    logger.error("Failed to compute suggestions for users {}..{}", userIds[from], userIds[to - 1], e);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ShardTask(userIds, from, mid, memberships), new ShardTask(userIds, mid, to, memberships));
+        }
+    }
+
+    private void refreshShard(long[] userIds, int from, int to, Memberships memberships) {
+        if (from >= to) {
+            return;
+        }
+        CandidateCounts counts = new CandidateCounts();
+        List<Long> shardUserIds = new ArrayList<>(to - from);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            long userId = userIds[i];
+            shardUserIds.add(userId);
+            List<Suggestion> top = computeSuggestions(userId, memberships, counts);
+            for (int rank = 0; rank < top.size(); rank++) {
+                Suggestion suggestion = top.get(rank);
+                rows.add(new Object[]{userId, rank, suggestion.userId(),
+                        suggestion.mutualFollows(), suggestion.sharedCommunities()});
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            namedJdbcTemplate.update("DELETE FROM follow_suggestions WHERE user_id IN (:ids)",
+                    new MapSqlParameterSource("ids", shardUserIds));
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        });
+    }
+
+    private List<Suggestion> computeSuggestions(long userId, Memberships memberships, CandidateCounts counts) {
+        counts.clear();
+        long[] following = followGraph.getFollowingArray(userId);
+
+        // Friends of friends
+        int followingStep = stride(following.length);
+        for (int i = 0; i < following.length; i += followingStep) {
+            long[] theirs = followGraph.getFollowingArray(following[i]);
+            int step = stride(theirs.length);
+            for (int j = 0; j < theirs.length; j += step) {
+                long candidate = theirs[j];
+                if (candidate != userId && Arrays.binarySearch(following, candidate) < 0) {
+                    counts.addMutual(candidate);
+                }
+            }
+        }
+
+        // Co-members of the user's communities
+        long[] communities = memberships.communitiesByUser().get(userId);
+        if (communities != null) {
+            for (long communityId : communities) {
+                for (long candidate : memberships.membersByCommunity().get(communityId)) {
+                    if (candidate != userId && Arrays.binarySearch(following, candidate) < 0) {
+                        counts.addShared(candidate);
+                    }
+                }
+            }
+        }
+        return counts.top(suggestionsSize);
+    }
+
+    // Evenly samples long follow lists, so a user following (or followed through) huge accounts stays cheap
+    private int stride(int length) {
+        return length <= maxFanout ? 1 : (length + maxFanout - 1) / maxFanout;
+    }
+
+    private static Map<Long, long[]> toArrays(Map<Long, Roaring64Bitmap> bitmaps) {
+        Map<Long, long[]> arrays = new HashMap<>(bitmaps.size() * 2);
+        bitmaps.forEach((id, bitmap) -> arrays.put(id, bitmap.toArray()));
+        return arrays;
+    }
+
+    /**
+     * Open-addressing table of candidate id -> (mutual follows, shared communities), reused for every user
+     * of a shard. Id 0 marks an empty slot (user ids start at 1).
+     */
+    private static final class CandidateCounts {
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] mutual = new int[INITIAL_CAPACITY];
+        private int[] shared = new int[INITIAL_CAPACITY];
+        private int size;
+
+        void clear() {
+            if (keys.length > MAX_RETAINED_CAPACITY) {
+                // Don't keep one outlier's table (and its clearing cost) for the rest of the shard
+                keys = new long[INITIAL_CAPACITY];
+                mutual = new int[INITIAL_CAPACITY];
+                shared = new int[INITIAL_CAPACITY];
+            } else if (size > 0) {
+                Arrays.fill(keys, 0);
+                Arrays.fill(mutual, 0);
+                Arrays.fill(shared, 0);
+            }
+            size = 0;
+        }
+
+        void addMutual(long id) {
+            mutual[slot(id)]++;
+        }
+
+        void addShared(long id) {
+            shared[slot(id)]++;
+        }
+
+        /**
+         * The n best candidates, best first (ties go to the lower id)
+         */
+        List<Suggestion> top(int n) {
+            int[] best = new int[n];
+            int count = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] == 0 || (count == n && !ranksAbove(slot, best[n - 1]))) {
+                    continue;
+                }
+                int pos = count < n ? count++ : n - 1;
+                while (pos > 0 && ranksAbove(slot, best[pos - 1])) {
+                    best[pos] = best[pos - 1];
+                    pos--;
+                }
+                best[pos] = slot;
+            }
+
+            List<Suggestion> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(new Suggestion(keys[best[i]], mutual[best[i]], shared[best[i]]));
+            }
+            return result;
+        }
+
+        private boolean ranksAbove(int a, int b) {
+            int scoreA = score(a);
+            int scoreB = score(b);
+            return scoreA != scoreB ? scoreA > scoreB : keys[a] < keys[b];
+        }
+
+        private int score(int slot) {
+            return MUTUAL_WEIGHT * mutual[slot] + SHARED_COMMUNITY_WEIGHT * shared[slot];
+        }
+
+        private int slot(long id) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = hash(id) & mask;
+            while (keys[i] != 0 && keys[i] != id) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                keys[i] = id;
+                size++;
+            }
+            return i;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldMutual = mutual;
+            int[] oldShared = shared;
+            keys = new long[oldKeys.length * 2];
+            mutual = new int[keys.length];
+            shared = new int[keys.length];
+            int mask = keys.length - 1;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != 0) {
+                    int i = hash(oldKeys[slot]) & mask;
+                    while (keys[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[slot];
+                    mutual[i] = oldMutual[slot];
+                    shared[i] = oldShared[slot];
+                }
+            }
+        }
+
+        private static int hash(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
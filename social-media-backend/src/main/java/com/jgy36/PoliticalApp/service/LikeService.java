@@ -36,7 +36,7 @@ public class LikeService {
 
     private User getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return userRepository.findByEmail(auth.getName())
+        return userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
     }
 
@@ -61,7 +61,8 @@ public class LikeService {
             if (!post.getAuthor().equals(currentUser)) {
                 notificationService.createNotification(
                         post.getAuthor(),
-                        currentUser.getUsername() + " liked your post",
+                        currentUser,
+                        "liked your post",
                         "like",
                         post.getId(),
                         null,
@@ -91,7 +92,8 @@ public class LikeService {
             if (!comment.getUser().equals(currentUser)) {
                 notificationService.createNotification(
                         comment.getUser(),
-                        currentUser.getUsername() + " liked your comment",
+                        currentUser,
+                        "liked your comment",
                         "like",
                         comment.getPost().getId(),
                         comment.getId(),
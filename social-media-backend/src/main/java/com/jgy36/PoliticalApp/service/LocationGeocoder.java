@@ -0,0 +1,102 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.jgy36.PoliticalApp.dto.County;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Offline geocoding of free-text profile locations ("Travis County, Texas", "Austin, TX", "Texas") to
+ * coordinates, from the bundled county list and state centroids. County names are resolved to their
+ * state, since counties_list.json carries no coordinates; a county name alone works when it is unique.
+ */
+@Component
+public class LocationGeocoder {
+    private static final Logger logger = LoggerFactory.getLogger(LocationGeocoder.class);
+    private static final String COUNTIES_RESOURCE = "data/counties_list.json";
+    private static final String CENTROIDS_RESOURCE = "data/state_centroids.json";
+
+    public record Coordinates(double latitude, double longitude) {
+    }
+
+    private record StateCentroid(String state, String abbreviation, double latitude, double longitude) {
+    }
+
+    // Normalized state name or abbreviation -> centroid
+    private final Map<String, Coordinates> states = new HashMap<>();
+    // Normalized county name (with and without "county") -> the states that have one by that name
+    private final Map<String, Set<String>> countyStates = new HashMap<>();
+
+    @PostConstruct
+    public void load() throws IOException {
+        ObjectMapper mapper = JsonMapper.builder()
+                .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)
+                .build();
+
+        try (InputStream in = new ClassPathResource(CENTROIDS_RESOURCE).getInputStream()) {
+            for (StateCentroid centroid : mapper.readValue(in, StateCentroid[].class)) {
+                Coordinates coordinates = new Coordinates(centroid.latitude(), centroid.longitude());
+                states.put(normalize(centroid.state()), coordinates);
+                states.put(normalize(centroid.abbreviation()), coordinates);
+            }
+        }
+        try (InputStream in = new ClassPathResource(COUNTIES_RESOURCE).getInputStream()) {
+            for (County county : mapper.readValue(in, County[].class)) {
+                String name = normalize(county.getCounty());
+                String state = normalize(county.getState());
+                countyStates.computeIfAbsent(name, k -> new HashSet<>()).add(state);
+                countyStates.computeIfAbsent(stripSuffix(name), k -> new HashSet<>()).add(state);
+            }
+        }
+        logger.info("Location geocoder loaded {} state keys and {} county names", states.size(), countyStates.size());
+    }
+
+    /**
+     * Coordinates for a location string, or empty if no state can be recognized in it
+     */
+    public Optional<Coordinates> geocode(String location) {
+        if (location == null || location.isBlank()) {
+            return Optional.empty();
+        }
+        String[] parts = location.split(",");
+
+        // The state is normally the last part ("City, ST", "County, State")
+        Coordinates coordinates = states.get(normalize(parts[parts.length - 1]));
+        if (coordinates != null) {
+            return Optional.of(coordinates);
+        }
+
+        // Otherwise a county name on its own, if only one state has it
+        Set<String> candidates = countyStates.get(normalize(parts[0]));
+        if (candidates != null && candidates.size() == 1) {
+            return Optional.ofNullable(states.get(candidates.iterator().next()));
+        }
+        return Optional.empty();
+    }
+
+    // Lower case letters and single spaces only ("Hawaiʻi" and "hawaii" are the same key)
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z ]", "")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static String stripSuffix(String countyName) {
+        for (String suffix : List.of(" city and borough", " census area", " municipality", " borough", " parish", " county")) {
+            if (countyName.endsWith(suffix)) {
+                return countyName.substring(0, countyName.length() - suffix.length());
+            }
+        }
+        return countyName;
+    }
+}
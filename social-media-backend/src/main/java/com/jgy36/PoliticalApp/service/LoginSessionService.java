@@ -0,0 +1,112 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.config.JwtTokenUtil;
+import com.jgy36.PoliticalApp.entity.User;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+/**
+ * Issues the token pair for a login: a short-lived access JWT carrying the session id, and an opaque
+ * refresh token from {@link RefreshTokenService}. Both are set as HTTP-only cookies; the refresh cookie
+ * is only sent to /api/auth. API clients get the same values in the response body and header.
+ */
+@Service
+public class LoginSessionService {
+    public static final String ACCESS_COOKIE = "jwt";
+    public static final String REFRESH_COOKIE = "refresh_token";
+    public static final String SESSION_COOKIE = "session_id";
+
+    private static final int MAX_BROWSER_LENGTH = 255;
+
+    private final RefreshTokenService refreshTokenService;
+    private final SecurityService securityService;
+    private final JwtTokenUtil jwtTokenUtil;
+
+    /**
+     * Tokens handed to the client after a login or refresh
+     */
+    public record IssuedTokens(String accessToken, String sessionId, String refreshToken) {
+    }
+
+    public LoginSessionService(RefreshTokenService refreshTokenService,
+                               SecurityService securityService,
+                               JwtTokenUtil jwtTokenUtil) {
+        this.refreshTokenService = refreshTokenService;
+        this.securityService = securityService;
+        this.jwtTokenUtil = jwtTokenUtil;
+    }
+
+    /**
+     * Start a new session for a user who just authenticated and write its cookies
+     */
+    public IssuedTokens startSession(User user, HttpServletRequest request, HttpServletResponse response) {
+        RefreshTokenService.IssuedSession session = refreshTokenService.start(user.getId(), user.getEmail());
+
+        // ✅ The session row shares the family id so "terminate session" revokes the right refresh tokens
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        if (userAgent != null && userAgent.length() > MAX_BROWSER_LENGTH) {
+            userAgent = userAgent.substring(0, MAX_BROWSER_LENGTH);
+        }
+        securityService.createSession(session.sessionId(), user.getId(), userAgent, null, request.getRemoteAddr(), null);
+
+        return write(response, user.getEmail(), session.sessionId(), session.refreshToken());
+    }
+
+    /**
+     * Write the cookies for a successful refresh token rotation
+     */
+    public IssuedTokens continueSession(String email, String sessionId, String refreshToken, HttpServletResponse response) {
+        return write(response, email, sessionId, refreshToken);
+    }
+
+    /**
+     * Delete the auth cookies
+     */
+    public void clearCookies(HttpServletResponse response) {
+        response.addCookie(cookie(ACCESS_COOKIE, null, "/", 0, true));
+        response.addCookie(cookie(REFRESH_COOKIE, null, "/api/auth", 0, true));
+        response.addCookie(cookie(SESSION_COOKIE, null, "/", 0, false));
+    }
+
+    /**
+     * Value of a cookie on the request, or null
+     */
+    public static String readCookie(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (name.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private IssuedTokens write(HttpServletResponse response, String email, String sessionId, String refreshToken) {
+        String accessToken = jwtTokenUtil.generateAccessToken(email, sessionId);
+        int accessMaxAge = (int) (jwtTokenUtil.getAccessTokenTtlMs() / 1000);
+        int refreshMaxAge = (int) refreshTokenService.getTtl().toSeconds();
+
+        response.addCookie(cookie(ACCESS_COOKIE, accessToken, "/", accessMaxAge, true));
+        response.addCookie(cookie(REFRESH_COOKIE, refreshToken, "/api/auth", refreshMaxAge, true));
+        // ✅ Not HTTP-only so the frontend can tell which session is its own
+        response.addCookie(cookie(SESSION_COOKIE, sessionId, "/", refreshMaxAge, false));
+        response.setHeader("Authorization", "Bearer " + accessToken);
+
+        return new IssuedTokens(accessToken, sessionId, refreshToken);
+    }
+
+    private static Cookie cookie(String name, String value, String path, int maxAge, boolean httpOnly) {
+        Cookie cookie = new Cookie(name, value);
+        cookie.setHttpOnly(httpOnly);
+        cookie.setSecure(false); // Set to true in production with HTTPS
+        cookie.setPath(path);
+        cookie.setMaxAge(maxAge);
+        return cookie;
+    }
+}
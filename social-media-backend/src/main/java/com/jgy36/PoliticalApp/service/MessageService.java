@@ -41,7 +41,7 @@ public class MessageService {
      */
     private User getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return userRepository.findByEmail(auth.getName())
+        return userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalStateException("User not found"));
     }
 
@@ -0,0 +1,179 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.service.NotificationDispatcher.NotificationIntent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Collapses notifications about the same thing into one row.
+ * Intents of a coalescable type that share (recipient, type, referenceId, secondaryReferenceId)
+ * are merged with each other and with a matching row written inside the time window, keeping
+ * an actor count and a short sample of the most recent actors.
+ * The secondary reference is part of the key so likes on different comments stay separate.
+ */
+@Component
+public class NotificationAggregator {
+
+    private static final String FIND_OPEN_ROWS_SQL =
+            "SELECT id, user_id, notification_type, reference_id, secondary_reference_id, actor_count, recent_actors " +
+                    "FROM notifications WHERE user_id IN (:userIds) AND notification_type IN (:types) " +
+                    "AND reference_id IN (:referenceIds) AND created_at > :since ORDER BY created_at DESC";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final Set<String> coalescedTypes;
+    private final Duration window;
+    private final int actorSampleSize;
+
+    /**
+     * A row to insert
+     */
+    public record NewRow(NotificationIntent intent, String message, int actorCount, String recentActors) {
+    }
+
+    /**
+     * An existing row to fold more events into
+     */
+    public record MergedRow(long id, NotificationIntent latest, String message, int addedActors, int totalActors,
+                            String recentActors) {
+    }
+
+    public record Plan(List<NewRow> inserts, List<MergedRow> merges) {
+    }
+
+    private record Key(Long recipientId, String type, Long referenceId, Long secondaryReferenceId) {
+        static Key of(NotificationIntent intent) {
+            return new Key(intent.recipientId(), intent.notificationType(), intent.referenceId(),
+                    intent.secondaryReferenceId());
+        }
+    }
+
+    private record OpenRow(long id, int actorCount, List<String> recentActors) {
+    }
+
+    // Events sharing a key within one batch, newest last
+    private static final class Group {
+        private final List<NotificationIntent> intents = new ArrayList<>();
+    }
+
+    public NotificationAggregator(NamedParameterJdbcTemplate namedJdbcTemplate,
+                                  @Value("${app.notifications.coalesce.types:like}") Set<String> coalescedTypes,
+                                  @Value("${app.notifications.coalesce.window-minutes:1440}") long windowMinutes,
+                                  @Value("${app.notifications.coalesce.actor-sample-size:3}") int actorSampleSize) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.coalescedTypes = coalescedTypes;
+        this.window = Duration.ofMinutes(windowMinutes);
+        this.actorSampleSize = actorSampleSize;
+    }
+
+    /**
+     * Decide which intents become new rows and which are folded into existing ones
+     */
+    public Plan plan(List<NotificationIntent> intents) {
+        List<NewRow> inserts = new ArrayList<>();
+        Map<Key, Group> groups = new LinkedHashMap<>();
+
+        for (NotificationIntent intent : intents) {
+            if (isCoalescable(intent)) {
+                groups.computeIfAbsent(Key.of(intent), k -> new Group()).intents.add(intent);
+            } else {
+                inserts.add(new NewRow(intent, intent.message(), 1, intent.actorName()));
+            }
+        }
+
+        if (groups.isEmpty()) {
+            return new Plan(inserts, List.of());
+        }
+
+        Map<Key, OpenRow> openRows = findOpenRows(groups.keySet());
+        List<MergedRow> merges = new ArrayList<>();
+
+        for (Map.Entry<Key, Group> entry : groups.entrySet()) {
+            OpenRow open = openRows.get(entry.getKey());
+            List<NotificationIntent> events = entry.getValue().intents;
+            NotificationIntent latest = events.get(events.size() - 1);
+
+            // Newest actors first, each listed once
+            LinkedHashSet<String> actors = new LinkedHashSet<>();
+            for (int i = events.size() - 1; i >= 0; i--) {
+                actors.add(events.get(i).actorName());
+            }
+            int added = actors.size();
+            if (open != null) {
+                for (String previous : open.recentActors()) {
+                    // An actor already in the sample (e.g. unlike then like again) is not counted twice
+                    if (!actors.add(previous)) {
+                        added--;
+                    }
+                }
+            }
+            List<String> sample = new ArrayList<>(actors).subList(0, Math.min(actorSampleSize, actors.size()));
+            String recentActors = String.join(",", sample);
+
+            if (open == null) {
+                inserts.add(new NewRow(latest, render(latest, added), added, recentActors));
+            } else if (added > 0) {
+                int total = open.actorCount() + added;
+                merges.add(new MergedRow(open.id(), latest, render(latest, total), added, total, recentActors));
+            }
+        }
+
+        return new Plan(inserts, merges);
+    }
+
+    private boolean isCoalescable(NotificationIntent intent) {
+        return intent.notificationType() != null
+                && intent.referenceId() != null
+                && intent.actorName() != null
+                && coalescedTypes.contains(intent.notificationType());
+    }
+
+    // One query for every key in the batch; the newest matching row per key wins
+    private Map<Key, OpenRow> findOpenRows(Set<Key> keys) {
+        Set<Long> userIds = new HashSet<>();
+        Set<String> types = new HashSet<>();
+        Set<Long> referenceIds = new HashSet<>();
+        for (Key key : keys) {
+            userIds.add(key.recipientId());
+            types.add(key.type());
+            referenceIds.add(key.referenceId());
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userIds", userIds)
+                .addValue("types", types)
+                .addValue("referenceIds", referenceIds)
+                .addValue("since", Timestamp.valueOf(LocalDateTime.now().minus(window)));
+
+        Map<Key, OpenRow> openRows = new HashMap<>();
+        namedJdbcTemplate.query(FIND_OPEN_ROWS_SQL, params, rs -> {
+            long secondary = rs.getLong("secondary_reference_id");
+            Long secondaryReferenceId = rs.wasNull() ? null : secondary;
+            Key key = new Key(rs.getLong("user_id"), rs.getString("notification_type"), rs.getLong("reference_id"),
+                    secondaryReferenceId);
+            if (keys.contains(key) && !openRows.containsKey(key)) {
+                String actors = rs.getString("recent_actors");
+                openRows.put(key, new OpenRow(rs.getLong("id"), rs.getInt("actor_count"),
+                        actors == null || actors.isEmpty() ? List.of() : Arrays.asList(actors.split(","))));
+            }
+        });
+        return openRows;
+    }
+
+    // "alice liked your post" -> "alice and 41 others liked your post"
+    private static String render(NotificationIntent latest, int actorCount) {
+        String message = latest.message();
+        String actor = latest.actorName();
+        if (actorCount <= 1 || !message.startsWith(actor + " ")) {
+            return message;
+        }
+        int others = actorCount - 1;
+        return actor + " and " + others + (others == 1 ? " other" : " others") + message.substring(actor.length());
+    }
+}
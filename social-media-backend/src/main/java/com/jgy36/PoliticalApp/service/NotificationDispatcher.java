@@ -0,0 +1,331 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.service.NotificationStreamService.NotificationEvent;
+import com.jgy36.PoliticalApp.utils.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous notification writer.
+ * Producers enqueue {@link NotificationIntent}s; a single worker thread drains the queue,
+ * drops intents the recipient has opted out of, coalesces repeated events through the
+ * {@link NotificationAggregator} and writes the rest with multi-row JDBC batch inserts.
+ * Written notifications are announced through the {@link NotificationStreamService}.
+ */
+@Component
+public class NotificationDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notifications (user_id, message, read, created_at, notification_type, " +
+                    "reference_id, secondary_reference_id, community_id, actor_count, recent_actors) " +
+                    "VALUES (?, ?, false, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Folds new events into a coalesced row and brings it back to the top as unread
+    private static final String MERGE_SQL =
+            "UPDATE notifications SET actor_count = actor_count + ?, recent_actors = ?, message = ?, " +
+                    "created_at = ?, secondary_reference_id = ?, read = false, updated_at = NOW() WHERE id = ?";
+
+    /**
+     * What to do with a new intent when the queue is full
+     */
+    public enum OverflowPolicy {
+        DROP_NEWEST,  // Reject the incoming intent
+        DROP_OLDEST,  // Evict the oldest queued intent to make room
+        CALLER_RUNS   // Write the intent synchronously on the producer thread
+    }
+
+    /**
+     * A notification waiting to be written. Carries ids only so no entity leaves its session.
+     * actorName is set when the message starts with the acting user's name, which lets it be coalesced.
+     */
+    public record NotificationIntent(Long recipientId, String message, String notificationType,
+                                     Long referenceId, Long secondaryReferenceId, String communityId,
+                                     String actorName, LocalDateTime createdAt) {
+        public NotificationIntent(Long recipientId, String message, String notificationType,
+                                  Long referenceId, Long secondaryReferenceId, String communityId) {
+            this(recipientId, message, notificationType, referenceId, secondaryReferenceId, communityId,
+                    null, LocalDateTime.now());
+        }
+
+        public NotificationIntent(Long recipientId, String message, String notificationType,
+                                  Long referenceId, Long secondaryReferenceId, String communityId, String actorName) {
+            this(recipientId, message, notificationType, referenceId, secondaryReferenceId, communityId,
+                    actorName, LocalDateTime.now());
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationPreferencesCache preferencesCache;
+    private final NotificationAggregator aggregator;
+    private final NotificationStreamService streamService;
+    private final BlockingQueue<NotificationIntent> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long flushIntervalMs;
+
+    private final Counter enqueuedCounter;
+    private final Counter droppedCounter;
+    private final Counter filteredCounter;
+    private final Counter insertedCounter;
+    private final Counter coalescedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public NotificationDispatcher(JdbcTemplate jdbcTemplate,
+                                  NotificationPreferencesCache preferencesCache,
+                                  NotificationAggregator aggregator,
+                                  NotificationStreamService streamService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.notifications.dispatch.queue-capacity:50000}") int queueCapacity,
+                                  @Value("${app.notifications.dispatch.batch-size:500}") int batchSize,
+                                  @Value("${app.notifications.dispatch.flush-interval-ms:200}") long flushIntervalMs,
+                                  @Value("${app.notifications.dispatch.overflow-policy:DROP_NEWEST}") OverflowPolicy overflowPolicy) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.preferencesCache = preferencesCache;
+        this.aggregator = aggregator;
+        this.streamService = streamService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+
+        this.enqueuedCounter = meterRegistry.counter("notifications.dispatch.enqueued");
+        this.droppedCounter = meterRegistry.counter("notifications.dispatch.dropped");
+        this.filteredCounter = meterRegistry.counter("notifications.dispatch.filtered");
+        this.insertedCounter = meterRegistry.counter("notifications.dispatch.inserted");
+        this.coalescedCounter = meterRegistry.counter("notifications.dispatch.coalesced");
+        this.failedCounter = meterRegistry.counter("notifications.dispatch.failed");
+        meterRegistry.gauge("notifications.dispatch.queue.size", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::drainLoop, "notification-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        // Write whatever is still queued before shutting down
+        List<NotificationIntent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+    }
+
+    /**
+     * Queue a single notification. When called inside a transaction the intent is only
+     * enqueued after commit, so rolled back work never notifies anyone.
+     */
+    public void dispatch(NotificationIntent intent) {
+        dispatchAll(List.of(intent));
+    }
+
+    /**
+     * Queue a batch of notifications (e.g. a community fan-out)
+     */
+    public void dispatchAll(Collection<NotificationIntent> intents) {
+        if (intents.isEmpty()) {
+            return;
+        }
+
+        List<NotificationIntent> pending = List.copyOf(intents);
+        TransactionUtils.afterCommit(() -> enqueue(pending));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void enqueue(Collection<NotificationIntent> intents) {
+        List<NotificationIntent> overflow = null;
+
+        for (NotificationIntent intent : intents) {
+            if (queue.offer(intent)) {
+                enqueuedCounter.increment();
+                continue;
+            }
+
+            switch (overflowPolicy) {
+                case DROP_NEWEST -> droppedCounter.increment();
+                case DROP_OLDEST -> {
+                    // Evict until the new intent fits; another producer may win the freed slot
+                    while (!queue.offer(intent)) {
+                        if (queue.poll() != null) {
+                            droppedCounter.increment();
+                        }
+                    }
+                    enqueuedCounter.increment();
+                }
+                case CALLER_RUNS -> {
+                    if (overflow == null) {
+                        overflow = new ArrayList<>();
+                    }
+                    overflow.add(intent);
+                }
+            }
+        }
+
+        if (overflow != null) {
+            for (int from = 0; from < overflow.size(); from += batchSize) {
+                write(overflow.subList(from, Math.min(from + batchSize, overflow.size())));
+            }
+        }
+    }
+
+    private void drainLoop() {
+        List<NotificationIntent> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                // Block for the first element, then take whatever else is ready up to the batch size
+                NotificationIntent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                write(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } catch (Exception e) {
+                logger.error("Notification dispatcher failed to write batch of {}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<NotificationIntent> intents) {
+        List<NotificationIntent> accepted = filterByPreferences(intents);
+        filteredCounter.increment(intents.size() - accepted.size());
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            NotificationAggregator.Plan plan = aggregator.plan(accepted);
+            List<NotificationEvent> events = new ArrayList<>(accepted.size());
+
+            if (!plan.merges().isEmpty()) {
+                List<NotificationAggregator.MergedRow> merges = plan.merges();
+                jdbcTemplate.batchUpdate(MERGE_SQL, merges, merges.size(), (ps, row) -> {
+                    ps.setInt(1, row.addedActors());
+                    ps.setString(2, row.recentActors());
+                    ps.setString(3, row.message());
+                    ps.setTimestamp(4, Timestamp.valueOf(row.latest().createdAt()));
+                    ps.setObject(5, row.latest().secondaryReferenceId(), Types.BIGINT);
+                    ps.setLong(6, row.id());
+                });
+                coalescedCounter.increment(merges.size());
+
+                for (NotificationAggregator.MergedRow row : merges) {
+                    events.add(toEvent(row.id(), row.latest(), row.message(), row.totalActors(), row.recentActors()));
+                }
+            }
+
+            if (!plan.inserts().isEmpty()) {
+                List<NotificationAggregator.NewRow> inserts = plan.inserts();
+                KeyHolder keyHolder = new GeneratedKeyHolder();
+                jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                NotificationAggregator.NewRow row = inserts.get(i);
+                                NotificationIntent intent = row.intent();
+                                ps.setLong(1, intent.recipientId());
+                                ps.setString(2, row.message());
+                                ps.setTimestamp(3, Timestamp.valueOf(intent.createdAt()));
+                                ps.setString(4, intent.notificationType());
+                                ps.setObject(5, intent.referenceId(), Types.BIGINT);
+                                ps.setObject(6, intent.secondaryReferenceId(), Types.BIGINT);
+                                ps.setString(7, intent.communityId());
+                                ps.setInt(8, row.actorCount());
+                                ps.setString(9, row.recentActors());
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return inserts.size();
+                            }
+                        }, keyHolder);
+                insertedCounter.increment(inserts.size());
+
+                List<Map<String, Object>> keys = keyHolder.getKeyList();
+                for (int i = 0; i < inserts.size() && i < keys.size(); i++) {
+                    NotificationAggregator.NewRow row = inserts.get(i);
+                    long id = ((Number) keys.get(i).get("id")).longValue();
+                    events.add(toEvent(id, row.intent(), row.message(), row.actorCount(), row.recentActors()));
+                }
+            }
+
+            streamService.publishNotifications(events);
+        } catch (Exception e) {
+            failedCounter.increment(accepted.size());
+            logger.error("Failed to write {} notifications", accepted.size(), e);
+        }
+    }
+
+    private static NotificationEvent toEvent(long id, NotificationIntent intent, String message,
+                                             int actorCount, String recentActors) {
+        return new NotificationEvent(id, intent.recipientId(), message, intent.notificationType(),
+                intent.referenceId(), intent.secondaryReferenceId(), intent.communityId(),
+                actorCount, recentActors, intent.createdAt());
+    }
+
+    // Resolves the preferences of every distinct recipient in the batch through the cache
+    private List<NotificationIntent> filterByPreferences(List<NotificationIntent> intents) {
+        Set<Long> recipientIds = new HashSet<>();
+        for (NotificationIntent intent : intents) {
+            if (intent.notificationType() != null) {
+                recipientIds.add(intent.recipientId());
+            }
+        }
+        if (recipientIds.isEmpty()) {
+            return intents;
+        }
+
+        Map<Long, Byte> masks = preferencesCache.getMasks(recipientIds);
+
+        List<NotificationIntent> accepted = new ArrayList<>(intents.size());
+        for (NotificationIntent intent : intents) {
+            Byte mask = masks.get(intent.recipientId());
+            if (mask == null || NotificationPreferencesCache.allows(mask, intent.notificationType())) {
+                accepted.add(intent);
+            }
+        }
+        return accepted;
+    }
+}
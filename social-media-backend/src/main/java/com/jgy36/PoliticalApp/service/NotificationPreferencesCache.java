@@ -0,0 +1,202 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.jgy36.PoliticalApp.entity.UserNotificationPreferences;
+import com.jgy36.PoliticalApp.repository.UserNotificationPreferencesRepository;
+import com.jgy36.PoliticalApp.utils.ClusterMessages;
+import com.jgy36.PoliticalApp.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Per-node cache of notification preferences, stored as one byte of enabled-type bits per user.
+ * Entries are loaded on first read and invalidated on every node through Redis pub/sub
+ * whenever {@link NotificationPreferencesService} changes them. They also expire after a few
+ * minutes, which bounds how long a lost invalidation message can leave a node stale.
+ */
+@Component
+public class NotificationPreferencesCache implements MessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPreferencesCache.class);
+    private static final String INVALIDATION_CHANNEL = "cache:notification-preferences:invalidate";
+
+    // Bit positions, one per preference flag
+    private static final int EMAIL = 1;
+    private static final int NEW_COMMENT = 1 << 1;
+    private static final int MENTION = 1 << 2;
+    private static final int POLITICAL_UPDATES = 1 << 3;
+    private static final int COMMUNITY_UPDATES = 1 << 4;
+    private static final int DIRECT_MESSAGE = 1 << 5;
+    private static final int FOLLOW = 1 << 6;
+    private static final int LIKE = 1 << 7;
+
+    // Matches the field defaults of UserNotificationPreferences
+    private static final byte DEFAULT_MASK = (byte) (EMAIL | NEW_COMMENT | MENTION | COMMUNITY_UPDATES
+            | DIRECT_MESSAGE | FOLLOW | LIKE);
+
+    private final UserNotificationPreferencesRepository preferencesRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final LoadingCache<Long, Byte> masks;
+
+    public NotificationPreferencesCache(UserNotificationPreferencesRepository preferencesRepository,
+                                        StringRedisTemplate redisTemplate,
+                                        RedisMessageListenerContainer listenerContainer,
+                                        @Value("${app.notifications.preferences-cache.max-size:200000}") long maxSize,
+                                        @Value("${app.notifications.preferences-cache.ttl-minutes:10}") long ttlMinutes) {
+        this.preferencesRepository = preferencesRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.masks = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Byte load(Long userId) {
+                        return preferencesRepository.findByUserId(userId)
+                                .map(NotificationPreferencesCache::toMask)
+                                .orElse(DEFAULT_MASK);
+                    }
+
+                    @Override
+                    public Map<Long, Byte> loadAll(Set<? extends Long> userIds) {
+                        return loadMasks(userIds);
+                    }
+                });
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * Check whether a user wants notifications of the given type. Unknown types are always sent.
+     */
+    public boolean isEnabled(Long userId, String notificationType) {
+        int bit = bitFor(notificationType);
+        return bit == 0 || (masks.get(userId) & bit) != 0;
+    }
+
+    /**
+     * Bulk read-through: missing users are loaded with a single query
+     */
+    public Map<Long, Byte> getMasks(Collection<Long> userIds) {
+        return masks.getAll(userIds);
+    }
+
+    public static boolean allows(byte mask, String notificationType) {
+        int bit = bitFor(notificationType);
+        return bit == 0 || (mask & bit) != 0;
+    }
+
+    /**
+     * Write-through once the current transaction commits; other nodes drop their copy. Before the commit,
+     * a reload on another node would only see the old row.
+     */
+    public void update(UserNotificationPreferences preferences) {
+        Long userId = preferences.getUserId();
+        byte mask = toMask(preferences);
+        TransactionUtils.afterCommit(() -> {
+            masks.put(userId, mask);
+            publishInvalidation(userId);
+        });
+    }
+
+    public void invalidate(Long userId) {
+        TransactionUtils.afterCommit(() -> {
+            masks.invalidate(userId);
+            publishInvalidation(userId);
+        });
+    }
+
+    /**
+     * Pre-load preferences for users who are about to receive notifications (e.g. currently active)
+     */
+    public void warm(Collection<Long> userIds) {
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : userIds) {
+            if (masks.getIfPresent(userId) == null) {
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            masks.putAll(loadMasks(missing));
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String userId = ClusterMessages.fromOtherNode(message);
+        if (userId == null) {
+            return;
+        }
+        try {
+            masks.invalidate(Long.parseLong(userId));
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring malformed preferences invalidation message: {}", userId);
+        }
+    }
+
+    private void publishInvalidation(Long userId) {
+        try {
+            ClusterMessages.publish(redisTemplate, INVALIDATION_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            // Other nodes keep a stale entry until it is evicted; local state is already correct
+            logger.error("Failed to publish preferences invalidation for user {}", userId, e);
+        }
+    }
+
+    private Map<Long, Byte> loadMasks(Collection<? extends Long> userIds) {
+        Map<Long, Byte> result = new HashMap<>();
+        for (UserNotificationPreferences prefs : preferencesRepository.findAllById(new ArrayList<Long>(userIds))) {
+            result.put(prefs.getUserId(), toMask(prefs));
+        }
+        // Users without a row get the defaults, cached so they are not queried again
+        for (Long userId : userIds) {
+            result.putIfAbsent(userId, DEFAULT_MASK);
+        }
+        return result;
+    }
+
+    private static byte toMask(UserNotificationPreferences prefs) {
+        int mask = 0;
+        if (prefs.isEmailNotifications()) mask |= EMAIL;
+        if (prefs.isNewCommentNotifications()) mask |= NEW_COMMENT;
+        if (prefs.isMentionNotifications()) mask |= MENTION;
+        if (prefs.isPoliticalUpdates()) mask |= POLITICAL_UPDATES;
+        if (prefs.isCommunityUpdates()) mask |= COMMUNITY_UPDATES;
+        if (prefs.isDirectMessageNotifications()) mask |= DIRECT_MESSAGE;
+        if (prefs.isFollowNotifications()) mask |= FOLLOW;
+        if (prefs.isLikeNotifications()) mask |= LIKE;
+        return (byte) mask;
+    }
+
+    // 0 means the type is not controlled by a preference
+    private static int bitFor(String notificationType) {
+        if (notificationType == null) {
+            return 0;
+        }
+        return switch (notificationType) {
+            case "comment_created" -> NEW_COMMENT;
+            case "mention" -> MENTION;
+            case "like" -> LIKE;
+            case "follow", "follow_request" -> FOLLOW;
+            case "direct_message" -> DIRECT_MESSAGE;
+            case "community_update" -> COMMUNITY_UPDATES;
+            default -> 0;
+        };
+    }
+}
@@ -15,10 +15,13 @@ import org.springframework.transaction.annotation.Transactional;
 public class NotificationPreferencesService {
     private final UserNotificationPreferencesRepository preferencesRepository;
     private final UserRepository userRepository;
+    private final NotificationPreferencesCache preferencesCache;
 
-    public NotificationPreferencesService(UserNotificationPreferencesRepository preferencesRepository, UserRepository userRepository) {
+    public NotificationPreferencesService(UserNotificationPreferencesRepository preferencesRepository, UserRepository userRepository,
+                                          NotificationPreferencesCache preferencesCache) {
         this.preferencesRepository = preferencesRepository;
         this.userRepository = userRepository;
+        this.preferencesCache = preferencesCache;
     }
 
     /**
@@ -26,8 +29,7 @@ public class NotificationPreferencesService {
      */
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
+        User user = userRepository.findByPrincipal(authentication)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         return user.getId();
     }
@@ -71,7 +73,9 @@ public class NotificationPreferencesService {
         preferences.setFollowNotifications(preferencesDto.isFollowNotifications());
         preferences.setLikeNotifications(preferencesDto.isLikeNotifications());
 
-        return preferencesRepository.save(preferences);
+        UserNotificationPreferences saved = preferencesRepository.save(preferences);
+        preferencesCache.update(saved);
+        return saved;
     }
 
     /**
@@ -99,7 +103,9 @@ public class NotificationPreferencesService {
         preferences.setFollowNotifications(true);
         preferences.setLikeNotifications(true);
 
-        return preferencesRepository.save(preferences);
+        UserNotificationPreferences saved = preferencesRepository.save(preferences);
+        preferencesCache.update(saved);
+        return saved;
     }
 
     /**
@@ -1,36 +1,106 @@
 package com.jgy36.PoliticalApp.service;
 
+import com.jgy36.PoliticalApp.dto.CursorPageDTO;
 import com.jgy36.PoliticalApp.entity.*;
 import com.jgy36.PoliticalApp.repository.NotificationRepository;
-import com.jgy36.PoliticalApp.repository.UserNotificationPreferencesRepository;
 import com.jgy36.PoliticalApp.repository.UserRepository;
+import com.jgy36.PoliticalApp.service.NotificationDispatcher.NotificationIntent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 
 @Service
 public class NotificationService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Position in a feed: the (createdAt, id) of the last row returned, opaque to clients
+    private record FeedCursor(LocalDateTime createdAt, Long id) {
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static FeedCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new FeedCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
-    private final UserNotificationPreferencesRepository preferencesRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final NotificationStreamService notificationStreamService;
 
 
-    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository, UserNotificationPreferencesRepository preferencesRepository) {
+    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository,
+                               NotificationDispatcher notificationDispatcher, NotificationStreamService notificationStreamService) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
-        this.preferencesRepository = preferencesRepository;
+        this.notificationDispatcher = notificationDispatcher;
+        this.notificationStreamService = notificationStreamService;
     }
 
-    // ✅ Fetch Notifications for Logged-in User
-    public List<Notification> getUserNotifications() {
+    /**
+     * Numbered page (from 1) of the logged-in user's notifications, for clients that page with ?page=N.
+     * Offset based, so deep pages cost more than getNotificationPage.
+     */
+    public List<Notification> getUserNotifications(int page) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByEmail(auth.getName())
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        return notificationRepository.findByRecipientOrderByCreatedAtDesc(user);
+        Pageable pageable = PageRequest.of(Math.max(page, 1) - 1, DEFAULT_PAGE_SIZE);
+        return new ArrayList<>(notificationRepository.findFeedPage(user.getId(), pageable));
+    }
+
+    // ✅ Fetch one page of the logged-in user's notifications, newest first
+    public CursorPageDTO<Notification> getNotificationPage(String cursor, int limit) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        User user = userRepository.findByPrincipal(auth)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells us whether another page exists
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        List<Notification> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = notificationRepository.findFeedPage(user.getId(), pageable);
+        } else {
+            FeedCursor position = FeedCursor.decode(cursor);
+            rows = notificationRepository.findFeedPageBefore(user.getId(), position.createdAt(), position.id(), pageable);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Notification last = rows.get(pageSize - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPageDTO<>(new ArrayList<>(rows), nextCursor);
+    }
+
+    // Unread count from the counter table maintained alongside the notifications
+    public long getUnreadCount(Long userId) {
+        return notificationRepository.findUnreadCount(userId);
     }
 
     // ✅ Mark a notification as read
@@ -39,117 +109,69 @@ public class NotificationService {
                 .orElseThrow(() -> new IllegalArgumentException("Notification not found"));
         notification.setRead(true);
         notificationRepository.save(notification);
+        notificationStreamService.publishUnreadChanged(notification.getRecipient().getId());
     }
 
     // ✅ Utility: Create a new notification
     public void createNotification(User recipient, String message) {
-        Notification notification = new Notification();
-        notification.setRecipient(recipient);
-        notification.setMessage(message);
-        notificationRepository.save(notification);
+        notificationDispatcher.dispatch(new NotificationIntent(recipient.getId(), message, null, null, null, null));
     }
 
+    // Queued for the dispatcher, which drops it if the recipient disabled this type
     public void createNotification(User recipient, String message, String notificationType,
                                    Long referenceId, Long secondaryReferenceId, String communityId) {
-        // Check user preferences before creating notification
-        if (!shouldSendNotification(recipient, notificationType)) {
-            return; // Don't create notification if user has disabled this type
-        }
+        notificationDispatcher.dispatch(new NotificationIntent(recipient.getId(), message, notificationType,
+                referenceId, secondaryReferenceId, communityId));
+    }
 
-        Notification notification = new Notification();
-        notification.setRecipient(recipient);
-        notification.setMessage(message);
-        notification.setNotificationType(notificationType);
-        notification.setReferenceId(referenceId);
-        notification.setSecondaryReferenceId(secondaryReferenceId);
-        notification.setCommunityId(communityId);
-        notificationRepository.save(notification);
+    // Same as above, for messages of the form "<actor> <action>"; these can be coalesced per reference
+    public void createNotification(User recipient, User actor, String action, String notificationType,
+                                   Long referenceId, Long secondaryReferenceId, String communityId) {
+        notificationDispatcher.dispatch(new NotificationIntent(recipient.getId(), actor.getUsername() + " " + action,
+                notificationType, referenceId, secondaryReferenceId, communityId, actor.getUsername()));
     }
 
     // Update the markAllAsRead method in NotificationService.java
     public void markAllAsRead() {
         // Get current user using the same approach as in getUserNotifications
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User currentUser = userRepository.findByEmail(auth.getName())
+        User currentUser = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        // Find all unread notifications for the user
-        List<Notification> unreadNotifications = notificationRepository.findByRecipientAndReadFalse(currentUser);
+        // Single bulk UPDATE instead of loading every unread row
+        notificationRepository.markAllAsReadByRecipientId(currentUser.getId());
+        notificationStreamService.publishUnreadChanged(currentUser.getId());
+    }
 
-        // Mark each as read
-        for (Notification notification : unreadNotifications) {
-            notification.setRead(true);
-        }
+    // Open a live notification stream for the logged-in user
+    public SseEmitter openStream(Long lastEventId) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        User user = userRepository.findByPrincipal(auth)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        // Save all updated notifications
-        notificationRepository.saveAll(unreadNotifications);
+        return notificationStreamService.subscribe(user.getId(), lastEventId);
     }
 
 
     // Simplified overload for common cases
     public void createPostNotification(User recipient, User actor, Post post) {
-        String message = actor.getUsername() + " posted in " + post.getCommunity().getName();
-        createNotification(recipient, message, "post_created", post.getId(), null,
-                post.getCommunity().getSlug());
+        createPostNotifications(List.of(recipient.getId()), actor, post);
     }
 
-    // Check user preferences before creating notification
-    private boolean shouldSendNotification(User recipient, String notificationType) {
-        UserNotificationPreferences prefs = preferencesRepository.findByUserId(recipient.getId())
-                .orElse(null);
+    // Fan-out for a new community post, queued as one batch
+    public void createPostNotifications(Collection<Long> recipientIds, User actor, Post post) {
+        String message = actor.getUsername() + " posted in " + post.getCommunity().getName();
+        String communitySlug = post.getCommunity().getSlug();
 
-        if (prefs == null) {
-            System.out.println("DEBUG: No notification preferences found for user " + recipient.getUsername() + ", using defaults");
-            return true; // Default to sending if no preferences found
+        List<NotificationIntent> intents = new ArrayList<>(recipientIds.size());
+        for (Long recipientId : recipientIds) {
+            intents.add(new NotificationIntent(recipientId, message, "post_created", post.getId(), null, communitySlug));
         }
-
-        boolean shouldSend = switch (notificationType) {
-            case "comment_created" -> {
-                boolean result = prefs.isNewCommentNotifications();
-                System.out.println("DEBUG: User " + recipient.getUsername() + " comment notifications enabled: " + result);
-                yield result;
-            }
-            case "mention" -> {
-                boolean result = prefs.isMentionNotifications();
-                System.out.println("DEBUG: User " + recipient.getUsername() + " mention notifications enabled: " + result);
-                yield result;
-            }
-            case "like" -> {
-                boolean result = prefs.isLikeNotifications();
-                System.out.println("DEBUG: User " + recipient.getUsername() + " like notifications enabled: " + result);
-                yield result;
-            }
-            case "follow", "follow_request" -> {
-                boolean result = prefs.isFollowNotifications();
-                System.out.println("DEBUG: User " + recipient.getUsername() + " follow notifications enabled: " + result);
-                yield result;
-            }
-            case "direct_message" -> {
-                boolean result = prefs.isDirectMessageNotifications();
-                System.out.println("DEBUG: User " + recipient.getUsername() + " direct message notifications enabled: " + result);
-                yield result;
-            }
-            case "community_update" -> {
-                boolean result = prefs.isCommunityUpdates();
-                System.out.println("DEBUG: User " + recipient.getUsername() + " community update notifications enabled: " + result);
-                yield result;
-            }
-            default -> {
-                System.out.println("DEBUG: Unknown notification type: " + notificationType + " for user " + recipient.getUsername() + ", defaulting to true");
-                yield true;
-            }
-        };
-
-        System.out.println("DEBUG: Final notification decision for user " + recipient.getUsername() +
-                ", type: " + notificationType + " = " + shouldSend);
-
-        return shouldSend;
+        notificationDispatcher.dispatchAll(intents);
     }
 
     // Create comment notification
     public void createCommentNotification(User recipient, User commenter, Post post, Comment comment) {
-        if (!shouldSendNotification(recipient, "comment_created")) return;
-
         String message = commenter.getUsername() + " commented on your post";
         createNotification(
                 recipient,
@@ -163,10 +185,7 @@ public class NotificationService {
 
     // Create like notification
     public void createLikeNotification(User recipient, User liker, Object likedObject, boolean isComment) {
-        if (!shouldSendNotification(recipient, "like")) return;
-
         String objectType = isComment ? "comment" : "post";
-        String message = liker.getUsername() + " liked your " + objectType;
 
         Long primaryId = null;
         Long secondaryId = null;
@@ -184,13 +203,11 @@ public class NotificationService {
             communityId = post.getCommunity() != null ? post.getCommunity().getSlug() : null;
         }
 
-        createNotification(recipient, message, "like", primaryId, secondaryId, communityId);
+        createNotification(recipient, liker, "liked your " + objectType, "like", primaryId, secondaryId, communityId);
     }
 
     // Create mention notification
     public void createMentionNotification(User mentioned, User mentioner, Post post, Comment comment) {
-        if (!shouldSendNotification(mentioned, "mention")) return;
-
         String context = comment != null ? "a comment" : "a post";
         String message = mentioner.getUsername() + " mentioned you in " + context;
 
@@ -203,16 +220,12 @@ public class NotificationService {
 
     // Create follow notification
     public void createFollowNotification(User recipient, User follower) {
-        if (!shouldSendNotification(recipient, "follow")) return;
-
         String message = follower.getUsername() + " started following you";
         createNotification(recipient, message, "follow", follower.getId(), null, null);
     }
 
     // Create follow request notification
     public void createFollowRequestNotification(User recipient, User requester) {
-        if (!shouldSendNotification(recipient, "follow_request")) return;
-
         String message = requester.getUsername() + " requested to follow you";
         createNotification(recipient, message, "follow_request", requester.getId(), null, null);
     }
@@ -0,0 +1,246 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jgy36.PoliticalApp.entity.Notification;
+import com.jgy36.PoliticalApp.repository.NotificationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Pushes new notifications and unread counts to clients connected to /api/notifications/stream.
+ * Connections are servlet async requests, so an idle client holds no thread; a single scheduler
+ * thread sends heartbeats. Writers publish events on a Redis channel and every node forwards
+ * them to the emitters it holds locally.
+ */
+@Service
+public class NotificationStreamService implements MessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamService.class);
+    private static final String EVENTS_CHANNEL = "notifications:events";
+
+    /**
+     * A written notification as sent to clients; its id is the SSE event id used for resume
+     */
+    public record NotificationEvent(Long id, Long userId, String message, String notificationType,
+                                    Long referenceId, Long secondaryReferenceId, String communityId,
+                                    int actorCount, String recentActors, LocalDateTime createdAt) {
+        static NotificationEvent of(Notification notification) {
+            return new NotificationEvent(notification.getId(), notification.getRecipient().getId(),
+                    notification.getMessage(), notification.getNotificationType(), notification.getReferenceId(),
+                    notification.getSecondaryReferenceId(), notification.getCommunityId(),
+                    notification.getActorCount(), notification.getRecentActors(), notification.getCreatedAt());
+        }
+    }
+
+    // Message published on the Redis channel
+    record StreamMessage(List<NotificationEvent> notifications, List<Long> unreadChanged) {
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final long heartbeatIntervalMs;
+    private final int maxConnectionsPerUser;
+
+    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "notification-stream-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public NotificationStreamService(NotificationRepository notificationRepository,
+                                     StringRedisTemplate redisTemplate,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     ObjectMapper objectMapper,
+                                     @Value("${app.notifications.stream.timeout-ms:1800000}") long timeoutMs,
+                                     @Value("${app.notifications.stream.heartbeat-interval-ms:25000}") long heartbeatIntervalMs,
+                                     @Value("${app.notifications.stream.max-connections-per-user:5}") int maxConnectionsPerUser) {
+        this.notificationRepository = notificationRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVENTS_CHANNEL));
+        heartbeatScheduler.scheduleAtFixedRate(this::sendHeartbeats, heartbeatIntervalMs, heartbeatIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeatScheduler.shutdownNow();
+        emitters.values().forEach(list -> list.forEach(SseEmitter::complete));
+        emitters.clear();
+    }
+
+    /**
+     * Open a stream for a user. With a Last-Event-ID the notifications written or coalesced into
+     * since that event are replayed first.
+     */
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        List<SseEmitter> evicted = new ArrayList<>();
+
+        emitters.compute(userId, (id, userEmitters) -> {
+            if (userEmitters == null) {
+                userEmitters = new CopyOnWriteArrayList<>();
+            }
+            // Oldest connections make room for the new one
+            while (userEmitters.size() >= maxConnectionsPerUser) {
+                evicted.add(userEmitters.remove(0));
+            }
+            userEmitters.add(emitter);
+            return userEmitters;
+        });
+        evicted.forEach(SseEmitter::complete);
+
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(e -> remove(userId, emitter));
+
+        try {
+            if (lastEventId != null) {
+                for (Notification missed : notificationRepository.findChangedSince(userId, lastEventId)) {
+                    sendNotification(emitter, NotificationEvent.of(missed));
+                }
+            }
+            sendUnreadCount(emitter, countUnread(userId));
+        } catch (IOException e) {
+            remove(userId, emitter);
+        }
+
+        return emitter;
+    }
+
+    /**
+     * Announce newly written notifications to every node
+     */
+    public void publishNotifications(List<NotificationEvent> events) {
+        if (!events.isEmpty()) {
+            publish(new StreamMessage(events, List.of()));
+        }
+    }
+
+    /**
+     * Announce that a user's unread count changed without a new notification (e.g. mark as read)
+     */
+    public void publishUnreadChanged(Long userId) {
+        publish(new StreamMessage(List.of(), List.of(userId)));
+    }
+
+    public int getConnectionCount() {
+        return emitters.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        StreamMessage streamMessage;
+        try {
+            streamMessage = objectMapper.readValue(message.getBody(), StreamMessage.class);
+        } catch (IOException e) {
+            logger.warn("Ignoring malformed notification stream message", e);
+            return;
+        }
+
+        // Only users connected to this node are of interest
+        Set<Long> touchedUsers = new HashSet<>();
+        for (NotificationEvent event : streamMessage.notifications()) {
+            List<SseEmitter> userEmitters = emitters.get(event.userId());
+            if (userEmitters == null) {
+                continue;
+            }
+            touchedUsers.add(event.userId());
+            for (SseEmitter emitter : userEmitters) {
+                try {
+                    sendNotification(emitter, event);
+                } catch (IOException e) {
+                    remove(event.userId(), emitter);
+                }
+            }
+        }
+        for (Long userId : streamMessage.unreadChanged()) {
+            if (emitters.containsKey(userId)) {
+                touchedUsers.add(userId);
+            }
+        }
+
+        for (Long userId : touchedUsers) {
+            long unread = countUnread(userId);
+            for (SseEmitter emitter : emitters.getOrDefault(userId, List.of())) {
+                try {
+                    sendUnreadCount(emitter, unread);
+                } catch (IOException e) {
+                    remove(userId, emitter);
+                }
+            }
+        }
+    }
+
+    private void publish(StreamMessage message) {
+        try {
+            redisTemplate.convertAndSend(EVENTS_CHANNEL, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            // Connected clients still get the change on their next poll or reconnect
+            logger.error("Failed to publish notification stream message", e);
+        }
+    }
+
+    private long countUnread(Long userId) {
+        return notificationRepository.findUnreadCount(userId);
+    }
+
+    private void sendNotification(SseEmitter emitter, NotificationEvent event) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(event.id()))
+                .name("notification")
+                .data(event, MediaType.APPLICATION_JSON));
+    }
+
+    private void sendUnreadCount(SseEmitter emitter, long count) throws IOException {
+        emitter.send(SseEmitter.event()
+                .name("unread-count")
+                .data(Map.of("count", count), MediaType.APPLICATION_JSON));
+    }
+
+    private void sendHeartbeats() {
+        emitters.forEach((userId, userEmitters) -> {
+            for (SseEmitter emitter : userEmitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (Exception e) {
+                    remove(userId, emitter);
+                }
+            }
+        });
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        emitters.computeIfPresent(userId, (id, userEmitters) -> {
+            userEmitters.remove(emitter);
+            return userEmitters.isEmpty() ? null : userEmitters;
+        });
+    }
+}
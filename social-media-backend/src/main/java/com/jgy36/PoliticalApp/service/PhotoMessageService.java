@@ -29,7 +29,7 @@ public class PhotoMessageService {
     private MatchRepository matchRepository;
 
     @Autowired
-    private FollowRepository followRepository;
+    private FollowGraph followGraph;
 
     private final String UPLOAD_DIR = "uploads/photo-messages/";
 
@@ -73,7 +73,7 @@ public class PhotoMessageService {
         // 2. Sender follows recipient (social media)
 
         boolean isMatched = matchRepository.findActiveMatchBetweenUsers(sender, recipient).isPresent();
-        boolean isFollowing = followRepository.existsByFollowerAndFollowing(sender, recipient);
+        boolean isFollowing = followGraph.isFollowing(sender.getId(), recipient.getId());
 
         return isMatched || isFollowing;
     }
@@ -1,5 +1,6 @@
 package com.jgy36.PoliticalApp.service;
 
+import com.jgy36.PoliticalApp.config.AuthenticatedUser;
 import com.jgy36.PoliticalApp.dto.PostDTO;
 import com.jgy36.PoliticalApp.entity.*;
 import com.jgy36.PoliticalApp.repository.*;
@@ -35,6 +36,12 @@ public class PostService {
     @Autowired
     private LikeService likeService;
 
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private PrivacyService privacyService;
+
     public PostService(
             PostRepository postRepository,
             UserRepository userRepository,
@@ -56,7 +63,8 @@ public class PostService {
     // ✅ Get all posts - Updated to use the new repository method that fetches original posts
     public List<PostDTO> getAllPosts() {
         // Use the new method that includes JOIN FETCH for original posts
-        List<Post> posts = postRepository.findAllWithOriginalPostOrderByCreatedAtDesc();
+        List<Post> posts = privacyService.filterVisiblePosts(getViewerId(),
+                postRepository.findAllWithOriginalPostOrderByCreatedAtDesc());
         return posts.stream()
                 .map(PostDTO::new)
                 .collect(Collectors.toList());
@@ -75,7 +83,7 @@ public class PostService {
     public Post createPost(String content) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
-        User user = userRepository.findByEmail(email)
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
         Post post = new Post();
@@ -91,6 +99,7 @@ public class PostService {
 
         // Save the post first to get an ID
         Post savedPost = postRepository.save(post);
+        userStatsService.recordPostCreated(user.getId());
 
         // Detect mentions and create notifications
         Matcher mentionMatcher = Pattern.compile("@(\\w+(?:-\\w+)*)").matcher(content);
@@ -153,7 +162,7 @@ public class PostService {
     public void deletePost(Long postId) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
-        Optional<User> userOpt = userRepository.findByEmail(email);
+        Optional<User> userOpt = userRepository.findByPrincipal(auth);
 
         if (userOpt.isEmpty()) {
             throw new IllegalArgumentException("User not found");
@@ -184,6 +193,7 @@ public class PostService {
         }
 
         postRepository.delete(post);
+        userStatsService.recordPostDeleted(post.getAuthor().getId());
     }
 
     // ✅ Like/Unlike a post
@@ -221,7 +231,8 @@ public class PostService {
             if (!post.getAuthor().equals(user)) {
                 notificationService.createNotification(
                         post.getAuthor(),
-                        user.getUsername() + " liked your post",
+                        user,
+                        "liked your post",
                         "like",
                         post.getId(),
                         null,
@@ -281,7 +292,7 @@ public class PostService {
         return new ArrayList<>(user.getSavedPosts());
     }
 
-    // ✅ Get posts by hashtag
+    // ✅ Get posts by hashtag (newest first, only those the viewer may see)
     public List<Post> getPostsByTag(String tag) {
         // Ensure tag has # prefix
         String normalizedTag = tag.startsWith("#") ? tag : "#" + tag;
@@ -289,13 +300,16 @@ public class PostService {
         // Try to find hashtag entity
         Optional<Hashtag> hashtagOpt = hashtagRepository.findByTag(normalizedTag);
 
+        List<Post> posts;
         if (hashtagOpt.isPresent()) {
             // If hashtag exists, return its posts
-            return new ArrayList<>(hashtagOpt.get().getPosts());
+            posts = new ArrayList<>(hashtagOpt.get().getPosts());
         } else {
             // Otherwise search for posts containing the hashtag text
-            return postRepository.findByContentContainingIgnoreCase(normalizedTag);
+            posts = new ArrayList<>(postRepository.findByContentContainingIgnoreCase(normalizedTag));
         }
+        posts.sort(Comparator.comparing(Post::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return privacyService.filterVisiblePosts(getViewerId(), posts);
     }
 
     // ✅ Get a post by ID
@@ -304,10 +318,9 @@ public class PostService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found with ID: " + postId));
     }
 
-    // ✅ Find posts by a specific user
-    // Update this method in PostService.java
+    // ✅ Find posts by a specific user that the current viewer may see (privacy, follows and matches)
     public List<PostDTO> getPostsByUserId(Long userId) {
-        return postRepository.findByAuthorId(userId).stream()
+        return privacyService.getVisiblePostsForViewer(getViewerId(), userId).stream()
                 .map(PostDTO::new)
                 .collect(Collectors.toList());
     }
@@ -317,7 +330,7 @@ public class PostService {
     public Post createCommunityPost(String communityId, String content) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
-        User user = userRepository.findByEmail(email)
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
         Community community = communityRepository.findBySlug(communityId)
@@ -340,12 +353,15 @@ public class PostService {
             post.addHashtag(hashtag);
         }
 
-        return postRepository.save(post);
+        Post savedPost = postRepository.save(post);
+        userStatsService.recordPostCreated(user.getId());
+        return savedPost;
     }
 
     // Get posts by community slug
     public List<Post> getPostsByCommunitySlug(String slug) {
-        return postRepository.findByCommunitySlugOrderByCreatedAtDesc(slug);
+        return privacyService.filterVisiblePosts(getViewerId(),
+                postRepository.findByCommunitySlugOrderByCreatedAtDesc(slug));
     }
 
     @Transactional(readOnly = true)
@@ -378,7 +394,7 @@ public class PostService {
     public Post createRepost(String content, Long originalPostId) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
-        User user = userRepository.findByEmail(email)
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
         // Find the original post
@@ -420,6 +436,7 @@ public class PostService {
 
         // Save the repost
         Post savedRepost = postRepository.save(repost);
+        userStatsService.recordPostCreated(user.getId());
 
         // Increment the repost count on the original post
         originalPost.setRepostCount(originalPost.getRepostCount() + 1);
@@ -453,7 +470,7 @@ public class PostService {
     public Post updatePost(Long postId, String content) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
-        User user = userRepository.findByEmail(email)
+        User user = userRepository.findByPrincipal(auth)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
 
         Post post = postRepository.findById(postId)
@@ -538,8 +555,8 @@ public class PostService {
         // Sort posts by creation time (most recent first)
         posts.sort(Comparator.comparing(Post::getCreatedAt).reversed());
 
-        // Convert to DTOs
-        return posts.stream()
+        // Convert the visible ones to DTOs
+        return privacyService.filterVisiblePosts(user.getId(), posts).stream()
                 .map(post -> new PostDTO(post))
                 .collect(Collectors.toList());
     }
@@ -657,6 +674,15 @@ public class PostService {
         return "image"; // Default
     }
 
+    // Id of the authenticated user, or null for anonymous requests (for visibility filtering)
+    private Long getViewerId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || "anonymousUser".equals(auth.getName())) {
+            return null;
+        }
+        if (auth.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        return userRepository.findByPrincipal(auth).map(User::getId).orElse(null);
+    }
 }
-
-
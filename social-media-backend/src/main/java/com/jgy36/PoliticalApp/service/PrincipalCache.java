@@ -0,0 +1,106 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.jgy36.PoliticalApp.config.AuthenticatedUser;
+import com.jgy36.PoliticalApp.repository.UserRepository;
+import com.jgy36.PoliticalApp.utils.ClusterMessages;
+import com.jgy36.PoliticalApp.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived per-node cache of token principals by email, so authenticating a request
+ * does not need a user query. Entries are evicted on every node through Redis pub/sub when a
+ * user's password, email or role changes, or the account is deleted.
+ */
+@Component
+public class PrincipalCache implements MessageListener {
+    private static final String EVICTION_CHANNEL = "cache:principals:evict";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final LoadingCache<String, AuthenticatedUser> principals;
+
+    public PrincipalCache(UserRepository userRepository,
+                          StringRedisTemplate redisTemplate,
+                          RedisMessageListenerContainer listenerContainer,
+                          @Value("${app.security.principal-cache.max-size:50000}") long maxSize,
+                          @Value("${app.security.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build(email -> userRepository.findByEmail(email).map(AuthenticatedUser::of).orElse(null));
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVICTION_CHANNEL));
+    }
+
+    public AuthenticatedUser get(String email) {
+        // Missing users are not cached, so a newly registered account is found right away
+        AuthenticatedUser principal = principals.get(email);
+        if (principal == null) {
+            throw new UsernameNotFoundException("User not found with email: " + email);
+        }
+        return principal;
+    }
+
+    /**
+     * Drop a user's principal on every node once the current transaction commits
+     * (so a concurrent request cannot re-cache the old row)
+     */
+    public void evict(String email) {
+        TransactionUtils.afterCommit(() -> {
+            principals.invalidate(email);
+            ClusterMessages.publish(redisTemplate, EVICTION_CHANNEL, "email:" + email);
+        });
+    }
+
+    /**
+     * Same as {@link #evict(String)} when only the id is at hand (e.g. account deletion)
+     */
+    public void evict(Long userId) {
+        TransactionUtils.afterCommit(() -> {
+            evictLocally(userId);
+            ClusterMessages.publish(redisTemplate, EVICTION_CHANNEL, "id:" + userId);
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // email:<email> or id:<userId>
+        String payload = ClusterMessages.fromOtherNode(message);
+        String[] parts = payload == null ? new String[0] : payload.split(":", 2);
+        if (parts.length != 2) {
+            return;
+        }
+        if ("email".equals(parts[0])) {
+            principals.invalidate(parts[1]);
+        } else if ("id".equals(parts[0])) {
+            try {
+                evictLocally(Long.parseLong(parts[1]));
+            } catch (NumberFormatException ignored) {
+                // Malformed message, nothing to evict
+            }
+        }
+    }
+
+    private void evictLocally(Long userId) {
+        principals.asMap().values()
+                .removeIf(principal -> principal.getId().equals(userId));
+    }
+}
@@ -5,8 +5,9 @@ import com.jgy36.PoliticalApp.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
 
 @Service
 public class PrivacyService {
@@ -15,7 +16,7 @@ public class PrivacyService {
     private MatchRepository matchRepository;
 
     @Autowired
-    private FollowRepository followRepository;
+    private FollowGraph followGraph;
 
     @Autowired
     private PostRepository postRepository;
@@ -23,65 +24,165 @@ public class PrivacyService {
     @Autowired
     private UserPrivacySettingsRepository userPrivacySettingsRepository;
 
+    @Autowired
+    private PrivacySettingsCache privacySettingsCache;
+
     /**
-     * Check if viewer can see user's social media content
+     * What a viewer may see of one author's posts: everything, nothing, or (as a dating match) the
+     * posts newer than notBefore, at most maxPosts of them
      */
-    public boolean canViewSocialProfile(User viewer, User profileOwner) {
-        // Public profiles can be viewed by anyone
-        UserPrivacySettings privacy = getUserPrivacySettings(profileOwner);
-        if (privacy.isProfilePublic()) {
-            return true;
+    private record Access(boolean all, LocalDateTime notBefore, int maxPosts) {
+        static final Access ALL = new Access(true, null, Integer.MAX_VALUE);
+        static final Access NONE = new Access(false, null, 0);
+
+        static Access forMatch(PrivacySettingsCache.Snapshot privacy, LocalDateTime now) {
+            LocalDateTime notBefore = privacy.matchPostsTimeLimit() != null
+                    ? now.minusDays(privacy.matchPostsTimeLimit())
+                    : null;
+            int maxPosts = privacy.maxPostsForMatches() != null ? privacy.maxPostsForMatches() : Integer.MAX_VALUE;
+            return new Access(false, notBefore, maxPosts);
         }
 
-        // If viewer is following, they can see content
-        if (followRepository.existsByFollowerAndFollowing(viewer, profileOwner)) {
-            return true;
-        }
-
-        // If they are matched, they can see content based on match privacy settings
-        if (areMatched(viewer, profileOwner)) {
-            return privacy.isShowPostsToMatches();
+        boolean none() {
+            return !all && maxPosts <= 0;
         }
+    }
 
-        return false;
+    /**
+     * Check if viewer can see user's social media content
+     */
+    public boolean canViewSocialProfile(User viewer, User profileOwner) {
+        return !resolveAccess(idOf(viewer), List.of(profileOwner.getId())).get(profileOwner.getId()).none();
     }
 
     /**
      * Get posts that a viewer is allowed to see from a user
      */
     public List<Post> getVisiblePostsForViewer(User viewer, User profileOwner) {
-        if (!canViewSocialProfile(viewer, profileOwner)) {
-            return List.of(); // Empty list if can't view profile
+        return getVisiblePostsForViewer(idOf(viewer), profileOwner.getId());
+    }
+
+    /**
+     * Posts of one author visible to a viewer (null for anonymous), newest first. Posts are only loaded
+     * if the viewer may see any of them.
+     */
+    public List<Post> getVisiblePostsForViewer(Long viewerId, Long ownerId) {
+        Map<Long, Access> access = resolveAccess(viewerId, List.of(ownerId));
+        if (access.get(ownerId).none()) {
+            return new ArrayList<>();
         }
+        return apply(postRepository.findByAuthorIdOrderByCreatedAtDesc(ownerId), access,
+                post -> post.getAuthor().getId(), Post::getCreatedAt);
+    }
 
-        UserPrivacySettings privacy = getUserPrivacySettings(profileOwner);
-        List<Post> allPosts = postRepository.findByUserOrderByCreatedAtDesc(profileOwner);
+    /**
+     * The posts of a mixed-author batch that a viewer may see, in input order
+     */
+    public List<Post> filterVisiblePosts(Long viewerId, List<Post> posts) {
+        return filterVisible(viewerId, posts, post -> post.getAuthor().getId(), Post::getCreatedAt);
+    }
 
-        // If they're matched (not following), apply match-specific privacy
-        if (areMatched(viewer, profileOwner) && !followRepository.existsByFollowerAndFollowing(viewer, profileOwner)) {
-            return filterPostsForMatches(allPosts, privacy);
+    /**
+     * Visibility for a batch of (author, post) items in one pass. Privacy settings, follow edges and
+     * active matches are resolved once per distinct author with grouped lookups, then the items are
+     * streamed through: the match rules (time limit, post cap) are applied per author as items go by,
+     * so the cap keeps the newest posts when items are newest first, as every feed query returns them.
+     */
+    public <T> List<T> filterVisible(Long viewerId, List<T> items,
+                                     Function<T, Long> authorOf, Function<T, LocalDateTime> createdAtOf) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> authorIds = new HashSet<>();
+        for (T item : items) {
+            authorIds.add(authorOf.apply(item));
         }
+        return apply(items, resolveAccess(viewerId, authorIds), authorOf, createdAtOf);
+    }
 
-        // If following or public, show all posts
-        return allPosts;
+    private <T> List<T> apply(List<T> items, Map<Long, Access> access,
+                              Function<T, Long> authorOf, Function<T, LocalDateTime> createdAtOf) {
+        List<T> visible = new ArrayList<>(items.size());
+        Map<Long, Integer> shownToMatch = new HashMap<>();
+        for (T item : items) {
+            Long authorId = authorOf.apply(item);
+            Access authorAccess = access.get(authorId);
+            if (authorAccess.all()) {
+                visible.add(item);
+                continue;
+            }
+            if (authorAccess.none()) {
+                continue;
+            }
+            LocalDateTime createdAt = createdAtOf.apply(item);
+            if (authorAccess.notBefore() != null && (createdAt == null || createdAt.isBefore(authorAccess.notBefore()))) {
+                continue;
+            }
+            if (shownToMatch.merge(authorId, 1, Integer::sum) <= authorAccess.maxPosts()) {
+                visible.add(item);
+            }
+        }
+        return visible;
     }
 
     /**
-     * Filter posts based on what matches are allowed to see
+     * Access per author with one cache lookup for privacy settings, one in-memory follow probe per private
+     * author, and one query for matches with the private authors the viewer does not follow
      */
-    private List<Post> filterPostsForMatches(List<Post> posts, UserPrivacySettings privacy) {
-        return posts.stream()
-                .filter(post -> {
-                    // Only show posts from last X days to matches
-                    if (privacy.getMatchPostsTimeLimit() != null) {
-                        return post.getCreatedAt().isAfter(
-                                java.time.LocalDateTime.now().minusDays(privacy.getMatchPostsTimeLimit())
-                        );
-                    }
-                    return true;
-                })
-                .limit(privacy.getMaxPostsForMatches() != null ? privacy.getMaxPostsForMatches() : Long.MAX_VALUE)
-                .collect(Collectors.toList());
+    private Map<Long, Access> resolveAccess(Long viewerId, Collection<Long> authorIds) {
+        Map<Long, Access> access = new HashMap<>();
+        Set<Long> others = new HashSet<>(authorIds);
+        if (viewerId != null && others.remove(viewerId)) {
+            access.put(viewerId, Access.ALL);
+        }
+        if (others.isEmpty()) {
+            return access;
+        }
+
+        // Authors missing from the cache are loaded with one query; no settings row means the public defaults
+        Map<Long, PrivacySettingsCache.Snapshot> settings = privacySettingsCache.getAll(others);
+        Set<Long> restricted = new HashSet<>();
+        for (Long authorId : others) {
+            if (settings.get(authorId).publicProfile()) {
+                access.put(authorId, Access.ALL);
+            } else {
+                restricted.add(authorId);
+            }
+        }
+        if (restricted.isEmpty()) {
+            return access;
+        }
+
+        Set<Long> followed = followGraph.getFollowedAmong(viewerId, restricted);
+        Set<Long> matchCandidates = new HashSet<>();
+        for (Long authorId : restricted) {
+            if (!followed.contains(authorId) && settings.get(authorId).showPostsToMatches()) {
+                matchCandidates.add(authorId);
+            }
+        }
+        Set<Long> matched = viewerId == null || matchCandidates.isEmpty()
+                ? Set.of()
+                : new HashSet<>(matchRepository.findActiveMatchedUserIds(viewerId, matchCandidates));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Long authorId : restricted) {
+            if (followed.contains(authorId)) {
+                access.put(authorId, Access.ALL);
+            } else if (matched.contains(authorId)) {
+                access.put(authorId, Access.forMatch(settings.get(authorId), now));
+            } else {
+                access.put(authorId, Access.NONE);
+            }
+        }
+        return access;
+    }
+
+    private static Long idOf(User user) {
+        return user != null ? user.getId() : null;
+    }
+
+    private boolean isFollowing(User viewer, User profileOwner) {
+        return viewer != null && followGraph.isFollowing(viewer.getId(), profileOwner.getId());
     }
 
     /**
@@ -129,7 +230,9 @@ public class PrivacyService {
         existing.setShowFollowersToMatches(newSettings.isShowFollowersToMatches());
         existing.setShowFollowingToMatches(newSettings.isShowFollowingToMatches());
 
-        return userPrivacySettingsRepository.save(existing);
+        UserPrivacySettings saved = userPrivacySettingsRepository.save(existing);
+        privacySettingsCache.update(user.getId(), PrivacySettingsCache.Snapshot.of(saved));
+        return saved;
     }
 
     /**
@@ -140,20 +243,20 @@ public class PrivacyService {
             return true; // Can always see your own lists
         }
 
-        UserPrivacySettings privacy = getUserPrivacySettings(profileOwner);
+        PrivacySettingsCache.Snapshot privacy = privacySettingsCache.get(profileOwner.getId());
 
         // If following, can see lists
-        if (followRepository.existsByFollowerAndFollowing(viewer, profileOwner)) {
+        if (isFollowing(viewer, profileOwner)) {
             return true;
         }
 
         // If matched, check match privacy settings
         if (areMatched(viewer, profileOwner)) {
-            return privacy.isShowFollowersToMatches();
+            return privacy.showFollowersToMatches();
         }
 
         // Otherwise, only if profile is public
-        return privacy.isProfilePublic();
+        return privacy.publicProfile();
     }
 
     /**
@@ -164,19 +267,19 @@ public class PrivacyService {
             return true; // Can always see your own lists
         }
 
-        UserPrivacySettings privacy = getUserPrivacySettings(profileOwner);
+        PrivacySettingsCache.Snapshot privacy = privacySettingsCache.get(profileOwner.getId());
 
         // If following, can see lists
-        if (followRepository.existsByFollowerAndFollowing(viewer, profileOwner)) {
+        if (isFollowing(viewer, profileOwner)) {
             return true;
         }
 
         // If matched, check match privacy settings
         if (areMatched(viewer, profileOwner)) {
-            return privacy.isShowFollowingToMatches();
+            return privacy.showFollowingToMatches();
         }
 
         // Otherwise, only if profile is public
-        return privacy.isProfilePublic();
+        return privacy.publicProfile();
     }
 }
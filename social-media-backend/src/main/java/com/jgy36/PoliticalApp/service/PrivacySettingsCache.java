@@ -0,0 +1,158 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.jgy36.PoliticalApp.entity.UserPrivacySettings;
+import com.jgy36.PoliticalApp.repository.UserPrivacySettingsRepository;
+import com.jgy36.PoliticalApp.utils.ClusterMessages;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Per-node read-through cache of privacy settings, held as immutable {@link Snapshot}s keyed by user id.
+ * Writers put the new snapshot after commit; other nodes drop their copy through Redis pub/sub.
+ * Entries also expire after a few minutes, so a lost invalidation message cannot keep a private
+ * account visible on one node for long.
+ */
+@Component
+public class PrivacySettingsCache implements MessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(PrivacySettingsCache.class);
+    private static final String INVALIDATION_CHANNEL = "cache:privacy-settings:invalidate";
+
+    /**
+     * The privacy fields that read paths need, detached from the entity and its lazy user
+     */
+    public record Snapshot(boolean publicProfile,
+                           boolean allowFollowers,
+                           boolean allowSearchIndexing,
+                           boolean showPostsToMatches,
+                           Integer maxPostsForMatches,
+                           Integer matchPostsTimeLimit,
+                           boolean showFollowersToMatches,
+                           boolean showFollowingToMatches) {
+
+        // Matches the field defaults of UserPrivacySettings
+        public static final Snapshot DEFAULTS = of(new UserPrivacySettings());
+
+        public static Snapshot of(UserPrivacySettings settings) {
+            return new Snapshot(settings.isProfilePublic(), settings.isAllowFollowers(),
+                    settings.isAllowSearchIndexing(), settings.isShowPostsToMatches(),
+                    settings.getMaxPostsForMatches(), settings.getMatchPostsTimeLimit(),
+                    settings.isShowFollowersToMatches(), settings.isShowFollowingToMatches());
+        }
+
+        public boolean isPrivate() {
+            return !publicProfile;
+        }
+    }
+
+    private final UserPrivacySettingsRepository privacyRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final LoadingCache<Long, Snapshot> snapshots;
+
+    public PrivacySettingsCache(UserPrivacySettingsRepository privacyRepository,
+                                StringRedisTemplate redisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                @Value("${app.privacy.settings-cache.max-size:200000}") long maxSize,
+                                @Value("${app.privacy.settings-cache.ttl-minutes:5}") long ttlMinutes) {
+        this.privacyRepository = privacyRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Snapshot load(Long userId) {
+                        return privacyRepository.findByUserId(userId)
+                                .map(Snapshot::of)
+                                .orElse(Snapshot.DEFAULTS);
+                    }
+
+                    @Override
+                    public Map<Long, Snapshot> loadAll(Set<? extends Long> userIds) {
+                        return loadSnapshots(userIds);
+                    }
+                });
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public Snapshot get(Long userId) {
+        return snapshots.get(userId);
+    }
+
+    /**
+     * Bulk read-through: missing users are loaded with a single query
+     */
+    public Map<Long, Snapshot> getAll(Collection<Long> userIds) {
+        return snapshots.getAll(userIds);
+    }
+
+    public boolean isPrivate(Long userId) {
+        return snapshots.get(userId).isPrivate();
+    }
+
+    /**
+     * Write-through after a local update; other nodes drop their copy
+     */
+    public void update(Long userId, Snapshot snapshot) {
+        snapshots.put(userId, snapshot);
+        publishInvalidation(userId);
+    }
+
+    public void invalidate(Long userId) {
+        snapshots.invalidate(userId);
+        publishInvalidation(userId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String userId = ClusterMessages.fromOtherNode(message);
+        if (userId == null) {
+            return;
+        }
+        try {
+            snapshots.invalidate(Long.parseLong(userId));
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring malformed privacy settings invalidation message: {}", userId);
+        }
+    }
+
+    private void publishInvalidation(Long userId) {
+        try {
+            ClusterMessages.publish(redisTemplate, INVALIDATION_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            // Other nodes keep a stale entry until it is evicted; local state is already correct
+            logger.error("Failed to publish privacy settings invalidation for user {}", userId, e);
+        }
+    }
+
+    private Map<Long, Snapshot> loadSnapshots(Collection<? extends Long> userIds) {
+        Map<Long, Snapshot> result = new HashMap<>();
+        for (UserPrivacySettings settings : privacyRepository.findAllByUserIdIn(new ArrayList<Long>(userIds))) {
+            result.put(settings.getUserId(), Snapshot.of(settings));
+        }
+        // Users without a row get the defaults, cached so they are not queried again
+        for (Long userId : userIds) {
+            result.putIfAbsent(userId, Snapshot.DEFAULTS);
+        }
+        return result;
+    }
+}
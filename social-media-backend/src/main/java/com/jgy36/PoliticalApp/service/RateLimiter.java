@@ -0,0 +1,137 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jgy36.PoliticalApp.utils.RedisScriptUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Token-bucket rate limiter shared by all nodes through an atomic Redis script.
+ * Each node also keeps a local bucket per key: a client that has used up a whole bucket on this node
+ * alone is over the global limit too, and a client Redis has just rejected stays rejected until its
+ * retry time, so abusive traffic is turned away without a Redis round trip.
+ * If Redis is unreachable, the local bucket alone decides.
+ */
+@Service
+public class RateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+    private static final String KEY_PREFIX = "rate-limit:";
+
+    // KEYS[1] bucket, ARGV[1] capacity, ARGV[2] tokens refilled per ms -> {allowed, retryAfterMs}
+    private static final DefaultRedisScript<List<Long>> TOKEN_BUCKET_SCRIPT = RedisScriptUtils.listScript("""
+            local capacity = tonumber(ARGV[1])
+            local refill_per_ms = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1]) or capacity
+            local ts = tonumber(state[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * refill_per_ms)
+            local allowed = 0
+            local retry_after = 0
+            if tokens >= 1 then
+                tokens = tokens - 1
+                allowed = 1
+            else
+                retry_after = math.ceil((1 - tokens) / refill_per_ms)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / refill_per_ms))
+            return {allowed, retry_after}
+            """);
+
+    /**
+     * A bucket holding {@code capacity} requests, refilled at {@code refillPerMinute}
+     */
+    public record Policy(String name, int capacity, int refillPerMinute) {
+        double refillPerMs() {
+            return refillPerMinute / 60000.0;
+        }
+    }
+
+    public record Decision(boolean allowed, long retryAfterSeconds) {
+        static final Decision ALLOW = new Decision(true, 0);
+    }
+
+    // Bucket state on this node
+    private static final class LocalBucket {
+        private double tokens;
+        private long updatedAt;
+        private long blockedUntil;
+
+        LocalBucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.updatedAt = now;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, LocalBucket> localBuckets;
+
+    public RateLimiter(StringRedisTemplate redisTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.rate-limit.local-max-keys:100000}") long localMaxKeys) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.localBuckets = Caffeine.newBuilder()
+                .maximumSize(localMaxKeys)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+    }
+
+    /**
+     * Take one request from the bucket of {@code key} (a user id or client IP) under the given policy
+     */
+    public Decision tryAcquire(Policy policy, String key) {
+        String bucketKey = policy.name() + ":" + key;
+        long now = System.currentTimeMillis();
+
+        LocalBucket local = localBuckets.get(bucketKey, k -> new LocalBucket(policy.capacity(), now));
+        synchronized (local) {
+            if (local.blockedUntil > now) {
+                return reject(policy, local.blockedUntil - now);
+            }
+            local.tokens = Math.min(policy.capacity(), local.tokens + (now - local.updatedAt) * policy.refillPerMs());
+            local.updatedAt = now;
+            if (local.tokens < 1) {
+                return reject(policy, (long) Math.ceil((1 - local.tokens) / policy.refillPerMs()));
+            }
+            local.tokens -= 1;
+        }
+
+        List<Long> result;
+        try {
+            result = redisTemplate.execute(TOKEN_BUCKET_SCRIPT, List.of(KEY_PREFIX + bucketKey),
+                    String.valueOf(policy.capacity()), String.valueOf(policy.refillPerMs()));
+        } catch (Exception e) {
+            meterRegistry.counter("rate_limit.redis_errors").increment();
+            logger.warn("Rate limiter falling back to local buckets: {}", e.getMessage());
+            return Decision.ALLOW;
+        }
+
+        if (result == null || result.size() < 2 || result.get(0) == 1) {
+            return Decision.ALLOW;
+        }
+
+        long retryAfterMs = result.get(1);
+        synchronized (local) {
+            local.blockedUntil = now + retryAfterMs;
+        }
+        return reject(policy, retryAfterMs);
+    }
+
+    private Decision reject(Policy policy, long retryAfterMs) {
+        meterRegistry.counter("rate_limit.rejected", "policy", policy.name()).increment();
+        return new Decision(false, Math.max(1, (retryAfterMs + 999) / 1000));
+    }
+}
@@ -0,0 +1,167 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.utils.RedisScriptUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Opaque, rotating refresh tokens stored in Redis.
+ * Each login starts a family (its id doubles as the session id). Every refresh consumes the presented
+ * token and issues the next one in the same family; presenting an already used token means it was
+ * copied, so the whole family is revoked. Only SHA-256 hashes of tokens are stored.
+ * <p>
+ * Keys: {@code refresh:token:<hash>} (family, used, email), {@code refresh:family:<id>} (userId, revoked),
+ * {@code refresh:user-families:<userId>} (set of family ids, for "log out everywhere").
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final String TOKEN_PREFIX = "refresh:token:";
+    private static final String FAMILY_PREFIX = "refresh:family:";
+    private static final String USER_FAMILIES_PREFIX = "refresh:user-families:";
+
+    // KEYS[1] presented token, KEYS[2] next token; ARGV[1] ttl ms, ARGV[2] family key prefix
+    // -> {status, familyId, email}. The family key is derived inside the script, so this assumes a
+    // single Redis (not cluster) deployment.
+    private static final DefaultRedisScript<List<String>> ROTATE_SCRIPT = RedisScriptUtils.listScript("""
+            local record = redis.call('HMGET', KEYS[1], 'family', 'used', 'email')
+            if not record[1] then
+                return {'invalid'}
+            end
+            local family_key = ARGV[2] .. record[1]
+            if redis.call('HGET', family_key, 'revoked') ~= '0' then
+                return {'invalid'}
+            end
+            if record[2] == '1' then
+                redis.call('HSET', family_key, 'revoked', '1')
+                return {'reused', record[1], record[3]}
+            end
+            redis.call('HSET', KEYS[1], 'used', '1')
+            redis.call('HSET', KEYS[2], 'family', record[1], 'used', '0', 'email', record[3])
+            redis.call('PEXPIRE', KEYS[2], ARGV[1])
+            redis.call('PEXPIRE', family_key, ARGV[1])
+            return {'ok', record[1], record[3]}
+            """);
+
+    public enum Status {OK, INVALID, REUSED}
+
+    /**
+     * A newly started family and its first refresh token
+     */
+    public record IssuedSession(String sessionId, String refreshToken) {
+    }
+
+    /**
+     * Outcome of a refresh. On OK, {@code refreshToken} is the replacement to hand back to the client.
+     */
+    public record Rotation(Status status, String sessionId, String email, String refreshToken) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(StringRedisTemplate redisTemplate,
+                               @Value("${app.auth.refresh-token-ttl-days:7}") long ttlDays) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = Duration.ofDays(ttlDays);
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Start a new family for a login
+     */
+    public IssuedSession start(Long userId, String email) {
+        String sessionId = UUID.randomUUID().toString();
+        String refreshToken = newToken();
+
+        String familyKey = FAMILY_PREFIX + sessionId;
+        String userFamiliesKey = USER_FAMILIES_PREFIX + userId;
+        String tokenKey = TOKEN_PREFIX + hash(refreshToken);
+
+        redisTemplate.opsForHash().putAll(familyKey, Map.of("userId", userId.toString(), "revoked", "0"));
+        redisTemplate.expire(familyKey, ttl);
+        redisTemplate.opsForHash().putAll(tokenKey, Map.of("family", sessionId, "used", "0", "email", email));
+        redisTemplate.expire(tokenKey, ttl);
+        redisTemplate.opsForSet().add(userFamiliesKey, sessionId);
+        redisTemplate.expire(userFamiliesKey, ttl);
+
+        return new IssuedSession(sessionId, refreshToken);
+    }
+
+    /**
+     * Consume a refresh token and issue its successor
+     */
+    public Rotation rotate(String refreshToken) {
+        String next = newToken();
+        List<String> result = redisTemplate.execute(ROTATE_SCRIPT,
+                List.of(TOKEN_PREFIX + hash(refreshToken), TOKEN_PREFIX + hash(next)),
+                String.valueOf(ttl.toMillis()), FAMILY_PREFIX);
+
+        if (result == null || result.isEmpty() || "invalid".equals(result.get(0))) {
+            return new Rotation(Status.INVALID, null, null, null);
+        }
+        String sessionId = result.get(1);
+        String email = result.get(2);
+        if ("reused".equals(result.get(0))) {
+            logger.warn("Refresh token reuse detected, revoked session {}", sessionId);
+            return new Rotation(Status.REUSED, sessionId, email, null);
+        }
+        return new Rotation(Status.OK, sessionId, email, next);
+    }
+
+    /**
+     * End one session: its current and past refresh tokens stop working
+     */
+    public void revokeSession(String sessionId) {
+        String familyKey = FAMILY_PREFIX + sessionId;
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(familyKey))) {
+            redisTemplate.opsForHash().put(familyKey, "revoked", "1");
+        }
+    }
+
+    /**
+     * End every session of a user, optionally keeping one (the caller's own)
+     */
+    public void revokeAllSessions(Long userId, String keepSessionId) {
+        Set<String> sessionIds = redisTemplate.opsForSet().members(USER_FAMILIES_PREFIX + userId);
+        if (sessionIds == null) {
+            return;
+        }
+        for (String sessionId : sessionIds) {
+            if (!sessionId.equals(keepSessionId)) {
+                revokeSession(sessionId);
+                redisTemplate.opsForSet().remove(USER_FAMILIES_PREFIX + userId, sessionId);
+            }
+        }
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -23,15 +24,18 @@ public class SearchService {
     private final UserRepository userRepository;
     private final CommunityRepository communityRepository;
     private final PostRepository postRepository;
+    private final UserStatsService userStatsService;
 
     @Autowired
     public SearchService(
             UserRepository userRepository,
             CommunityRepository communityRepository,
-            PostRepository postRepository) {
+            PostRepository postRepository,
+            UserStatsService userStatsService) {
         this.userRepository = userRepository;
         this.communityRepository = communityRepository;
         this.postRepository = postRepository;
+        this.userStatsService = userStatsService;
     }
 
     /**
@@ -84,6 +88,8 @@ public class SearchService {
         try {
             List<User> users = userRepository.findByUsernameContainingIgnoreCaseOrDisplayNameContainingIgnoreCase(
                     query, query);
+            Map<Long, UserStatsService.UserStats> statsByUser = userStatsService.getAll(
+                    users.stream().map(User::getId).collect(Collectors.toList()));
 
             return users.stream()
                     .map(user -> {
@@ -94,9 +100,8 @@ public class SearchService {
                         result.setUsername(user.getUsername());
                         result.setBio(user.getBio());
 
-                        // Use the repository method to get followers count
-                        int followersCount = userRepository.countFollowers(user.getId());
-                        result.setFollowersCount(followersCount);
+                        // Followers count from the batch user_stats lookup
+                        result.setFollowersCount(statsByUser.get(user.getId()).followersCount());
 
                         return result;
                     })
@@ -1,13 +1,12 @@
 package com.jgy36.PoliticalApp.service;
 
+import com.jgy36.PoliticalApp.config.AuthenticatedUser;
 import com.jgy36.PoliticalApp.entity.User;
 import com.jgy36.PoliticalApp.entity.UserSecuritySettings;
 import com.jgy36.PoliticalApp.entity.UserSession;
 import com.jgy36.PoliticalApp.repository.UserRepository;
 import com.jgy36.PoliticalApp.repository.UserSecuritySettingsRepository;
 import com.jgy36.PoliticalApp.repository.UserSessionRepository;
-import org.jboss.aerogear.security.otp.Totp;
-import org.jboss.aerogear.security.otp.api.Base32;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
@@ -30,18 +29,30 @@ public class SecurityService {
     private final UserSessionRepository sessionRepository;
     private final UserDetailsServiceImpl userDetailsService;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final RefreshTokenService refreshTokenService;
+    private final TwoFactorService twoFactorService;
 
     public SecurityService(
             UserSecuritySettingsRepository securityRepository,
             UserRepository userRepository,
             UserSessionRepository sessionRepository,
             UserDetailsServiceImpl userDetailsService,
-            PasswordEncoder passwordEncoder) {
+            PasswordEncoder passwordEncoder,
+            PrincipalCache principalCache,
+            TokenBlacklistService tokenBlacklistService,
+            RefreshTokenService refreshTokenService,
+            TwoFactorService twoFactorService) {
         this.securityRepository = securityRepository;
         this.userRepository = userRepository;
         this.sessionRepository = sessionRepository;
         this.userDetailsService = userDetailsService;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
+        this.tokenBlacklistService = tokenBlacklistService;
+        this.refreshTokenService = refreshTokenService;
+        this.twoFactorService = twoFactorService;
     }
 
     /**
@@ -49,8 +60,10 @@ public class SecurityService {
      */
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        User user = userRepository.findByEmail(authentication.getName())
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         return user.getId();
     }
@@ -87,26 +100,6 @@ public class SecurityService {
                 .orElse(false);
     }
 
-    /**
-     * Generate a new 2FA secret
-     */
-    public String generateTwoFaSecret() {
-        return Base32.random();
-    }
-
-    /**
-     * Verify a 2FA code
-     */
-    public boolean verifyTwoFaCode(String secret, String code) {
-        try {
-            Totp totp = new Totp(secret);
-            return totp.verify(code);
-        } catch (Exception e) {
-            logger.error("Error verifying TOTP code", e);
-            return false;
-        }
-    }
-
     /**
      * Enable 2FA for a user
      */
@@ -116,6 +109,7 @@ public class SecurityService {
         settings.setTwoFaEnabled(true);
         settings.setTwoFaSecret(secret);
         securityRepository.save(settings);
+        twoFactorService.evict(userId);
     }
 
     /**
@@ -127,6 +121,7 @@ public class SecurityService {
         settings.setTwoFaEnabled(false);
         settings.setTwoFaSecret(null);
         securityRepository.save(settings);
+        twoFactorService.evict(userId);
     }
 
     /**
@@ -145,6 +140,7 @@ public class SecurityService {
         // Update password
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
 
         // Update last password change timestamp
         UserSecuritySettings settings = getUserSecuritySettings(userId);
@@ -166,11 +162,20 @@ public class SecurityService {
      */
     @Transactional
     public UserSession createSession(Long userId, String browser, String os, String ipAddress, String location) {
+        return createSession(UUID.randomUUID().toString(), userId, browser, os, ipAddress, location);
+    }
+
+    /**
+     * Create a session row with a known id (the refresh token family started at login)
+     */
+    @Transactional
+    public UserSession createSession(String sessionId, Long userId, String browser, String os, String ipAddress,
+                                     String location) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
         UserSession session = new UserSession();
-        session.setId(UUID.randomUUID().toString());
+        session.setId(sessionId);
         session.setUser(user);
         session.setBrowser(browser);
         session.setOs(os);
@@ -190,6 +195,7 @@ public class SecurityService {
         Optional<UserSession> sessionOpt = sessionRepository.findById(sessionId);
         if (sessionOpt.isPresent() && sessionOpt.get().getUser().getId().equals(userId)) {
             sessionRepository.deleteById(sessionId);
+            refreshTokenService.revokeSession(sessionId);
             return true;
         }
         return false;
@@ -201,6 +207,7 @@ public class SecurityService {
     @Transactional
     public void terminateAllSessionsExceptCurrent(Long userId, String currentSessionId) {
         sessionRepository.deleteAllExceptCurrentByUserId(userId, currentSessionId);
+        refreshTokenService.revokeAllSessions(userId, currentSessionId);
     }
 
     /**
@@ -209,5 +216,10 @@ public class SecurityService {
     @Transactional
     public void terminateAllSessions(Long userId) {
         sessionRepository.deleteAllByUserId(userId);
+        refreshTokenService.revokeAllSessions(userId, null);
+
+        // Revoked refresh tokens stop renewal; the watermark also invalidates access tokens already out
+        userRepository.findById(userId)
+                .ifPresent(user -> tokenBlacklistService.revokeAllTokens(user.getEmail()));
     }
 }
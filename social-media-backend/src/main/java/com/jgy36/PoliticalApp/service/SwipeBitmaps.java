@@ -0,0 +1,190 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.repository.SwipeRepository;
+import com.jgy36.PoliticalApp.utils.ClusterMessages;
+import com.jgy36.PoliticalApp.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Swipe history held in memory as compressed bitmaps of user ids: per user, everyone they swiped on
+ * (either direction). Deck generation and serving exclude a user's swiped bitmap in one pass. Match
+ * detection does not use the bitmaps, since it must see swipes other nodes have not broadcast yet.
+ * <p>
+ * The swipe table is the backing store: the bitmaps are loaded from it at startup (and periodically,
+ * to repair anything missed), then kept current by swipes, which are applied after commit and
+ * broadcast to the other nodes. Until the first load completes, every query falls back to the database.
+ * Bitmaps are copy-on-write, as in {@link FollowGraph}.
+ */
+@Service
+public class SwipeBitmaps implements MessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(SwipeBitmaps.class);
+    private static final String EVENT_CHANNEL = "cache:swipe-bitmaps";
+    private static final String LOAD_SQL = "SELECT swiper_id, target_id FROM swipe";
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    private record SwipeEvent(long swiperId, long targetId) {
+    }
+
+    private final SwipeRepository swipeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    // userId -> ids they swiped on
+    private volatile Map<Long, Roaring64Bitmap> swiped = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Serializes updates with the swap at the end of a reload; swipes seen during a reload are replayed onto it
+    private final Object updateLock = new Object();
+    private List<SwipeEvent> changesDuringReload;
+
+    public SwipeBitmaps(SwipeRepository swipeRepository,
+                        JdbcTemplate jdbcTemplate,
+                        StringRedisTemplate redisTemplate,
+                        RedisMessageListenerContainer listenerContainer) {
+        this.swipeRepository = swipeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVENT_CHANNEL));
+    }
+
+    /**
+     * Rebuild the bitmaps from the swipe table
+     */
+    @Transactional(readOnly = true)
+    public void reload() {
+        synchronized (updateLock) {
+            changesDuringReload = new ArrayList<>();
+        }
+
+        long start = System.currentTimeMillis();
+        Map<Long, Roaring64Bitmap> loadedSwiped = new HashMap<>();
+        long[] swipes = {0};
+        try {
+            // Streamed with a fetch size (needs the read-only transaction on PostgreSQL)
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(LOAD_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(LOAD_FETCH_SIZE);
+                return statement;
+            }, rs -> {
+                apply(loadedSwiped, new SwipeEvent(rs.getLong(1), rs.getLong(2)));
+                swipes[0]++;
+            });
+        } catch (RuntimeException e) {
+            synchronized (updateLock) {
+                changesDuringReload = null;
+            }
+            throw e;
+        }
+        loadedSwiped.values().forEach(Roaring64Bitmap::runOptimize);
+
+        synchronized (updateLock) {
+            // Swipes are only ever added, so replaying ones the scan already saw is harmless
+            for (SwipeEvent event : changesDuringReload) {
+                apply(loadedSwiped, event);
+            }
+            changesDuringReload = null;
+            swiped = new ConcurrentHashMap<>(loadedSwiped);
+            ready = true;
+        }
+        logger.info("Swipe bitmaps loaded: {} swipes by {} users in {} ms",
+                swipes[0], loadedSwiped.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Everyone the user has swiped on. The returned bitmap is never modified afterwards, so callers can
+     * probe it without copying; they must not modify it themselves.
+     */
+    public Roaring64Bitmap getSwiped(Long swiperId) {
+        if (!ready) {
+            Roaring64Bitmap ids = new Roaring64Bitmap();
+            swipeRepository.findTargetIdsBySwiperId(swiperId).forEach(ids::addLong);
+            return ids;
+        }
+        Roaring64Bitmap ids = swiped.get(swiperId);
+        return ids != null ? ids : new Roaring64Bitmap();
+    }
+
+    /**
+     * Record a swipe once the current transaction commits
+     */
+    public void recordSwipe(Long swiperId, Long targetId) {
+        TransactionUtils.afterCommit(() -> {
+            update(new SwipeEvent(swiperId, targetId));
+            publish("swipe:" + swiperId + ":" + targetId);
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // swipe:<swiper>:<target>
+        String event = ClusterMessages.fromOtherNode(message);
+        String[] parts = event == null ? new String[0] : event.split(":");
+        if (parts.length < 3) {
+            return;
+        }
+        try {
+            switch (parts[0]) {
+                case "swipe" -> update(new SwipeEvent(Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                default -> logger.debug("Unknown swipe bitmap event {}", parts[0]);
+            }
+        } catch (RuntimeException e) {
+            // Malformed message; the periodic reload repairs anything missed
+            logger.warn("Ignoring swipe bitmap event: {}", e.getMessage());
+        }
+    }
+
+    private void update(SwipeEvent event) {
+        synchronized (updateLock) {
+            if (changesDuringReload != null) {
+                changesDuringReload.add(event);
+            }
+            addCopy(swiped, event.swiperId(), event.targetId());
+        }
+    }
+
+    private void publish(String event) {
+        try {
+            ClusterMessages.publish(redisTemplate, EVENT_CHANNEL, event);
+        } catch (Exception e) {
+            logger.warn("Failed to publish swipe bitmap event, other nodes catch up on reload: {}", e.getMessage());
+        }
+    }
+
+    // Replace the bitmap instead of mutating it, so concurrent readers always see a complete one
+    private static void addCopy(Map<Long, Roaring64Bitmap> bitmaps, long key, long value) {
+        bitmaps.compute(key, (id, current) -> {
+            if (current != null && current.contains(value)) {
+                return current;
+            }
+            Roaring64Bitmap next = current == null ? new Roaring64Bitmap() : current.clone();
+            next.addLong(value);
+            return next;
+        });
+    }
+
+    // Only for maps not yet visible to readers
+    private static void apply(Map<Long, Roaring64Bitmap> loadedSwiped, SwipeEvent event) {
+        loadedSwiped.computeIfAbsent(event.swiperId(), id -> new Roaring64Bitmap()).addLong(event.targetId());
+    }
+}
@@ -0,0 +1,123 @@
+package com.jgy36.PoliticalApp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-node Bloom filter of blacklisted token digests, split into time slices by token expiry.
+ * A token is recorded in the slice its expiry falls into, and whole slices are dropped once every
+ * token in them has expired, so the filter never has to support deletes and never fills up.
+ * A miss means the token is definitely not blacklisted; a hit must be confirmed against Redis.
+ */
+@Component
+public class TokenBlacklistBloomFilter {
+
+    private final long sliceMillis;
+    private final int bitsPerSlice;
+    private final int hashCount;
+
+    // Slice index (expiry / sliceMillis) -> bits
+    private final ConcurrentNavigableMap<Long, AtomicLongArray> slices = new ConcurrentSkipListMap<>();
+
+    // Until the first full sync from Redis completes, a miss proves nothing
+    private volatile boolean ready;
+
+    public TokenBlacklistBloomFilter(
+            @Value("${app.security.blacklist.bloom.slice-minutes:60}") long sliceMinutes,
+            @Value("${app.security.blacklist.bloom.expected-per-slice:100000}") int expectedPerSlice,
+            @Value("${app.security.blacklist.bloom.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.sliceMillis = TimeUnit.MINUTES.toMillis(sliceMinutes);
+
+        // Standard sizing: m = -n ln p / (ln 2)^2, k = m / n ln 2
+        long bits = (long) Math.ceil(-expectedPerSlice * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitsPerSlice = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitsPerSlice / expectedPerSlice * Math.log(2)));
+    }
+
+    /**
+     * Record a token digest (SHA-256 of the token) until the given expiry time
+     */
+    public void put(byte[] digest, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        AtomicLongArray bits = slices.computeIfAbsent(expiresAtMillis / sliceMillis,
+                k -> new AtomicLongArray((bitsPerSlice + 63) / 64));
+
+        long h1 = ByteBuffer.wrap(digest, 0, 8).getLong();
+        long h2 = ByteBuffer.wrap(digest, 8, 8).getLong();
+        for (int i = 0; i < hashCount; i++) {
+            setBit(bits, index(h1, h2, i));
+        }
+    }
+
+    /**
+     * False only if the token is certainly not blacklisted
+     */
+    public boolean mightContain(byte[] digest) {
+        if (!ready) {
+            return true;
+        }
+
+        long h1 = ByteBuffer.wrap(digest, 0, 8).getLong();
+        long h2 = ByteBuffer.wrap(digest, 8, 8).getLong();
+        for (AtomicLongArray bits : slices.tailMap(System.currentTimeMillis() / sliceMillis, true).values()) {
+            if (containsAll(bits, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Drop slices whose tokens have all expired
+     */
+    public void pruneExpired() {
+        slices.headMap(System.currentTimeMillis() / sliceMillis).clear();
+    }
+
+    public int getSliceCount() {
+        return slices.size();
+    }
+
+    private boolean containsAll(AtomicLongArray bits, long h1, long h2) {
+        for (int i = 0; i < hashCount; i++) {
+            int index = index(h1, h2, i);
+            if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Double hashing: g_i(x) = h1 + i * h2
+    private int index(long h1, long h2, int i) {
+        return (int) Math.floorMod(h1 + i * h2, (long) bitsPerSlice);
+    }
+
+    private static void setBit(AtomicLongArray bits, int index) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+}
@@ -1,87 +1,263 @@
 package com.jgy36.PoliticalApp.service;
 
+import com.jgy36.PoliticalApp.utils.ClusterMessages;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Redis-backed token blacklist with a per-node Bloom filter in front of it.
+ * Most tokens were never blacklisted, so the filter answers those in memory; only filter hits
+ * are confirmed against Redis. Every node adds newly blacklisted tokens to its filter through
+ * Redis pub/sub, and a periodic resync from Redis covers messages missed while disconnected.
+ * <p>
+ * Entries are keyed by a 128-bit token hash and expire with the token through Redis TTLs.
+ * Revoking every token of a user is a single "issued before" watermark, held in memory on each node.
+ */
 @Service
-public class TokenBlacklistService {
+public class TokenBlacklistService implements MessageListener {
     private static final Logger logger = LoggerFactory.getLogger(TokenBlacklistService.class);
     private static final String BLACKLIST_PREFIX = "blacklist:";
+    private static final String BLACKLIST_CHANNEL = "cache:token-blacklist:add";
+    private static final String REVOKED_BEFORE_PREFIX = "revoked-before:";
+    private static final String REVOCATION_CHANNEL = "cache:token-revocations:user";
+    private static final int KEY_HASH_BYTES = 16;
+
     private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final TokenBlacklistBloomFilter bloomFilter;
+
+    // Subject (email) -> tokens issued before this epoch second are revoked
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    // When Redis cannot confirm a filter hit: true rejects the token, false lets it through
+    @Value("${app.security.blacklist.fail-closed:true}")
+    private boolean failClosed;
+
+    @Value("${jwt.expirationMs}")
+    private long maxTokenLifetimeMs;
+
+    // Upper bound on the time a resync spends fixing up keys (legacy full-token keys, missing TTLs)
+    @Value("${app.security.blacklist.sweep-budget-ms:2000}")
+    private long sweepBudgetMs;
 
     @Autowired
-    public TokenBlacklistService(StringRedisTemplate redisTemplate) {
+    public TokenBlacklistService(StringRedisTemplate redisTemplate,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 TokenBlacklistBloomFilter bloomFilter) {
         this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.bloomFilter = bloomFilter;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(BLACKLIST_CHANNEL));
+        listenerContainer.addMessageListener(this, new ChannelTopic(REVOCATION_CHANNEL));
     }
 
     public void blacklistToken(String token, long expirationMillis) {
-        try {
-            // Ensure meaningful expiration time
-            long safeExpirationMillis = Math.max(expirationMillis, 60000); // Minimum 1 minute
-            String blacklistKey = BLACKLIST_PREFIX + token;
+        // Ensure meaningful expiration time
+        long safeExpirationMillis = Math.max(expirationMillis, 60000); // Minimum 1 minute
+        long expiresAt = System.currentTimeMillis() + safeExpirationMillis;
+        byte[] digest = keyHash(token);
 
-            logger.info("🚫 Blacklisting Token: {}", token);
-            logger.info("🕒 Token Expiration Time: {} ms", safeExpirationMillis);
+        // Local filter first so this node rejects the token even if Redis is down
+        bloomFilter.put(digest, expiresAt);
 
-            // Store blacklisted token with expiration
+        try {
             redisTemplate.opsForValue().set(
-                    blacklistKey,
+                    blacklistKey(digest),
                     "blacklisted",
                     safeExpirationMillis,
                     TimeUnit.MILLISECONDS
             );
-
-            // Verify token was added to blacklist
-            Boolean exists = redisTemplate.hasKey(blacklistKey);
-            logger.info("✅ Token Blacklist Confirmation: {}", exists);
+            ClusterMessages.publish(redisTemplate, BLACKLIST_CHANNEL,
+                    expiresAt + ":" + HexFormat.of().formatHex(digest));
+            logger.debug("Blacklisted token for {} ms", safeExpirationMillis);
         } catch (Exception e) {
             logger.error("❌ Error blacklisting token", e);
         }
     }
 
     public boolean isTokenBlacklisted(String token) {
-        try {
-            String blacklistKey = BLACKLIST_PREFIX + token;
-            boolean isBlacklisted = Boolean.TRUE.equals(redisTemplate.hasKey(blacklistKey));
-
-            logger.info("🔍 Token Blacklist Check:");
-            logger.info("🔑 Blacklist Key: {}", blacklistKey);
-            logger.info("🚫 Is Blacklisted: {}", isBlacklisted);
+        byte[] digest = keyHash(token);
+        if (!bloomFilter.mightContain(digest)) {
+            return false;
+        }
 
-            return isBlacklisted;
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(blacklistKey(digest)));
         } catch (Exception e) {
-            logger.error("❌ Error checking token blacklist", e);
-            return false;
+            logger.error("❌ Error checking token blacklist, failing {}", failClosed ? "closed" : "open", e);
+            return failClosed;
         }
     }
 
     public void removeFromBlacklist(String token) {
+        // The filter keeps the bits; a stale hit just costs one Redis lookup until the slice expires
         try {
-            String blacklistKey = BLACKLIST_PREFIX + token;
-            Boolean deleted = redisTemplate.delete(blacklistKey);
-            logger.info("🗑️ Removed Token from Blacklist: {}, Deleted: {}", token, deleted);
+            Boolean deleted = redisTemplate.delete(blacklistKey(keyHash(token)));
+            logger.info("🗑️ Removed token from blacklist, deleted: {}", deleted);
         } catch (Exception e) {
             logger.error("❌ Error removing token from blacklist", e);
         }
     }
 
-    public void clearOldBlacklistedTokens() {
+    /**
+     * Revoke every token issued to a user up to now (e.g. "log out everywhere") with one write.
+     * The watermark only has to outlive the longest token lifetime.
+     */
+    public void revokeAllTokens(String subject) {
+        long watermark = System.currentTimeMillis() / 1000;
+        revokedBefore.merge(subject, watermark, Math::max);
+
         try {
-            // Implementation depends on your Redis configuration
-            // This is a basic example and might need adjustment based on your specific Redis setup
-            Set<String> blacklistedKeys = redisTemplate.keys(BLACKLIST_PREFIX + "*");
-            if (blacklistedKeys != null && !blacklistedKeys.isEmpty()) {
-                redisTemplate.delete(blacklistedKeys);
-                logger.info("🧹 Cleared {} old blacklisted tokens", blacklistedKeys.size());
+            redisTemplate.opsForValue().set(REVOKED_BEFORE_PREFIX + subject, String.valueOf(watermark),
+                    maxTokenLifetimeMs, TimeUnit.MILLISECONDS);
+            ClusterMessages.publish(redisTemplate, REVOCATION_CHANNEL, watermark + ":" + subject);
+        } catch (Exception e) {
+            logger.error("❌ Error revoking tokens for user", e);
+        }
+    }
+
+    /**
+     * True if the token was issued before the subject's last revoke-all. Answered from memory.
+     * iat has second precision, so a token issued in the same second as the revocation survives.
+     */
+    public boolean isRevokedByWatermark(String subject, Date issuedAt) {
+        Long watermark = revokedBefore.get(subject);
+        if (watermark == null && !bloomFilter.isReady()) {
+            // Watermarks are not loaded yet, ask Redis
+            try {
+                String stored = redisTemplate.opsForValue().get(REVOKED_BEFORE_PREFIX + subject);
+                watermark = stored == null ? null : Long.parseLong(stored);
+            } catch (Exception e) {
+                logger.error("❌ Error checking token revocation watermark", e);
+                return failClosed;
+            }
+        }
+        return watermark != null && issuedAt != null && issuedAt.getTime() / 1000 < watermark;
+    }
+
+    /**
+     * Load blacklist entries and revocation watermarks from Redis with SCAN. The Bloom filter only
+     * answers misses on its own once this has succeeded at least once.
+     * <p>
+     * Expiry itself is left to Redis TTLs. Within a time budget the scan also rewrites keys
+     * from older versions: full-token keys are renamed to hash keys (RENAME keeps the TTL), and keys
+     * without a TTL get one.
+     */
+    public void resyncBloomFilter() {
+        long now = System.currentTimeMillis();
+        long sweepDeadline = now + sweepBudgetMs;
+        int loaded = 0;
+
+        try (Cursor<String> keys = redisTemplate.scan(ScanOptions.scanOptions()
+                .match(BLACKLIST_PREFIX + "*").count(1000).build())) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                String id = key.substring(BLACKLIST_PREFIX.length());
+                boolean legacyKey = id.length() != KEY_HASH_BYTES * 2;
+                byte[] digest = legacyKey ? keyHash(id) : HexFormat.of().parseHex(id);
+
+                Long ttl = redisTemplate.getExpire(key, TimeUnit.MILLISECONDS);
+                if (ttl == null || ttl == -2) {
+                    continue; // Expired between SCAN and TTL
+                }
+                bloomFilter.put(digest, ttl < 0 ? now + maxTokenLifetimeMs : now + ttl);
+                loaded++;
+
+                if (System.currentTimeMillis() < sweepDeadline) {
+                    if (ttl < 0) {
+                        redisTemplate.expire(key, maxTokenLifetimeMs, TimeUnit.MILLISECONDS);
+                    }
+                    if (legacyKey) {
+                        redisTemplate.rename(key, blacklistKey(digest));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("❌ Error syncing token blacklist filter from Redis", e);
+            return;
+        }
+
+        try (Cursor<String> keys = redisTemplate.scan(ScanOptions.scanOptions()
+                .match(REVOKED_BEFORE_PREFIX + "*").count(1000).build())) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                String value = redisTemplate.opsForValue().get(key);
+                if (value != null) {
+                    revokedBefore.merge(key.substring(REVOKED_BEFORE_PREFIX.length()), Long.parseLong(value), Math::max);
+                }
             }
         } catch (Exception e) {
-            logger.error("❌ Error clearing old blacklisted tokens", e);
+            logger.error("❌ Error syncing token revocation watermarks from Redis", e);
+            return;
+        }
+
+        // Every token older than the lifetime has expired anyway
+        long oldestLiveToken = (now - maxTokenLifetimeMs) / 1000;
+        revokedBefore.values().removeIf(watermark -> watermark < oldestLiveToken);
+        bloomFilter.pruneExpired();
+
+        if (!bloomFilter.isReady()) {
+            bloomFilter.markReady();
+            logger.info("Token blacklist filter ready with {} tokens", loaded);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // Blacklist: expiresAt:hashHex, revocation: watermark:subject
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String payload = ClusterMessages.fromOtherNode(message);
+        String[] parts = payload == null ? new String[0] : payload.split(":", 2);
+        if (parts.length != 2) {
+            return;
+        }
+        try {
+            if (REVOCATION_CHANNEL.equals(channel)) {
+                revokedBefore.merge(parts[1], Long.parseLong(parts[0]), Math::max);
+            } else {
+                bloomFilter.put(HexFormat.of().parseHex(parts[1]), Long.parseLong(parts[0]));
+            }
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring malformed token blacklist message");
+        }
+    }
+
+    private static String blacklistKey(byte[] keyHash) {
+        return BLACKLIST_PREFIX + HexFormat.of().formatHex(keyHash);
+    }
+
+    // First 128 bits of SHA-256: a short Redis key that also feeds the Bloom filter
+    private static byte[] keyHash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Arrays.copyOf(digest, KEY_HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
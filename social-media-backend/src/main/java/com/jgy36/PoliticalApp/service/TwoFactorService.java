@@ -0,0 +1,245 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.jgy36.PoliticalApp.entity.UserSecuritySettings;
+import com.jgy36.PoliticalApp.repository.UserSecuritySettingsRepository;
+import com.jgy36.PoliticalApp.service.RateLimiter.Decision;
+import com.jgy36.PoliticalApp.service.RateLimiter.Policy;
+import org.jboss.aerogear.security.otp.api.Base32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * TOTP (RFC 6238: SHA-1, 6 digits, 30 second steps) for login and enrollment.
+ * <ul>
+ *     <li>A code is accepted once: the matched time step is recorded per user in Redis for as long as
+ *     the step can still be accepted, so a captured code cannot be replayed within its window.</li>
+ *     <li>Decoded secrets are cached briefly in memory, so a login does not reload the security settings.</li>
+ *     <li>Attempts are throttled per user with a small token bucket.</li>
+ *     <li>During enrollment the secret and its QR image are kept per user, so reloading the setup
+ *     screen does not generate a new secret or re-render the image.</li>
+ * </ul>
+ */
+@Service
+public class TwoFactorService {
+    private static final Logger logger = LoggerFactory.getLogger(TwoFactorService.class);
+    private static final String USED_STEP_PREFIX = "2fa:used:";
+    private static final String ISSUER = "PoliticalApp";
+    private static final long STEP_SECONDS = 30;
+    private static final int DIGITS_MODULUS = 1_000_000;
+    private static final int QR_SIZE = 300;
+
+    public enum Status {VALID, INVALID, REPLAYED, THROTTLED}
+
+    public record Verification(Status status, long retryAfterSeconds) {
+        static final Verification VALID = new Verification(Status.VALID, 0);
+        static final Verification INVALID = new Verification(Status.INVALID, 0);
+        static final Verification REPLAYED = new Verification(Status.REPLAYED, 0);
+
+        public boolean isValid() {
+            return status == Status.VALID;
+        }
+    }
+
+    /**
+     * A secret being enrolled and the QR code (PNG data URI) for authenticator apps
+     */
+    public record Enrollment(String secret, String qrCodeDataUri) {
+    }
+
+    private final UserSecuritySettingsRepository securityRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RateLimiter rateLimiter;
+    private final Policy attemptPolicy;
+    private final int windowSteps;
+    private final Duration usedStepTtl;
+
+    private final LoadingCache<Long, SecretKeySpec> secrets;
+    private final Cache<Long, Enrollment> enrollments;
+
+    public TwoFactorService(UserSecuritySettingsRepository securityRepository,
+                            StringRedisTemplate redisTemplate,
+                            RateLimiter rateLimiter,
+                            @Value("${app.security.two-factor.window-steps:1}") int windowSteps,
+                            @Value("${app.security.two-factor.max-attempts:5}") int maxAttempts,
+                            @Value("${app.security.two-factor.attempts-refill-per-minute:1}") int attemptsRefillPerMinute,
+                            @Value("${app.security.two-factor.secret-cache-seconds:60}") long secretCacheSeconds,
+                            @Value("${app.security.two-factor.enrollment-minutes:10}") long enrollmentMinutes) {
+        this.securityRepository = securityRepository;
+        this.redisTemplate = redisTemplate;
+        this.rateLimiter = rateLimiter;
+        this.attemptPolicy = new Policy("two-factor", maxAttempts, attemptsRefillPerMinute);
+        this.windowSteps = windowSteps;
+        // A step is accepted from its start until windowSteps later steps have passed
+        this.usedStepTtl = Duration.ofSeconds(STEP_SECONDS * (2L * windowSteps + 1));
+
+        // Short TTL: another node may disable or re-enroll 2FA without telling this one
+        this.secrets = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(secretCacheSeconds))
+                .build(this::loadSecret);
+        this.enrollments = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(enrollmentMinutes))
+                .build();
+    }
+
+    /**
+     * Verify a login code against the user's enabled secret
+     */
+    public Verification verify(Long userId, String code) {
+        Decision decision = rateLimiter.tryAcquire(attemptPolicy, "user:" + userId);
+        if (!decision.allowed()) {
+            return new Verification(Status.THROTTLED, decision.retryAfterSeconds());
+        }
+
+        SecretKeySpec key = secrets.get(userId);
+        if (key == null) {
+            return Verification.INVALID;
+        }
+        return check(userId, key, code);
+    }
+
+    /**
+     * Verify the first code for a secret that is being enrolled
+     */
+    public Verification verifyEnrollment(Long userId, String secret, String code) {
+        Decision decision = rateLimiter.tryAcquire(attemptPolicy, "user:" + userId);
+        if (!decision.allowed()) {
+            return new Verification(Status.THROTTLED, decision.retryAfterSeconds());
+        }
+
+        SecretKeySpec key = decode(secret);
+        if (key == null) {
+            return Verification.INVALID;
+        }
+        return check(userId, key, code);
+    }
+
+    /**
+     * The pending enrollment for a user, started if there is none
+     */
+    public Enrollment startEnrollment(Long userId, String email) {
+        return enrollments.get(userId, id -> {
+            String secret = Base32.random();
+            return new Enrollment(secret, qrCodeDataUri(email, secret));
+        });
+    }
+
+    /**
+     * Forget cached state after 2FA was enabled, disabled or re-enrolled
+     */
+    public void evict(Long userId) {
+        secrets.invalidate(userId);
+        enrollments.invalidate(userId);
+    }
+
+    private Verification check(Long userId, SecretKeySpec key, String code) {
+        int expected = parseCode(code);
+        if (expected < 0) {
+            return Verification.INVALID;
+        }
+
+        long currentStep = System.currentTimeMillis() / 1000 / STEP_SECONDS;
+        for (long step = currentStep - windowSteps; step <= currentStep + windowSteps; step++) {
+            if (generate(key, step) == expected) {
+                // ✅ First use of this step wins; any later presentation of the same code is a replay
+                Boolean firstUse = redisTemplate.opsForValue()
+                        .setIfAbsent(USED_STEP_PREFIX + userId + ":" + step, "1", usedStepTtl);
+                return Boolean.TRUE.equals(firstUse) ? Verification.VALID : Verification.REPLAYED;
+            }
+        }
+        return Verification.INVALID;
+    }
+
+    private SecretKeySpec loadSecret(Long userId) {
+        return securityRepository.findByUserId(userId)
+                .filter(UserSecuritySettings::isTwoFaEnabled)
+                .map(UserSecuritySettings::getTwoFaSecret)
+                .map(TwoFactorService::decode)
+                .orElse(null);
+    }
+
+    private static SecretKeySpec decode(String secret) {
+        if (secret == null || secret.isBlank()) {
+            return null;
+        }
+        try {
+            return new SecretKeySpec(Base32.decode(secret), "HmacSHA1");
+        } catch (Exception e) {
+            logger.warn("Unreadable TOTP secret: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Six digits, or -1 so malformed input is rejected without hashing
+    private static int parseCode(String code) {
+        if (code == null) {
+            return -1;
+        }
+        String trimmed = code.trim();
+        if (trimmed.length() != 6) {
+            return -1;
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (!Character.isDigit(trimmed.charAt(i))) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(trimmed);
+    }
+
+    private static int generate(SecretKeySpec key, long step) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA1");
+            mac.init(key);
+            byte[] hash = mac.doFinal(ByteBuffer.allocate(8).putLong(step).array());
+            int offset = hash[hash.length - 1] & 0x0f;
+            int binary = ((hash[offset] & 0x7f) << 24)
+                    | ((hash[offset + 1] & 0xff) << 16)
+                    | ((hash[offset + 2] & 0xff) << 8)
+                    | (hash[offset + 3] & 0xff);
+            return binary % DIGITS_MODULUS;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA1 not available", e);
+        }
+    }
+
+    private static String qrCodeDataUri(String email, String secret) {
+        String otpAuth = String.format(
+                "otpauth://totp/%s:%s?secret=%s&issuer=%s&algorithm=SHA1&digits=6&period=%d",
+                ISSUER, URLEncoder.encode(email, StandardCharsets.UTF_8), secret, ISSUER, STEP_SECONDS);
+        try {
+            BitMatrix matrix = new QRCodeWriter().encode(otpAuth, BarcodeFormat.QR_CODE, QR_SIZE, QR_SIZE,
+                    Map.of(EncodeHintType.MARGIN, 1));
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            MatrixToImageWriter.writeToStream(matrix, "PNG", png);
+            return "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+        } catch (WriterException | IOException e) {
+            throw new IllegalStateException("Failed to render 2FA QR code", e);
+        }
+    }
+}
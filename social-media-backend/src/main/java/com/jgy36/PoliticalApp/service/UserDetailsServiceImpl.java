@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -23,20 +24,24 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService, OAuth2UserService<OAuth2UserRequest, OAuth2User> {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService,
+        OAuth2UserService<OAuth2UserRequest, OAuth2User> {
     private static final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
 
     private final UserRepository userRepository;
     private final OAuth2Util oAuth2Util;
+    private final UserSettingsInitializer settingsInitializer;
 
     // We'll create our own PasswordEncoder here instead of injecting from SecurityConfig
     private final PasswordEncoder passwordEncoder;
 
     public UserDetailsServiceImpl(
             UserRepository userRepository,
-            OAuth2Util oAuth2Util) {
+            OAuth2Util oAuth2Util,
+            UserSettingsInitializer settingsInitializer) {
         this.userRepository = userRepository;
         this.oAuth2Util = oAuth2Util;
+        this.settingsInitializer = settingsInitializer;
 
         // Create a new instance of BCryptPasswordEncoder directly
         this.passwordEncoder = new BCryptPasswordEncoder();
@@ -54,6 +59,23 @@ public class UserDetailsServiceImpl implements UserDetailsService, OAuth2UserSer
                 .build();
     }
 
+    /**
+     * Store a re-hashed password after login when the stored hash is weaker than the current settings
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newEncodedPassword) {
+        userRepository.findByEmail(userDetails.getUsername()).ifPresent(user -> {
+            user.setPassword(newEncodedPassword);
+            userRepository.save(user);
+            logger.debug("Upgraded password hash for user {}", user.getId());
+        });
+
+        return org.springframework.security.core.userdetails.User
+                .withUserDetails(userDetails)
+                .password(newEncodedPassword)
+                .build();
+    }
+
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
         // Default OAuth2UserService to load the user
@@ -108,7 +130,9 @@ public class UserDetailsServiceImpl implements UserDetailsService, OAuth2UserSer
         // Set email as verified for OAuth users
         newUser.setVerified(true);
 
-        return userRepository.save(newUser);
+        User savedUser = userRepository.save(newUser);
+        settingsInitializer.initializeSettings(savedUser);
+        return savedUser;
     }
 
     private String generateUniqueUsername(String name) {
@@ -29,7 +29,9 @@ public class UserService {
     private final FollowRequestService followRequestService;
     private final PendingUserRepository pendingUserRepository;
     private final EmailService emailService;
-
+    private final FollowGraph followGraph;
+    private final UserStatsService userStatsService;
+    private final FollowEdgeService followEdgeService;
 
     public UserService(
             UserRepository userRepository,
@@ -39,7 +41,10 @@ public class UserService {
             PrivacySettingsService privacySettingsService,
             FollowRequestService followRequestService,
             PendingUserRepository pendingUserRepository,
-            EmailService emailService) {
+            EmailService emailService,
+            FollowGraph followGraph,
+            UserStatsService userStatsService,
+            FollowEdgeService followEdgeService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.settingsInitializer = settingsInitializer;
@@ -48,6 +53,9 @@ public class UserService {
         this.followRequestService = followRequestService;
         this.pendingUserRepository = pendingUserRepository;
         this.emailService = emailService;
+        this.followGraph = followGraph;
+        this.userStatsService = userStatsService;
+        this.followEdgeService = followEdgeService;
     }
 
     /**
@@ -55,8 +63,7 @@ public class UserService {
      */
     public User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
+        return userRepository.findByPrincipal(authentication)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
@@ -226,7 +233,7 @@ public class UserService {
                     .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
             // Check if currently following
-            if (!currentUser.getFollowing().contains(targetUser)) {
+            if (!followGraph.isFollowing(currentUser.getId(), targetUser.getId())) {
                 // Not following, but check for pending requests
                 boolean hasPendingRequest = followRequestService.hasPendingRequest(currentUser, targetUser);
 
@@ -246,8 +253,7 @@ public class UserService {
             }
 
             // Remove from following
-            currentUser.getFollowing().remove(targetUser);
-            userRepository.save(currentUser);
+            followEdgeService.unfollow(currentUser.getId(), targetUser.getId());
 
             return Map.of(
                     "success", true,
@@ -273,7 +279,7 @@ public class UserService {
             User targetUser = userRepository.findById(targetUserId)
                     .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-            boolean isFollowing = currentUser.getFollowing().contains(targetUser);
+            boolean isFollowing = followGraph.isFollowing(currentUser.getId(), targetUser.getId());
             boolean isRequested = false;
 
             // If not following, check if there's a pending request
@@ -282,8 +288,9 @@ public class UserService {
             }
 
             // Get counts
-            int followersCount = userRepository.countFollowers(targetUserId);
-            int followingCount = userRepository.countFollowing(targetUserId);
+            UserStatsService.UserStats stats = userStatsService.get(targetUserId);
+            int followersCount = stats.followersCount();
+            int followingCount = stats.followingCount();
 
             return Map.of(
                     "isFollowing", isFollowing,
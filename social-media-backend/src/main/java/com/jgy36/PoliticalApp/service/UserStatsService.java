@@ -0,0 +1,156 @@
+package com.jgy36.PoliticalApp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follower, following and post counts per user, kept in the user_stats table.
+ * Every follow/unfollow and post create/delete adjusts the counters inside the same transaction as the
+ * write, so a profile reads all three in one primary-key lookup. {@link #reconcile} recomputes them from
+ * the source tables to repair any drift (e.g. rows removed by account deletion).
+ */
+@Service
+public class UserStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsService.class);
+    private static final int RECONCILE_BATCH_SIZE = 5000;
+
+    // Counters never go below zero, even if a decrement arrives for a row that was never counted
+    private static final String ADJUST_SQL =
+            "INSERT INTO user_stats (user_id, followers_count, following_count, posts_count, updated_at) " +
+                    "VALUES (?, GREATEST(?, 0), GREATEST(?, 0), GREATEST(?, 0), NOW()) " +
+                    "ON CONFLICT (user_id) DO UPDATE SET " +
+                    "followers_count = GREATEST(user_stats.followers_count + ?, 0), " +
+                    "following_count = GREATEST(user_stats.following_count + ?, 0), " +
+                    "posts_count = GREATEST(user_stats.posts_count + ?, 0), " +
+                    "updated_at = NOW()";
+
+    private static final String RECONCILE_SQL =
+            "INSERT INTO user_stats (user_id, followers_count, following_count, posts_count, updated_at) " +
+                    "SELECT u.id, " +
+                    "(SELECT COUNT(*) FROM follows f WHERE f.following_id = u.id), " +
+                    "(SELECT COUNT(*) FROM follows f WHERE f.follower_id = u.id), " +
+                    "(SELECT COUNT(*) FROM posts p WHERE p.user_id = u.id), NOW() " +
+                    "FROM users u WHERE u.id >= ? AND u.id < ? " +
+                    "ON CONFLICT (user_id) DO UPDATE SET " +
+                    "followers_count = EXCLUDED.followers_count, " +
+                    "following_count = EXCLUDED.following_count, " +
+                    "posts_count = EXCLUDED.posts_count, updated_at = NOW() " +
+                    "WHERE (user_stats.followers_count, user_stats.following_count, user_stats.posts_count) " +
+                    "IS DISTINCT FROM (EXCLUDED.followers_count, EXCLUDED.following_count, EXCLUDED.posts_count)";
+
+    // One statement per direction; run before the follow edges are deleted
+    private static final String FOLLOWED_BY_DELETED_SQL =
+            "UPDATE user_stats SET followers_count = GREATEST(followers_count - 1, 0), updated_at = NOW() " +
+                    "WHERE user_id IN (SELECT following_id FROM follows WHERE follower_id = ?)";
+
+    private static final String FOLLOWERS_OF_DELETED_SQL =
+            "UPDATE user_stats SET following_count = GREATEST(following_count - 1, 0), updated_at = NOW() " +
+                    "WHERE user_id IN (SELECT follower_id FROM follows WHERE following_id = ?)";
+
+    public record UserStats(int followersCount, int followingCount, int postsCount) {
+        public static final UserStats EMPTY = new UserStats(0, 0, 0);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public UserStatsService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Counts for one user (zeros if the user has never followed, been followed or posted)
+     */
+    public UserStats get(Long userId) {
+        List<UserStats> rows = jdbcTemplate.query(
+                "SELECT followers_count, following_count, posts_count FROM user_stats WHERE user_id = ?",
+                (rs, i) -> new UserStats(rs.getInt(1), rs.getInt(2), rs.getInt(3)), userId);
+        return rows.isEmpty() ? UserStats.EMPTY : rows.get(0);
+    }
+
+    /**
+     * Counts for many users in one query (e.g. a page of search hits)
+     */
+    public Map<Long, UserStats> getAll(Collection<Long> userIds) {
+        Map<Long, UserStats> stats = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return stats;
+        }
+        namedJdbcTemplate.query(
+                "SELECT user_id, followers_count, following_count, posts_count FROM user_stats WHERE user_id IN (:ids)",
+                new MapSqlParameterSource("ids", userIds),
+                rs -> {
+                    stats.put(rs.getLong(1), new UserStats(rs.getInt(2), rs.getInt(3), rs.getInt(4)));
+                });
+        userIds.forEach(id -> stats.putIfAbsent(id, UserStats.EMPTY));
+        return stats;
+    }
+
+    public void recordFollow(Long followerId, Long followingId) {
+        adjustFollowEdge(followerId, followingId, 1);
+    }
+
+    public void recordUnfollow(Long followerId, Long followingId) {
+        adjustFollowEdge(followerId, followingId, -1);
+    }
+
+    public void recordPostCreated(Long authorId) {
+        adjust(authorId, 0, 0, 1);
+    }
+
+    public void recordPostDeleted(Long authorId) {
+        adjust(authorId, 0, 0, -1);
+    }
+
+    /**
+     * Take a user being deleted out of the counts of every account on the other end of their follow
+     * edges. Must run in the deleting transaction, before the edges themselves are removed.
+     */
+    public void recordUserDeleted(Long userId) {
+        jdbcTemplate.update(FOLLOWED_BY_DELETED_SQL, userId);
+        jdbcTemplate.update(FOLLOWERS_OF_DELETED_SQL, userId);
+    }
+
+    /**
+     * Recompute every user's counters from follows and posts, in id ranges so each statement stays short
+     */
+    public void reconcile() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        int repaired = 0;
+        for (long from = 0; from <= maxId; from += RECONCILE_BATCH_SIZE) {
+            repaired += jdbcTemplate.update(RECONCILE_SQL, from, from + RECONCILE_BATCH_SIZE);
+        }
+        if (repaired > 0) {
+            logger.info("Reconciled user stats: {} rows corrected", repaired);
+        }
+    }
+
+    // Lower id first in every transaction, so two users following each other at once cannot deadlock
+    private void adjustFollowEdge(Long followerId, Long followingId, int delta) {
+        if (followerId < followingId) {
+            adjust(followerId, 0, delta, 0);
+            adjust(followingId, delta, 0, 0);
+        } else {
+            adjust(followingId, delta, 0, 0);
+            adjust(followerId, 0, delta, 0);
+        }
+    }
+
+    private void adjust(Long userId, int followersDelta, int followingDelta, int postsDelta) {
+        jdbcTemplate.update(ADJUST_SQL, userId, followersDelta, followingDelta, postsDelta,
+                followersDelta, followingDelta, postsDelta);
+    }
+}
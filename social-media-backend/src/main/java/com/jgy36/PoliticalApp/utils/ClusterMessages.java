@@ -0,0 +1,37 @@
+package com.jgy36.PoliticalApp.utils;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+public class ClusterMessages {
+
+    // Prefixed to every message this node publishes, so its own listeners can skip what it already applied
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    private ClusterMessages() {
+    }
+
+    /**
+     * Publish a payload to the other nodes on a Redis channel. Callers apply the change locally first;
+     * their listener will not see it again.
+     */
+    public static void publish(StringRedisTemplate redisTemplate, String channel, String payload) {
+        redisTemplate.convertAndSend(channel, NODE_ID + ":" + payload);
+    }
+
+    /**
+     * The payload of a message published by another node, or null if this node sent it or it carries
+     * no node id
+     */
+    public static String fromOtherNode(Message message) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator < 0 || body.substring(0, separator).equals(NODE_ID)) {
+            return null;
+        }
+        return body.substring(separator + 1);
+    }
+}
@@ -0,0 +1,39 @@
+package com.jgy36.PoliticalApp.utils;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.List;
+
+public class RedisScriptUtils {
+
+    // Delete KEYS[1] only while it still holds ARGV[1]
+    private static final DefaultRedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private RedisScriptUtils() {
+    }
+
+    /**
+     * Release a lock taken with SET NX under a token unique to the holder. A holder whose lock already
+     * expired and was taken by another node leaves that node's lock alone.
+     */
+    public static boolean releaseLock(StringRedisTemplate redisTemplate, String key, String token) {
+        return Long.valueOf(1).equals(redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(key), token));
+    }
+
+    /**
+     * A Lua script returning an array, typed by what its elements deserialize to: Long for Lua numbers,
+     * String for strings (with a StringRedisTemplate). Redis replies are not checked against the type.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> DefaultRedisScript<List<T>> listScript(String scriptText) {
+        DefaultRedisScript<List<T>> script = new DefaultRedisScript<>(scriptText);
+        script.setResultType((Class<List<T>>) (Class<?>) List.class);
+        return script;
+    }
+}
@@ -0,0 +1,28 @@
+package com.jgy36.PoliticalApp.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * Run an action once the current transaction commits (never, if it rolls back), or right away when
+     * there is no transaction. Used for side effects other readers must not see before the data they
+     * describe: in-memory indexes, cache updates and cross-node events.
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
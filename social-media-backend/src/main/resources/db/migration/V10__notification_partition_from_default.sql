@@ -0,0 +1,31 @@
+-- A month can only be attached once the DEFAULT partition holds none of its rows, so rows that
+-- landed there (e.g. clock skew) move into the new partition as it is created
+
+CREATE OR REPLACE FUNCTION create_notification_partition(month DATE) RETURNS VOID AS $$
+DECLARE
+    start_date DATE := date_trunc('month', month)::DATE;
+    end_date DATE := (date_trunc('month', month) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'notifications_p' || to_char(start_date, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE notifications INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+                   partition_name);
+
+    -- Without the month's partition these rows can only be in DEFAULT
+    EXECUTE format('WITH moved AS (DELETE FROM notifications WHERE created_at >= %L AND created_at < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM moved',
+                   start_date, end_date, partition_name);
+
+    -- The delete took the moved unread rows off the counters; the table is not attached yet, so add them back
+    EXECUTE format('INSERT INTO notification_unread_counts (user_id, unread_count) '
+                   'SELECT user_id, COUNT(*) FROM %I WHERE NOT read GROUP BY user_id '
+                   'ON CONFLICT (user_id) DO UPDATE SET unread_count = notification_unread_counts.unread_count + EXCLUDED.unread_count',
+                   partition_name);
+
+    EXECUTE format('ALTER TABLE notifications ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, start_date, end_date);
+END;
+$$ LANGUAGE plpgsql;
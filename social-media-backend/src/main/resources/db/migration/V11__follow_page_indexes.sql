@@ -0,0 +1,4 @@
+-- Follower and following list pages: one user's edges newest first, continuing below a cursor id.
+-- Each page is a range scan that stops after the page size instead of sorting all of a user's edges.
+CREATE INDEX IF NOT EXISTS idx_follows_following_id_desc ON follows (following_id, id DESC);
+CREATE INDEX IF NOT EXISTS idx_follows_follower_id_desc ON follows (follower_id, id DESC);
@@ -0,0 +1,110 @@
+-- Notifications: monthly range partitions on created_at, plus a maintained unread counter
+
+-- Move an existing (unpartitioned) table out of the way so its rows can be copied over
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_class WHERE relname = 'notifications' AND relkind = 'r') THEN
+        ALTER TABLE notifications RENAME TO notifications_legacy;
+        ALTER TABLE notifications_legacy ADD COLUMN IF NOT EXISTS actor_count INTEGER DEFAULT 1;
+        ALTER TABLE notifications_legacy ADD COLUMN IF NOT EXISTS recent_actors VARCHAR(255);
+    END IF;
+END $$;
+
+CREATE TABLE IF NOT EXISTS notifications (
+    id BIGSERIAL,
+    user_id BIGINT NOT NULL REFERENCES users(id),
+    message VARCHAR(255) NOT NULL,
+    read BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    notification_type VARCHAR(255),
+    reference_id BIGINT,
+    secondary_reference_id BIGINT,
+    community_id VARCHAR(255),
+    actor_count INTEGER NOT NULL DEFAULT 1,
+    recent_actors VARCHAR(255),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Catches rows outside every monthly range (e.g. clock skew) so inserts never fail
+CREATE TABLE IF NOT EXISTS notifications_default PARTITION OF notifications DEFAULT;
+
+-- Feed reads: newest first per user, keyset on (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_notifications_user_feed ON notifications (user_id, created_at DESC, id DESC);
+-- Coalescing lookups
+CREATE INDEX IF NOT EXISTS idx_notifications_coalesce ON notifications (user_id, notification_type, reference_id, created_at);
+
+-- Creates the partition holding the given month; called here and by the maintenance job
+CREATE OR REPLACE FUNCTION create_notification_partition(month DATE) RETURNS VOID AS $$
+DECLARE
+    start_date DATE := date_trunc('month', month)::DATE;
+    end_date DATE := (date_trunc('month', month) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'notifications_p' || to_char(start_date, 'YYYY_MM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF notifications FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, start_date, end_date);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions for every month with legacy data, through two months from now
+DO $$
+DECLARE
+    first_month DATE := date_trunc('month', NOW())::DATE;
+    m DATE;
+BEGIN
+    IF to_regclass('notifications_legacy') IS NOT NULL THEN
+        SELECT LEAST(first_month, COALESCE(date_trunc('month', MIN(created_at))::DATE, first_month))
+        INTO first_month FROM notifications_legacy;
+    END IF;
+
+    m := first_month;
+    WHILE m <= (date_trunc('month', NOW()) + INTERVAL '2 months')::DATE LOOP
+        PERFORM create_notification_partition(m);
+        m := (m + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+-- Unread notifications per user, kept current by a trigger instead of COUNT(*) on every read
+CREATE TABLE IF NOT EXISTS notification_unread_counts (
+    user_id BIGINT PRIMARY KEY,
+    unread_count INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE OR REPLACE FUNCTION maintain_notification_unread_count() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NOT NEW.read
+            AND (TG_OP = 'INSERT' OR OLD.read OR OLD.user_id <> NEW.user_id) THEN
+        INSERT INTO notification_unread_counts (user_id, unread_count) VALUES (NEW.user_id, 1)
+        ON CONFLICT (user_id) DO UPDATE SET unread_count = notification_unread_counts.unread_count + 1;
+    END IF;
+
+    IF TG_OP IN ('DELETE', 'UPDATE') AND NOT OLD.read
+            AND (TG_OP = 'DELETE' OR NEW.read OR OLD.user_id <> NEW.user_id) THEN
+        UPDATE notification_unread_counts SET unread_count = GREATEST(unread_count - 1, 0)
+        WHERE user_id = OLD.user_id;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_notification_unread_count ON notifications;
+CREATE TRIGGER trg_notification_unread_count
+    AFTER INSERT OR UPDATE OF read, user_id OR DELETE ON notifications
+    FOR EACH ROW EXECUTE FUNCTION maintain_notification_unread_count();
+
+-- Copy legacy rows (the trigger fills the counters) and keep ids increasing
+DO $$
+BEGIN
+    IF to_regclass('notifications_legacy') IS NOT NULL THEN
+        INSERT INTO notifications (id, user_id, message, read, created_at, notification_type, reference_id,
+                                   secondary_reference_id, community_id, actor_count, recent_actors)
+        SELECT id, user_id, message, COALESCE(read, FALSE), created_at, notification_type, reference_id,
+               secondary_reference_id, community_id, COALESCE(actor_count, 1), recent_actors
+        FROM notifications_legacy;
+
+        PERFORM setval(pg_get_serial_sequence('notifications', 'id'),
+                       GREATEST((SELECT COALESCE(MAX(id), 0) FROM notifications), 1));
+
+        DROP TABLE notifications_legacy;
+    END IF;
+END $$;
@@ -0,0 +1,23 @@
+-- Follower, following and post counts per user, maintained on every follow/unfollow and post create/delete
+-- (see UserStatsService) instead of three COUNT(*) queries per profile view
+CREATE TABLE IF NOT EXISTS user_stats (
+    user_id BIGINT PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    followers_count BIGINT NOT NULL DEFAULT 0,
+    following_count BIGINT NOT NULL DEFAULT 0,
+    posts_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Backfill from existing data (the tables only exist yet if the schema was created before this migration)
+DO $$
+BEGIN
+    IF to_regclass('follows') IS NOT NULL AND to_regclass('posts') IS NOT NULL THEN
+        INSERT INTO user_stats (user_id, followers_count, following_count, posts_count)
+        SELECT u.id,
+               (SELECT COUNT(*) FROM follows f WHERE f.following_id = u.id),
+               (SELECT COUNT(*) FROM follows f WHERE f.follower_id = u.id),
+               (SELECT COUNT(*) FROM posts p WHERE p.user_id = u.id)
+        FROM users u
+        ON CONFLICT (user_id) DO NOTHING;
+    END IF;
+END $$;
@@ -0,0 +1,13 @@
+-- Precomputed "who to follow" suggestions, top N per user in rank order (see FollowSuggestionService)
+CREATE TABLE IF NOT EXISTS follow_suggestions (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    rank SMALLINT NOT NULL,
+    suggested_user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    mutual_follows INTEGER NOT NULL DEFAULT 0,
+    shared_communities INTEGER NOT NULL DEFAULT 0,
+    computed_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (user_id, rank)
+);
+
+-- Lets deleting a suggested account cascade without scanning the table
+CREATE INDEX IF NOT EXISTS idx_follow_suggestions_suggested ON follow_suggestions (suggested_user_id);
@@ -0,0 +1,45 @@
+-- Follows: a single edge table, mapped only by the Follow entity (User no longer has a following join
+-- mapping onto it), unique on (follower_id, following_id) and with a plain index for the reverse direction
+
+CREATE TABLE IF NOT EXISTS follows (
+    id BIGSERIAL PRIMARY KEY,
+    follower_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    following_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- A table first created for the old join mapping has a composite key and no surrogate id
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_name = 'follows' AND column_name = 'id') THEN
+        ALTER TABLE follows DROP CONSTRAINT IF EXISTS follows_pkey;
+        ALTER TABLE follows ADD COLUMN id BIGSERIAL PRIMARY KEY;
+    END IF;
+END $$;
+
+ALTER TABLE follows ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT NOW();
+
+-- Both mappings wrote here, so an edge may be stored twice; keep the oldest row
+DELETE FROM follows a
+USING follows b
+WHERE a.follower_id = b.follower_id
+  AND a.following_id = b.following_id
+  AND a.id > b.id;
+
+-- (follower_id, following_id): "does A follow B", A's following list, and the ON CONFLICT target for inserts
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_follows_follower_following') THEN
+        ALTER TABLE follows ADD CONSTRAINT uk_follows_follower_following UNIQUE (follower_id, following_id);
+    END IF;
+END $$;
+
+-- (following_id, follower_id): B's followers and follower counts
+CREATE INDEX IF NOT EXISTS idx_follows_following_follower ON follows (following_id, follower_id);
+
+-- Counters may include the duplicates removed above
+UPDATE user_stats s
+SET followers_count = (SELECT COUNT(*) FROM follows f WHERE f.following_id = s.user_id),
+    following_count = (SELECT COUNT(*) FROM follows f WHERE f.follower_id = s.user_id),
+    updated_at = NOW();
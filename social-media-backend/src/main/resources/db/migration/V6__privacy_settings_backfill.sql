@@ -0,0 +1,14 @@
+-- Privacy settings rows are created at registration (UserSettingsInitializer) rather than on first read,
+-- so give every existing user without one the entity defaults
+DO $$
+BEGIN
+    IF to_regclass('user_privacy_settings') IS NOT NULL THEN
+        INSERT INTO user_privacy_settings (user_id, profile_public, allow_followers, allow_search_indexing,
+                                           show_posts_to_matches, max_posts_for_matches, match_posts_time_limit,
+                                           show_followers_to_matches, show_following_to_matches,
+                                           created_at, updated_at)
+        SELECT u.id, TRUE, TRUE, TRUE, TRUE, 10, 30, FALSE, FALSE, NOW(), NOW()
+        FROM users u
+        WHERE NOT EXISTS (SELECT 1 FROM user_privacy_settings ups WHERE ups.user_id = u.id);
+    END IF;
+END $$;
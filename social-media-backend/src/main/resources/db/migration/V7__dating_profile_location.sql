@@ -0,0 +1,14 @@
+-- Coordinates for dating profiles (geocoded from the location text when the client does not send them)
+-- and the profile's own gender, which the other side's gender preference is checked against
+DO $$
+BEGIN
+    IF to_regclass('dating_profile') IS NOT NULL THEN
+        ALTER TABLE dating_profile ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION;
+        ALTER TABLE dating_profile ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
+        ALTER TABLE dating_profile ADD COLUMN IF NOT EXISTS gender VARCHAR(32);
+
+        -- Bounding-box fallback used before the in-memory candidate index has loaded
+        CREATE INDEX IF NOT EXISTS idx_dating_profile_active_location
+            ON dating_profile (latitude, longitude) WHERE is_active = true;
+    END IF;
+END $$;
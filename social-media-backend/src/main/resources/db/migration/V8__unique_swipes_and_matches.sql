@@ -0,0 +1,36 @@
+-- Swipes are unique per (swiper, target), and matches per pair with the lower user id stored as user1,
+-- so concurrent or retried swipes are recorded with ON CONFLICT instead of check-then-insert
+DO $$
+BEGIN
+    IF to_regclass('swipe') IS NOT NULL THEN
+        -- Keep the first swipe where one was recorded twice
+        DELETE FROM swipe a
+        USING swipe b
+        WHERE a.swiper_id = b.swiper_id
+          AND a.target_id = b.target_id
+          AND a.id > b.id;
+
+        IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_swipe_swiper_target') THEN
+            ALTER TABLE swipe ADD CONSTRAINT uk_swipe_swiper_target UNIQUE (swiper_id, target_id);
+        END IF;
+    END IF;
+
+    IF to_regclass('match') IS NOT NULL THEN
+        UPDATE match SET user1_id = user2_id, user2_id = user1_id WHERE user1_id > user2_id;
+
+        -- Keep one match per pair: an active one over an inactive one, then the oldest
+        DELETE FROM match a
+        USING match b
+        WHERE a.user1_id = b.user1_id
+          AND a.user2_id = b.user2_id
+          AND ((COALESCE(b.is_active, false) AND NOT COALESCE(a.is_active, false))
+               OR (COALESCE(b.is_active, false) = COALESCE(a.is_active, false) AND a.id > b.id));
+
+        IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_match_user1_user2') THEN
+            ALTER TABLE match ADD CONSTRAINT uk_match_user1_user2 UNIQUE (user1_id, user2_id);
+        END IF;
+        IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'ck_match_user1_lower') THEN
+            ALTER TABLE match ADD CONSTRAINT ck_match_user1_lower CHECK (user1_id < user2_id);
+        END IF;
+    END IF;
+END $$;
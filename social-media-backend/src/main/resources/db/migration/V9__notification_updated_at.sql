@@ -0,0 +1,11 @@
+-- Coalescing updates a notification in place, so it keeps its id; updated_at lets a resumed
+-- notification stream find rows merged after the client's last event as well as new ones
+ALTER TABLE notifications ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+
+UPDATE notifications SET updated_at = created_at WHERE updated_at IS NULL;
+
+ALTER TABLE notifications ALTER COLUMN updated_at SET DEFAULT NOW();
+ALTER TABLE notifications ALTER COLUMN updated_at SET NOT NULL;
+
+-- Stream resume: a user's rows changed since a point in time
+CREATE INDEX IF NOT EXISTS idx_notifications_user_updated ON notifications (user_id, updated_at);
@@ -0,0 +1,88 @@
+package com.jgy36.PoliticalApp.benchmark;
+
+import com.jgy36.PoliticalApp.config.JwtVerifier;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT verification on the request path, before and after {@link JwtVerifier}:
+ * <ul>
+ *     <li>{@code perCallParser}: the old JwtTokenUtil path, decoding the secret and building a parser for
+ *     every call</li>
+ *     <li>{@code verifierCacheMiss}: the shared parser, on a token not in the claims cache (first request)</li>
+ *     <li>{@code verifierCacheHit}: a repeat request with the same token</li>
+ * </ul>
+ * Run with {@code mvn test-compile exec:java -Dexec.mainClass=com.jgy36.PoliticalApp.benchmark.JwtVerifyBenchmark
+ * -Dexec.classpathScope=test}, or from the IDE.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerifyBenchmark {
+
+    private String secret;
+    private JwtVerifier verifier;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        secret = Encoders.BASE64.encode(keyBytes);
+
+        verifier = new JwtVerifier();
+        ReflectionTestUtils.setField(verifier, "secret", secret);
+        ReflectionTestUtils.setField(verifier, "currentKeyId", "default");
+        ReflectionTestUtils.setField(verifier, "previousSecrets", "");
+        ReflectionTestUtils.setField(verifier, "claimsCacheMaxSize", 10_000L);
+        verifier.init();
+
+        token = verifier.builder()
+                .subject("benchmark@example.com")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .claim("sid", "benchmark-session")
+                .compact();
+    }
+
+    @Benchmark
+    public Claims perCallParser() {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public Claims verifierCacheMiss() {
+        verifier.evict(token);
+        return verifier.verify(token);
+    }
+
+    @Benchmark
+    public Claims verifierCacheHit() {
+        return verifier.verify(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerifyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
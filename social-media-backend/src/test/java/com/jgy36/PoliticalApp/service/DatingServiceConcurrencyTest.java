@@ -0,0 +1,119 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.entity.Match;
+import com.jgy36.PoliticalApp.entity.Role;
+import com.jgy36.PoliticalApp.entity.SwipeDirection;
+import com.jgy36.PoliticalApp.entity.User;
+import com.jgy36.PoliticalApp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Swipes between the same two users from many threads at once: both likes and their retries race,
+ * and each pair must end up with one swipe per direction and exactly one match.
+ */
+@SpringBootTest
+class DatingServiceConcurrencyTest {
+    private static final int PAIRS = 25;
+    private static final int ATTEMPTS_PER_DIRECTION = 4;
+
+    @Autowired
+    private DatingService datingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (User user : users) {
+            jdbcTemplate.update("DELETE FROM match WHERE user1_id = ? OR user2_id = ?", user.getId(), user.getId());
+            jdbcTemplate.update("DELETE FROM swipe WHERE swiper_id = ? OR target_id = ?", user.getId(), user.getId());
+        }
+        userRepository.deleteAll(users);
+        users.clear();
+    }
+
+    @Test
+    void simultaneousMutualLikesCreateExactlyOneMatch() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2 * ATTEMPTS_PER_DIRECTION);
+        try {
+            for (int pair = 0; pair < PAIRS; pair++) {
+                User a = createUser();
+                User b = createUser();
+
+                // Every swipe of the pair waits at the barrier, so they all hit the database together
+                CyclicBarrier barrier = new CyclicBarrier(2 * ATTEMPTS_PER_DIRECTION);
+                List<Future<Match>> results = new ArrayList<>();
+                for (int i = 0; i < ATTEMPTS_PER_DIRECTION; i++) {
+                    results.add(executor.submit(() -> swipeTogether(barrier, a, b)));
+                    results.add(executor.submit(() -> swipeTogether(barrier, b, a)));
+                }
+
+                Set<Long> returnedMatchIds = new HashSet<>();
+                for (Future<Match> result : results) {
+                    Match match = result.get(30, TimeUnit.SECONDS);
+                    if (match != null) {
+                        returnedMatchIds.add(match.getId());
+                    }
+                }
+
+                long user1Id = Math.min(a.getId(), b.getId());
+                long user2Id = Math.max(a.getId(), b.getId());
+                assertEquals(1, count("SELECT COUNT(*) FROM match WHERE user1_id = ? AND user2_id = ?", user1Id, user2Id));
+                assertEquals(0, count("SELECT COUNT(*) FROM match WHERE user1_id = ? AND user2_id = ?", user2Id, user1Id));
+                assertEquals(1, count("SELECT COUNT(*) FROM swipe WHERE swiper_id = ? AND target_id = ?", a.getId(), b.getId()));
+                assertEquals(1, count("SELECT COUNT(*) FROM swipe WHERE swiper_id = ? AND target_id = ?", b.getId(), a.getId()));
+
+                // At least the like that completed the pair reports the match, and every report is the same match
+                assertEquals(1, returnedMatchIds.size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void retriedSwipeReturnsTheExistingMatch() {
+        User a = createUser();
+        User b = createUser();
+
+        assertNull(datingService.swipeUser(a, b, SwipeDirection.LIKE));
+        Match match = datingService.swipeUser(b, a, SwipeDirection.LIKE);
+        assertNotNull(match);
+
+        // A repeated swipe, even in the other direction, changes nothing
+        assertEquals(match.getId(), datingService.swipeUser(b, a, SwipeDirection.PASS).getId());
+        assertEquals(match.getId(), datingService.swipeUser(a, b, SwipeDirection.LIKE).getId());
+        assertEquals(1, count("SELECT COUNT(*) FROM swipe WHERE swiper_id = ? AND target_id = ?", b.getId(), a.getId()));
+    }
+
+    private Match swipeTogether(CyclicBarrier barrier, User swiper, User target) throws Exception {
+        barrier.await(30, TimeUnit.SECONDS);
+        return datingService.swipeUser(swiper, target, SwipeDirection.LIKE);
+    }
+
+    private long count(String sql, Object... args) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args);
+        return count != null ? count : 0;
+    }
+
+    private User createUser() {
+        String name = "swipe-test-" + UUID.randomUUID().toString().substring(0, 12);
+        User user = userRepository.save(new User(name, name + "@example.com", "not-a-real-hash", Role.ROLE_USER));
+        users.add(user);
+        return user;
+    }
+}
@@ -0,0 +1,157 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.repository.FollowRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Loading the follow graph, and edges that change while a reload is scanning the follows table.
+ * Outside a transaction follow events apply immediately, so they can be fired from inside the scan.
+ */
+class FollowGraphTest {
+    private final FollowRepository followRepository = mock(FollowRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FollowGraph graph = new FollowGraph(followRepository, jdbcTemplate,
+            mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class));
+
+    @Test
+    void queriesFallBackToTheDatabaseUntilLoaded() {
+        when(followRepository.existsByFollowerIdAndFollowingId(1L, 2L)).thenReturn(true);
+
+        assertFalse(graph.isReady());
+        assertTrue(graph.isFollowing(1L, 2L));
+        verify(followRepository).existsByFollowerIdAndFollowingId(1L, 2L);
+    }
+
+    @Test
+    void reloadBuildsBothDirections() throws SQLException {
+        scan(edge(1, 2), edge(1, 3), edge(2, 1));
+
+        graph.reload();
+
+        assertTrue(graph.isReady());
+        assertTrue(graph.isFollowing(1L, 2L));
+        assertFalse(graph.isFollowing(3L, 1L));
+        assertTrue(graph.areMutual(1L, 2L));
+        assertEquals(2, graph.getFollowingCount(1L));
+        assertEquals(1, graph.getFollowerCount(1L));
+        assertEquals(List.of(1L), graph.getFollowerIds(3L));
+        assertArrayEquals(new long[]{2, 3}, graph.getFollowingArray(1L));
+        verifyNoInteractions(followRepository);
+    }
+
+    @Test
+    void followDuringReloadSurvivesTheSwap() throws SQLException {
+        // The scan started before 5 -> 6 was committed, so it never sees the row
+        scan(edge(1, 2), during(() -> graph.recordFollow(5L, 6L)), edge(2, 3));
+
+        graph.reload();
+
+        assertTrue(graph.isFollowing(5L, 6L));
+        assertEquals(1, graph.getFollowerCount(6L));
+        assertTrue(graph.isFollowing(1L, 2L));
+    }
+
+    @Test
+    void unfollowDuringReloadRemovesAnEdgeTheScanAlreadyRead() throws SQLException {
+        scan(edge(1, 2), during(() -> graph.recordUnfollow(1L, 2L)), edge(2, 3));
+
+        graph.reload();
+
+        assertFalse(graph.isFollowing(1L, 2L));
+        assertEquals(0, graph.getFollowerCount(2L));
+        assertTrue(graph.isFollowing(2L, 3L));
+    }
+
+    @Test
+    void eventsFromOtherNodesAreReplayedToo() throws SQLException {
+        scan(edge(1, 2), during(() -> graph.onMessage(message("other-node:follow:7:8"), null)));
+
+        graph.reload();
+
+        assertTrue(graph.isFollowing(7L, 8L));
+    }
+
+    @Test
+    void removedUserLosesEveryEdge() throws SQLException {
+        scan(edge(1, 2), edge(2, 1), edge(2, 3), edge(3, 1));
+        graph.reload();
+
+        graph.removeUser(2L);
+
+        assertFalse(graph.isFollowing(1L, 2L));
+        assertFalse(graph.isFollowing(2L, 3L));
+        assertEquals(0, graph.getFollowerCount(2L));
+        assertEquals(0, graph.getFollowingCount(1L));
+        assertTrue(graph.isFollowing(3L, 1L));
+    }
+
+    @Test
+    void failedReloadKeepsTheCurrentGraph() throws SQLException {
+        scan(edge(1, 2));
+        graph.reload();
+
+        doThrow(new IllegalStateException("connection lost"))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        assertThrows(IllegalStateException.class, graph::reload);
+
+        // Updates after the failure are applied normally, not buffered for a replay that never comes
+        graph.recordFollow(3L, 4L);
+        assertTrue(graph.isFollowing(1L, 2L));
+        assertTrue(graph.isFollowing(3L, 4L));
+    }
+
+    // Each step is either an edge row (long[]) or something that happens mid-scan (Runnable)
+    private void scan(Object... steps) throws SQLException {
+        List<Object> rows = new ArrayList<>();
+        for (Object step : steps) {
+            rows.add(step instanceof long[] edge ? row(edge[0], edge[1]) : step);
+        }
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object row : rows) {
+                if (row instanceof Runnable action) {
+                    action.run();
+                } else {
+                    handler.processRow((ResultSet) row);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private static long[] edge(long followerId, long followingId) {
+        return new long[]{followerId, followingId};
+    }
+
+    private static Runnable during(Runnable action) {
+        return action;
+    }
+
+    private static ResultSet row(long followerId, long followingId) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(followerId);
+        when(rs.getLong(2)).thenReturn(followingId);
+        return rs;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("cache:follow-graph".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
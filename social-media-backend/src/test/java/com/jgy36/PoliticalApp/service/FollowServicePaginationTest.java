@@ -0,0 +1,142 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.config.AuthenticatedUser;
+import com.jgy36.PoliticalApp.dto.CursorPageDTO;
+import com.jgy36.PoliticalApp.dto.FollowUserDTO;
+import com.jgy36.PoliticalApp.repository.FollowRepository;
+import com.jgy36.PoliticalApp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Cursor and numbered pages of follower lists, with the repositories mocked
+ */
+class FollowServicePaginationTest {
+    private static final Long USER_ID = 1L;
+
+    private final FollowRepository followRepository = mock(FollowRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final FollowGraph followGraph = mock(FollowGraph.class);
+    private final FollowService followService = new FollowService(followRepository, userRepository,
+            mock(NotificationService.class), mock(FollowRequestService.class), followGraph,
+            mock(UserStatsService.class), mock(FollowEdgeService.class));
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.existsById(USER_ID)).thenReturn(true);
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void fullPageCarriesACursorToTheNextOne() {
+        when(followRepository.findFollowerPage(eq(USER_ID), any())).thenReturn(rows(30, 20, 10));
+
+        CursorPageDTO<FollowUserDTO> first = followService.getFollowerPage(USER_ID, null, 2);
+
+        assertEquals(List.of(30L, 20L), followIds(first.getItems()));
+        assertNotNull(first.getNextCursor());
+        // One row more than the page is fetched to tell whether another page exists
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(followRepository).findFollowerPage(eq(USER_ID), pageable.capture());
+        assertEquals(3, pageable.getValue().getPageSize());
+
+        when(followRepository.findFollowerPageBefore(eq(USER_ID), eq(20L), any())).thenReturn(rows(10));
+        CursorPageDTO<FollowUserDTO> second = followService.getFollowerPage(USER_ID, first.getNextCursor(), 2);
+
+        assertEquals(List.of(10L), followIds(second.getItems()));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void followingListPagesTheSameWay() {
+        when(followRepository.findFollowingPage(eq(USER_ID), any())).thenReturn(rows(5, 4));
+
+        CursorPageDTO<FollowUserDTO> page = followService.getFollowingPage(USER_ID, null, 2);
+
+        assertEquals(List.of(5L, 4L), followIds(page.getItems()));
+        assertNull(page.getNextCursor());
+        verify(followRepository, never()).findFollowerPage(any(), any());
+    }
+
+    @Test
+    void limitIsClamped() {
+        when(followRepository.findFollowerPage(eq(USER_ID), any())).thenReturn(new ArrayList<>());
+
+        followService.getFollowerPage(USER_ID, null, 10_000);
+        followService.getFollowerPage(USER_ID, null, 0);
+
+        ArgumentCaptor<Pageable> pageables = ArgumentCaptor.forClass(Pageable.class);
+        verify(followRepository, times(2)).findFollowerPage(eq(USER_ID), pageables.capture());
+        assertEquals(101, pageables.getAllValues().get(0).getPageSize());
+        assertEquals(2, pageables.getAllValues().get(1).getPageSize());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> followService.getFollowerPage(USER_ID, "%%%", 10));
+        assertThrows(IllegalArgumentException.class, () -> followService.getFollowerPage(USER_ID, "bm90LWEtbnVtYmVy", 10));
+    }
+
+    @Test
+    void unknownUserIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> followService.getFollowerPage(99L, null, 10));
+        verifyNoInteractions(followRepository);
+    }
+
+    @Test
+    void rowsCarryTheViewersFollowState() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(9L, "viewer@example.com", "ROLE_USER"), null, List.of()));
+        when(followRepository.findFollowerPage(eq(USER_ID), any())).thenReturn(rows(30, 20));
+        when(followGraph.getFollowedAmong(eq(9L), anyCollection())).thenReturn(Set.of(30L + 1000));
+
+        List<FollowUserDTO> items = followService.getFollowerPage(USER_ID, null, 10).getItems();
+
+        assertTrue(items.get(0).getIsFollowing());
+        assertFalse(items.get(1).getIsFollowing());
+    }
+
+    @Test
+    void numberedPagesStartAtOne() {
+        when(followRepository.findFollowerPage(eq(USER_ID), any())).thenReturn(new ArrayList<>());
+
+        followService.getFollowers(USER_ID, 3);
+        followService.getFollowers(USER_ID, 0);
+
+        ArgumentCaptor<Pageable> pageables = ArgumentCaptor.forClass(Pageable.class);
+        verify(followRepository, times(2)).findFollowerPage(eq(USER_ID), pageables.capture());
+        assertEquals(PageRequest.of(2, 50), pageables.getAllValues().get(0));
+        assertEquals(PageRequest.of(0, 50), pageables.getAllValues().get(1));
+    }
+
+    // Rows newest first; each user id is its follow id + 1000
+    private static List<FollowUserDTO> rows(long... followIds) {
+        List<FollowUserDTO> rows = new ArrayList<>();
+        for (long followId : followIds) {
+            rows.add(new FollowUserDTO(followId, followId + 1000, "user" + followId, null, null));
+        }
+        return rows;
+    }
+
+    private static List<Long> followIds(List<FollowUserDTO> rows) {
+        return rows.stream().map(FollowUserDTO::getFollowId).toList();
+    }
+}
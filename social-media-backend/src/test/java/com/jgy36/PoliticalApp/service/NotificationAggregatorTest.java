@@ -0,0 +1,157 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.service.NotificationAggregator.Plan;
+import com.jgy36.PoliticalApp.service.NotificationDispatcher.NotificationIntent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Coalescing plans for likes: within a batch, against rows still inside the window, and the
+ * cases that must stay separate rows.
+ */
+class NotificationAggregatorTest {
+    private static final long WINDOW_MINUTES = 60;
+    private static final long RECIPIENT = 7L;
+    private static final long POST = 100L;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final NotificationAggregator aggregator =
+            new NotificationAggregator(namedJdbcTemplate, Set.of("like"), WINDOW_MINUTES, 3);
+
+    // Rows the open-row query returns, newest first
+    private final List<ResultSet> openRows = new ArrayList<>();
+
+    NotificationAggregatorTest() {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (ResultSet row : openRows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(namedJdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void likesInOneBatchBecomeOneRow() {
+        Plan plan = aggregator.plan(List.of(like("alice", null), like("bob", null), like("carol", null)));
+
+        assertEquals(1, plan.inserts().size());
+        assertTrue(plan.merges().isEmpty());
+        NotificationAggregator.NewRow row = plan.inserts().get(0);
+        assertEquals(3, row.actorCount());
+        assertEquals("carol,bob,alice", row.recentActors());
+        assertEquals("carol and 2 others liked your post", row.message());
+    }
+
+    @Test
+    void repeatedActorIsCountedOnce() {
+        Plan plan = aggregator.plan(List.of(like("alice", null), like("alice", null)));
+
+        NotificationAggregator.NewRow row = plan.inserts().get(0);
+        assertEquals(1, row.actorCount());
+        assertEquals("alice liked your post", row.message());
+    }
+
+    @Test
+    void likeFoldsIntoARowWrittenInsideTheWindow() throws SQLException {
+        openRows.add(openRow(55L, null, 4, "dave,erin"));
+
+        Plan plan = aggregator.plan(List.of(like("frank", null), like("dave", null)));
+
+        assertTrue(plan.inserts().isEmpty());
+        assertEquals(1, plan.merges().size());
+        NotificationAggregator.MergedRow merge = plan.merges().get(0);
+        assertEquals(55L, merge.id());
+        // dave is already in the sample, so only frank is new
+        assertEquals(1, merge.addedActors());
+        assertEquals(5, merge.totalActors());
+        assertEquals("dave,frank,erin", merge.recentActors());
+        assertEquals("dave and 4 others liked your post", merge.message());
+    }
+
+    @Test
+    void likeFromAnActorAlreadyInTheRowChangesNothing() throws SQLException {
+        openRows.add(openRow(55L, null, 2, "dave,erin"));
+
+        Plan plan = aggregator.plan(List.of(like("erin", null)));
+
+        assertTrue(plan.inserts().isEmpty());
+        assertTrue(plan.merges().isEmpty());
+    }
+
+    @Test
+    void openRowsAreLookedUpOnlyWithinTheWindow() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(WINDOW_MINUTES);
+        aggregator.plan(List.of(like("alice", null)));
+        LocalDateTime after = LocalDateTime.now().minusMinutes(WINDOW_MINUTES);
+
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(namedJdbcTemplate).query(anyString(), params.capture(), any(RowCallbackHandler.class));
+        LocalDateTime since = ((Timestamp) ((MapSqlParameterSource) params.getValue()).getValue("since"))
+                .toLocalDateTime();
+        assertFalse(since.isBefore(before));
+        assertFalse(since.isAfter(after));
+    }
+
+    @Test
+    void likesOnDifferentCommentsStaySeparate() throws SQLException {
+        // An open row for comment 1 must not absorb a like on comment 2
+        openRows.add(openRow(55L, 1L, 3, "dave"));
+
+        Plan plan = aggregator.plan(List.of(like("alice", 2L), like("bob", 1L)));
+
+        assertEquals(1, plan.inserts().size());
+        assertEquals(2L, plan.inserts().get(0).intent().secondaryReferenceId());
+        assertEquals(1, plan.merges().size());
+        assertEquals(55L, plan.merges().get(0).id());
+    }
+
+    @Test
+    void typesOutsideTheCoalescedSetAreWrittenAsIs() {
+        NotificationIntent follow = new NotificationIntent(RECIPIENT, "alice started following you", "follow",
+                1L, null, null, "alice");
+        NotificationIntent anonymous = new NotificationIntent(RECIPIENT, "Someone liked your post", "like",
+                POST, null, null);
+
+        Plan plan = aggregator.plan(List.of(follow, follow, anonymous));
+
+        assertEquals(3, plan.inserts().size());
+        assertTrue(plan.merges().isEmpty());
+        verifyNoInteractions(namedJdbcTemplate);
+    }
+
+    private static NotificationIntent like(String actor, Long commentId) {
+        return new NotificationIntent(RECIPIENT, actor + " liked your post", "like", POST, commentId, null, actor);
+    }
+
+    private static ResultSet openRow(long id, Long secondaryReferenceId, int actorCount, String recentActors)
+            throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getLong("user_id")).thenReturn(RECIPIENT);
+        when(rs.getString("notification_type")).thenReturn("like");
+        when(rs.getLong("reference_id")).thenReturn(POST);
+        when(rs.getLong("secondary_reference_id")).thenReturn(secondaryReferenceId == null ? 0L : secondaryReferenceId);
+        when(rs.wasNull()).thenReturn(secondaryReferenceId == null);
+        when(rs.getInt("actor_count")).thenReturn(actorCount);
+        when(rs.getString("recent_actors")).thenReturn(recentActors);
+        return rs;
+    }
+}
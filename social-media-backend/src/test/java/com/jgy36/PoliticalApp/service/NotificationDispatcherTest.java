@@ -0,0 +1,145 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.service.NotificationDispatcher.NotificationIntent;
+import com.jgy36.PoliticalApp.service.NotificationDispatcher.OverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Queueing behaviour of the dispatcher. The worker thread is only started where a test needs the
+ * queue drained, so everything else can look at the queue as the producers left it.
+ */
+class NotificationDispatcherTest {
+    private final NotificationPreferencesCache preferencesCache = mock(NotificationPreferencesCache.class);
+    private final NotificationAggregator aggregator = mock(NotificationAggregator.class);
+    private final NotificationStreamService streamService = mock(NotificationStreamService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        when(preferencesCache.getMasks(anyCollection())).thenReturn(Map.of());
+        when(aggregator.plan(anyList())).thenReturn(new NotificationAggregator.Plan(List.of(), List.of()));
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void dropNewestRejectsIntentsOnceTheQueueIsFull() {
+        NotificationDispatcher dispatcher = dispatcher(2, OverflowPolicy.DROP_NEWEST);
+
+        dispatcher.dispatchAll(List.of(intent(1), intent(2), intent(3)));
+
+        assertEquals(2, dispatcher.getQueueSize());
+        assertEquals(2, counter("notifications.dispatch.enqueued"));
+        assertEquals(1, counter("notifications.dispatch.dropped"));
+        verifyNoInteractions(aggregator);
+    }
+
+    @Test
+    void dropOldestEvictsTheHeadOfTheQueue() throws Exception {
+        NotificationDispatcher dispatcher = dispatcher(2, OverflowPolicy.DROP_OLDEST);
+
+        dispatcher.dispatchAll(List.of(intent(1), intent(2), intent(3)));
+
+        assertEquals(2, dispatcher.getQueueSize());
+        assertEquals(1, counter("notifications.dispatch.dropped"));
+
+        // Drain what is left: the first intent is the one that made room
+        dispatcher.start();
+        try {
+            ArgumentCaptor<List<NotificationIntent>> written = listCaptor();
+            verify(aggregator, timeout(2000)).plan(written.capture());
+            assertEquals(List.of(2L, 3L), recipients(written.getValue()));
+        } finally {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void callerRunsWritesOverflowOnTheProducerThread() {
+        NotificationDispatcher dispatcher = dispatcher(1, OverflowPolicy.CALLER_RUNS);
+
+        dispatcher.dispatchAll(List.of(intent(1), intent(2), intent(3)));
+
+        // No worker is running, so only a synchronous write can have reached the aggregator
+        ArgumentCaptor<List<NotificationIntent>> written = listCaptor();
+        verify(aggregator).plan(written.capture());
+        assertEquals(List.of(2L, 3L), recipients(written.getValue()));
+        assertEquals(1, dispatcher.getQueueSize());
+        assertEquals(0, counter("notifications.dispatch.dropped"));
+    }
+
+    @Test
+    void intentsAreQueuedOnlyAfterCommit() {
+        NotificationDispatcher dispatcher = dispatcher(10, OverflowPolicy.DROP_NEWEST);
+        TransactionSynchronizationManager.initSynchronization();
+
+        dispatcher.dispatch(intent(1));
+        assertEquals(0, dispatcher.getQueueSize());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, dispatcher.getQueueSize());
+    }
+
+    @Test
+    void rolledBackIntentsAreNeverQueued() {
+        NotificationDispatcher dispatcher = dispatcher(10, OverflowPolicy.DROP_NEWEST);
+        TransactionSynchronizationManager.initSynchronization();
+
+        dispatcher.dispatch(intent(1));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(0, dispatcher.getQueueSize());
+    }
+
+    @Test
+    void intentsAreQueuedRightAwayWithoutATransaction() {
+        NotificationDispatcher dispatcher = dispatcher(10, OverflowPolicy.DROP_NEWEST);
+
+        dispatcher.dispatch(intent(1));
+
+        assertEquals(1, dispatcher.getQueueSize());
+    }
+
+    private NotificationDispatcher dispatcher(int queueCapacity, OverflowPolicy policy) {
+        return new NotificationDispatcher(mock(JdbcTemplate.class), preferencesCache, aggregator, streamService,
+                meterRegistry, queueCapacity, 500, 50, policy);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.counter(name).count();
+    }
+
+    private static NotificationIntent intent(long recipientId) {
+        return new NotificationIntent(recipientId, "alice started following you", "follow", 99L, null, null);
+    }
+
+    private static List<Long> recipients(List<NotificationIntent> intents) {
+        return intents.stream().map(NotificationIntent::recipientId).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<NotificationIntent>> listCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
@@ -0,0 +1,94 @@
+package com.jgy36.PoliticalApp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The token-bucket script against the configured Redis. Two limiter instances stand in for two nodes,
+ * so the shared bucket rather than the local one has to turn requests away.
+ */
+@SpringBootTest
+class RateLimiterTest {
+    private static final String KEY = "client-1";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private final List<String> policyNames = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (String name : policyNames) {
+            redisTemplate.delete(redisKey(name));
+        }
+    }
+
+    @Test
+    void bucketIsSharedBetweenNodes() {
+        RateLimiter.Policy policy = policy(3, 1);
+        RateLimiter nodeA = newNode();
+        RateLimiter nodeB = newNode();
+
+        assertTrue(nodeA.tryAcquire(policy, KEY).allowed());
+        assertTrue(nodeA.tryAcquire(policy, KEY).allowed());
+        assertTrue(nodeB.tryAcquire(policy, KEY).allowed());
+
+        // nodeB has used one local token only, so this rejection comes from the script
+        RateLimiter.Decision rejected = nodeB.tryAcquire(policy, KEY);
+        assertFalse(rejected.allowed());
+        assertTrue(rejected.retryAfterSeconds() >= 1 && rejected.retryAfterSeconds() <= 60,
+                "retry after " + rejected.retryAfterSeconds() + "s");
+    }
+
+    @Test
+    void bucketRefillsOverTime() throws InterruptedException {
+        // One token per second
+        RateLimiter.Policy policy = policy(2, 60);
+
+        RateLimiter nodeA = newNode();
+        assertTrue(nodeA.tryAcquire(policy, KEY).allowed());
+        assertTrue(nodeA.tryAcquire(policy, KEY).allowed());
+        assertFalse(newNode().tryAcquire(policy, KEY).allowed());
+
+        // A fresh node each time, so no local block or local bucket decides
+        Thread.sleep(1100);
+        assertTrue(newNode().tryAcquire(policy, KEY).allowed());
+        assertFalse(newNode().tryAcquire(policy, KEY).allowed());
+    }
+
+    @Test
+    void bucketKeyExpiresOnceFull() {
+        // Refilling 3 tokens at 1 per minute takes 3 minutes
+        RateLimiter.Policy policy = policy(3, 1);
+        newNode().tryAcquire(policy, KEY);
+
+        Long ttlMs = redisTemplate.getExpire(redisKey(policy.name()), TimeUnit.MILLISECONDS);
+        assertNotNull(ttlMs);
+        assertTrue(ttlMs > 0 && ttlMs <= TimeUnit.MINUTES.toMillis(3), "ttl " + ttlMs + "ms");
+    }
+
+    private RateLimiter newNode() {
+        return new RateLimiter(redisTemplate, new SimpleMeterRegistry(), 1000);
+    }
+
+    private RateLimiter.Policy policy(int capacity, int refillPerMinute) {
+        String name = "test-" + UUID.randomUUID();
+        policyNames.add(name);
+        return new RateLimiter.Policy(name, capacity, refillPerMinute);
+    }
+
+    private static String redisKey(String policyName) {
+        return "rate-limit:" + policyName + ":" + KEY;
+    }
+}
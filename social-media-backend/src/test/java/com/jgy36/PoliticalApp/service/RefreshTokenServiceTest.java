@@ -0,0 +1,125 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.service.RefreshTokenService.IssuedSession;
+import com.jgy36.PoliticalApp.service.RefreshTokenService.Rotation;
+import com.jgy36.PoliticalApp.service.RefreshTokenService.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Refresh-token rotation and reuse detection against the configured Redis
+ */
+@SpringBootTest
+class RefreshTokenServiceTest {
+    private static final String EMAIL = "rotation-test@example.com";
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    // An id no real account has, so revoking "all sessions" touches only this test's families
+    private final Long userId = -ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final List<String> sessionIds = new ArrayList<>();
+    private final List<String> tokens = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        sessionIds.forEach(id -> redisTemplate.delete("refresh:family:" + id));
+        tokens.forEach(token -> redisTemplate.delete("refresh:token:" + sha256(token)));
+        redisTemplate.delete("refresh:user-families:" + userId);
+    }
+
+    @Test
+    void rotationIssuesASuccessorInTheSameFamily() {
+        IssuedSession session = start();
+
+        Rotation rotation = rotate(session.refreshToken());
+
+        assertEquals(Status.OK, rotation.status());
+        assertEquals(session.sessionId(), rotation.sessionId());
+        assertEquals(EMAIL, rotation.email());
+        assertNotNull(rotation.refreshToken());
+        assertNotEquals(session.refreshToken(), rotation.refreshToken());
+
+        assertEquals(Status.OK, rotate(rotation.refreshToken()).status());
+    }
+
+    @Test
+    void reusingAConsumedTokenRevokesTheWholeFamily() {
+        IssuedSession session = start();
+        Rotation first = rotate(session.refreshToken());
+
+        // The original token was copied and replayed
+        Rotation replay = rotate(session.refreshToken());
+        assertEquals(Status.REUSED, replay.status());
+        assertEquals(session.sessionId(), replay.sessionId());
+        assertNull(replay.refreshToken());
+
+        // The legitimate holder's newer token is dead too
+        assertEquals(Status.INVALID, rotate(first.refreshToken()).status());
+    }
+
+    @Test
+    void unknownTokenIsInvalid() {
+        assertEquals(Status.INVALID, rotate("not-a-real-token").status());
+    }
+
+    @Test
+    void revokedSessionCannotRefresh() {
+        IssuedSession session = start();
+
+        refreshTokenService.revokeSession(session.sessionId());
+
+        assertEquals(Status.INVALID, rotate(session.refreshToken()).status());
+    }
+
+    @Test
+    void revokeAllSessionsKeepsTheCallersSession() {
+        IssuedSession kept = start();
+        IssuedSession other = start();
+
+        refreshTokenService.revokeAllSessions(userId, kept.sessionId());
+
+        assertEquals(Status.OK, rotate(kept.refreshToken()).status());
+        assertEquals(Status.INVALID, rotate(other.refreshToken()).status());
+    }
+
+    private IssuedSession start() {
+        IssuedSession session = refreshTokenService.start(userId, EMAIL);
+        sessionIds.add(session.sessionId());
+        tokens.add(session.refreshToken());
+        return session;
+    }
+
+    private Rotation rotate(String token) {
+        Rotation rotation = refreshTokenService.rotate(token);
+        if (rotation.refreshToken() != null) {
+            tokens.add(rotation.refreshToken());
+        }
+        return rotation;
+    }
+
+    private static String sha256(String token) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.jgy36.PoliticalApp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Membership, the readiness gate and slicing by expiry of the blacklist Bloom filter
+ */
+class TokenBlacklistBloomFilterTest {
+    private static final long SLICE_MINUTES = 60;
+    private static final int EXPECTED_PER_SLICE = 1000;
+
+    private final TokenBlacklistBloomFilter filter =
+            new TokenBlacklistBloomFilter(SLICE_MINUTES, EXPECTED_PER_SLICE, 0.001);
+
+    @Test
+    void everythingMightBeBlacklistedUntilTheFirstSync() {
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightContain(digest("never-added")));
+
+        filter.markReady();
+        assertFalse(filter.mightContain(digest("never-added")));
+    }
+
+    @Test
+    void recordedTokensAreAlwaysFound() {
+        filter.markReady();
+        long expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(15);
+        for (int i = 0; i < EXPECTED_PER_SLICE; i++) {
+            filter.put(digest("token-" + i), expiresAt);
+        }
+
+        for (int i = 0; i < EXPECTED_PER_SLICE; i++) {
+            assertTrue(filter.mightContain(digest("token-" + i)), "false negative for token-" + i);
+        }
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        filter.markReady();
+        long expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(15);
+        for (int i = 0; i < EXPECTED_PER_SLICE; i++) {
+            filter.put(digest("token-" + i), expiresAt);
+        }
+
+        int falsePositives = 0;
+        int probes = 20000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(digest("other-" + i))) {
+                falsePositives++;
+            }
+        }
+        // 0.1% configured; allow generous slack so the test is not flaky
+        assertTrue(falsePositives < probes / 100, falsePositives + " false positives in " + probes);
+    }
+
+    @Test
+    void tokensAreSlicedByExpiry() {
+        long now = System.currentTimeMillis();
+        long sliceMillis = TimeUnit.MINUTES.toMillis(SLICE_MINUTES);
+        long currentSliceEnd = (now / sliceMillis + 1) * sliceMillis;
+
+        filter.put(digest("a"), currentSliceEnd + 1);
+        filter.put(digest("b"), currentSliceEnd + 2);
+        filter.put(digest("c"), currentSliceEnd + sliceMillis + 1);
+
+        // a and b share a slice
+        assertEquals(2, filter.getSliceCount());
+    }
+
+    @Test
+    void alreadyExpiredTokensAreNotRecorded() {
+        filter.markReady();
+        filter.put(digest("expired"), System.currentTimeMillis() - 1);
+
+        assertEquals(0, filter.getSliceCount());
+        assertFalse(filter.mightContain(digest("expired")));
+    }
+
+    @Test
+    void pruningKeepsSlicesWithLiveTokens() {
+        filter.markReady();
+        filter.put(digest("live"), System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5));
+
+        filter.pruneExpired();
+
+        assertEquals(1, filter.getSliceCount());
+        assertTrue(filter.mightContain(digest("live")));
+    }
+
+    private static byte[] digest(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.jgy36.PoliticalApp.service;
+
+import com.jgy36.PoliticalApp.repository.UserSecuritySettingsRepository;
+import org.jboss.aerogear.security.otp.Totp;
+import org.jboss.aerogear.security.otp.api.Base32;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TOTP checks and replay protection. Redis SET NX is simulated with a set of used keys; codes come
+ * from the aerogear implementation as an independent reference.
+ */
+class TwoFactorServiceTest {
+    private static final Long USER_ID = 42L;
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+    private final RateLimiter rateLimiter = mock(RateLimiter.class);
+    private final Set<String> usedKeys = new HashSet<>();
+
+    private final TwoFactorService twoFactorService = new TwoFactorService(
+            mock(UserSecuritySettingsRepository.class), redisTemplate, rateLimiter, 1, 5, 1, 60, 10);
+
+    private final String secret = Base32.random();
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> usedKeys.add(invocation.getArgument(0)));
+        when(rateLimiter.tryAcquire(any(), anyString())).thenReturn(RateLimiter.Decision.ALLOW);
+    }
+
+    @Test
+    void currentCodeIsAcceptedOnce() {
+        String code = new Totp(secret).now();
+
+        assertEquals(TwoFactorService.Status.VALID, check(USER_ID, code));
+        assertEquals(TwoFactorService.Status.REPLAYED, check(USER_ID, code));
+    }
+
+    @Test
+    void usedStepsAreTrackedPerUser() {
+        String code = new Totp(secret).now();
+
+        assertEquals(TwoFactorService.Status.VALID, check(USER_ID, code));
+        assertEquals(TwoFactorService.Status.VALID, check(USER_ID + 1, code));
+    }
+
+    @Test
+    void usedStepOutlivesTheAcceptanceWindow() {
+        twoFactorService.verifyEnrollment(USER_ID, secret, new Totp(secret).now());
+
+        // One step either side of the current one: 3 x 30 seconds
+        verify(valueOperations).setIfAbsent(startsWith("2fa:used:" + USER_ID + ":"), eq("1"),
+                eq(Duration.ofSeconds(90)));
+    }
+
+    @Test
+    void wrongCodeIsInvalid() {
+        String code = new Totp(secret).now();
+        String wrong = String.format("%06d", (Integer.parseInt(code) + 1) % 1_000_000);
+
+        assertEquals(TwoFactorService.Status.INVALID, check(USER_ID, wrong));
+        assertTrue(usedKeys.isEmpty());
+    }
+
+    @Test
+    void malformedCodesAreRejectedWithoutTouchingRedis() {
+        assertEquals(TwoFactorService.Status.INVALID, check(USER_ID, null));
+        assertEquals(TwoFactorService.Status.INVALID, check(USER_ID, "12345"));
+        assertEquals(TwoFactorService.Status.INVALID, check(USER_ID, "12a456"));
+        verifyNoInteractions(valueOperations);
+    }
+
+    @Test
+    void throttledAttemptsAreNotChecked() {
+        when(rateLimiter.tryAcquire(any(), anyString())).thenReturn(new RateLimiter.Decision(false, 30));
+
+        TwoFactorService.Verification verification =
+                twoFactorService.verifyEnrollment(USER_ID, secret, new Totp(secret).now());
+
+        assertEquals(TwoFactorService.Status.THROTTLED, verification.status());
+        assertEquals(30, verification.retryAfterSeconds());
+        assertTrue(usedKeys.isEmpty());
+    }
+
+    private TwoFactorService.Status check(Long userId, String code) {
+        return twoFactorService.verifyEnrollment(userId, secret, code).status();
+    }
+}
@@ -1,6 +1,11 @@
 // src/api/apiClient.ts - Enhanced with better token validation and logging
 import axios from "axios";
-import { getToken, isAuthenticated } from "@/utils/tokenUtils";
+import {
+  getRefreshToken,
+  getToken,
+  isAuthenticated,
+  setRefreshToken,
+} from "@/utils/tokenUtils";
 import {
   getErrorMessage,
   ApiError,
@@ -18,6 +23,7 @@ export const BASE_URL =
 // Interface for token refresh
 export interface TokenRefreshResponse {
   token: string;
+  refreshToken?: string;
 }
 
 // Options for creating an API client
@@ -187,10 +193,11 @@ export const createApiClient = (options: ApiClientOptions = {}) => {
 
           try {
             console.log('Attempting to refresh token...');
-            // Try to refresh the token (cookie-based)
+            // Send the stored refresh token; the cookie is the fallback when there is none
+            const storedRefreshToken = getRefreshToken();
             const refreshResponse = await axios.post<TokenRefreshResponse>(
               `${API_BASE_URL}/auth/refresh`,
-              {},
+              storedRefreshToken ? { refreshToken: storedRefreshToken } : {},
               { 
                 headers: { 
                   'Cache-Control': 'no-cache',
@@ -207,6 +214,10 @@ export const createApiClient = (options: ApiClientOptions = {}) => {
               const newToken = refreshResponse.data.token;
               const tokenUtil = await import("@/utils/tokenUtils");
               tokenUtil.setToken(newToken);
+              // The refresh token is rotated: the one just sent no longer works
+              if (refreshResponse.data.refreshToken) {
+                setRefreshToken(refreshResponse.data.refreshToken);
+              }
               
               // Update the Authorization header for the original request
               originalRequest.headers = originalRequest.headers || {};
@@ -12,6 +12,8 @@ import {
   clearUserData,
   getUserData,
   setAuthenticated,
+  getRefreshToken,
+  setRefreshToken,
   // Remove this: removeToken
 } from "@/utils/tokenUtils";
 
@@ -46,6 +48,9 @@ export const login = async (
       // If we get a token from the server (normal login), store it
       if (response.data.token) {
         setToken(response.data.token);
+        if (response.data.refreshToken) {
+          setRefreshToken(response.data.refreshToken);
+        }
         setAuthenticated(true);
 
         // Store user info in localStorage
@@ -174,9 +179,11 @@ export const logout = async (): Promise<void> => {
  */
 export const refreshToken = async (): Promise<boolean> => {
   return safeApiCall(async () => {
-    const response = await apiClient.post<{ token?: string }>(
+    // The cookie still covers tabs that started before the token was kept in session storage
+    const storedRefreshToken = getRefreshToken();
+    const response = await apiClient.post<{ token?: string; refreshToken?: string }>(
       "/auth/refresh",
-      {},
+      storedRefreshToken ? { refreshToken: storedRefreshToken } : {},
       { withCredentials: true }
     );
 
@@ -184,6 +191,10 @@ export const refreshToken = async (): Promise<boolean> => {
     if (response.data && response.data.token) {
       setToken(response.data.token);
     }
+    // The refresh token is rotated: the one just sent no longer works
+    if (response.data && response.data.refreshToken) {
+      setRefreshToken(response.data.refreshToken);
+    }
 
     // Mark as authenticated since the cookie was refreshed
     setAuthenticated(true);
@@ -348,6 +359,9 @@ export const verify2FA = async (
     // If verification successful, store token and user data
     if (response.data.token) {
       setToken(response.data.token);
+      if (response.data.refreshToken) {
+        setRefreshToken(response.data.refreshToken);
+      }
       setAuthenticated(true);
 
       // Store user info in localStorage
@@ -21,12 +21,14 @@ export interface Notification {
 }
 
 /**
- * Fetch user notifications
+ * Fetch user notifications, newest first, one page of 50 at a time (pages start at 1)
  */
-export const getNotifications = async (): Promise<Notification[]> => {
+export const getNotifications = async (page: number = 1): Promise<Notification[]> => {
   try {
     console.log("Sending request to /notifications endpoint");
-    const response = await apiClient.get<Notification[]>("/notifications");
+    const response = await apiClient.get<Notification[]>("/notifications", {
+      params: { page },
+    });
     console.log("Notifications API response:", response.status, response.data);
     return response.data;
   } catch (error: any) {
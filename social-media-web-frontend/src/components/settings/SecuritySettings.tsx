@@ -25,6 +25,7 @@ import { useRouter } from "next/router";
 import { useSelector } from "react-redux";
 import { RootState } from "@/redux/store";
 import { apiClient } from "@/api/apiClient";
+import { setRefreshToken, setToken } from "@/utils/tokenUtils";
 
 // Interface for TWO-FA setup response
 interface TwoFASetupResponse {
@@ -123,11 +124,19 @@ const SecuritySettings: React.FC = () => {
     setIsUpdatingPassword(true);
 
     try {
-      await apiClient.put("/users/password", {
+      const response = await apiClient.put("/users/password", {
         currentPassword,
         newPassword,
       });
 
+      // Changing the password revokes every session; continue on the new one
+      if (response.data?.token) {
+        setToken(response.data.token);
+      }
+      if (response.data?.refreshToken) {
+        setRefreshToken(response.data.refreshToken);
+      }
+
       setPasswordUpdateSuccess(true);
       setCurrentPassword("");
       setNewPassword("");
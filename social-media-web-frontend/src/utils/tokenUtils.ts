@@ -10,6 +10,7 @@ const isBrowser = typeof window !== "undefined";
 
 // Keys for token storage
 const TOKEN_KEY = "token";
+const REFRESH_TOKEN_KEY = "refreshToken";
 const USER_ID_KEY = "userId";
 const USERNAME_KEY = "username";
 const EMAIL_KEY = "email";
@@ -75,6 +76,29 @@ export const getToken = (): string | null => {
   }
 };
 
+// Store the refresh token; the server rotates it on every refresh, so always keep the latest one
+export const setRefreshToken = (refreshToken: string) => {
+  if (!isBrowser) return;
+
+  try {
+    setSessionItem(REFRESH_TOKEN_KEY, refreshToken);
+  } catch (error) {
+    console.error("Error storing refresh token:", error);
+  }
+};
+
+// Get refresh token
+export const getRefreshToken = (): string | null => {
+  if (!isBrowser) return null;
+
+  try {
+    return getSessionItem(REFRESH_TOKEN_KEY);
+  } catch (error) {
+    console.error("Error retrieving refresh token:", error);
+    return null;
+  }
+};
+
 // Set authentication status (without storing an invalid token)
 export const setAuthenticated = (status: boolean) => {
   if (!isBrowser) return; // Skip if not in browser
@@ -104,6 +128,7 @@ export const removeToken = () => {
 
   try {
     removeSessionItem(TOKEN_KEY);
+    removeSessionItem(REFRESH_TOKEN_KEY);
     removeSessionItem(IS_AUTHENTICATED_KEY);
   } catch (error) {
     console.error("Error removing token:", error);